@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.GatewayTimeout;
+import io.datenwelt.cargo.rest.response.InternalServerError;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Variant of {@link Endpoint} which provides its response asynchronously.
+ * <p>
+ * The endpoint returns a {@code CompletionStage} right away, for example after
+ * starting several calls to downstream services which run at the same time.
+ * The router processes the response when the stage completes: the "after"
+ * filters, content negotiation, sending the response and the "finish" filters
+ * follow only then. If the stage completes exceptionally with an
+ * {@link APIException}, its error response is sent. Other exceptions lead to
+ * a {@code 500 - Internal Server Error}. If the request has a
+ * {@link Request#getDeadline() deadline} which expires first, the stage is
+ * cancelled and a {@code 504 - Gateway Timeout} is sent.
+ * <p>
+ * The thread processing the request waits for the stage to complete, since
+ * the servlet API the router is built on does not support asynchronous
+ * request processing. Filters, limits and pooled filter instances are
+ * therefore released only after the response has been sent.
+ * <p>
+ * Example:
+ * <code>
+ * <pre>
+ *      router.async("GET", "/person/{id}", (request) -&gt; people
+ *              .lookup(request.param("id").get())
+ *              .thenApply((person) -&gt; new OK(person)));
+ * </pre>
+ * </code>
+ *
+ * @author job
+ * @see Router#async(java.lang.String, java.lang.String,
+ * io.datenwelt.cargo.rest.AsyncEndpoint)
+ */
+@FunctionalInterface
+public interface AsyncEndpoint {
+
+    /**
+     * The method called by the router when dispatching an incoming request to
+     * this endpoint.
+     *
+     * @param request the incoming request.
+     * @return a stage completing with the response. A response or a stage of
+     * {@code null} corresponds to an empty response with an HTTP status of
+     * {@code 204 - No Content}.
+     * @throws APIException if the endpoint fails right away.
+     */
+    CompletionStage<Response> call(Request request) throws APIException;
+
+    /**
+     * Returns an endpoint which calls this endpoint and waits for its
+     * response on the thread processing the request.
+     *
+     * @return the endpoint.
+     */
+    default Endpoint toEndpoint() {
+        return (request) -> {
+            CompletionStage<Response> stage = call(request);
+            if (stage == null) {
+                return null;
+            }
+            CompletableFuture<Response> future = stage.toCompletableFuture();
+            Optional<Deadline> deadline = request.getDeadline();
+            try {
+                return deadline.isPresent()
+                        ? future.get(deadline.get().remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                        : future.get();
+            } catch (TimeoutException ex) {
+                future.cancel(true);
+                throw new StacklessAPIException(new GatewayTimeout(), "Deadline expired waiting for the response of request " + request + ".");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                throw new APIException(new InternalServerError(), "Interrupted waiting for the response of request " + request + ".", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                while (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                if (cause instanceof APIException) {
+                    throw (APIException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new APIException(new InternalServerError(), "Asynchronous endpoint failed: " + cause.getMessage(), cause);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,771 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.datenwelt.cargo.rest.content.ContentEncoder;
+import io.datenwelt.cargo.rest.content.ContentProducer;
+import io.datenwelt.cargo.rest.content.json.JsonProducer;
+import io.datenwelt.cargo.rest.headers.Header;
+import io.datenwelt.cargo.rest.path.Path;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.BadRequest;
+import io.datenwelt.cargo.rest.response.InternalServerError;
+import io.datenwelt.cargo.rest.response.OK;
+import io.datenwelt.cargo.rest.response.ServiceUnavailable;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
+import io.datenwelt.cargo.rest.serialization.Json;
+import io.datenwelt.cargo.rest.utils.ByteCountingOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Endpoint processing a list of requests sent in a single HTTP request.
+ * <p>
+ * The body of the batch request is a JSON array of entries with the fields
+ * {@code method}, {@code path}, {@code headers} and {@code body}. The path is
+ * relative to the router and may carry a query string. The body is any JSON
+ * value and is sent to the endpoint as {@code application/json}:
+ * <pre>
+ *      [
+ *          {"method": "GET", "path": "/person/me"},
+ *          {"method": "PUT", "path": "/person/42/name", "body": "Testmann"}
+ *      ]
+ * </pre>
+ * Each entry passes the router like a request of its own, including mounted
+ * routers, limits, filters and content negotiation, but without a round trip
+ * through the servlet container. Entries inherit the headers of the batch
+ * request, e.g. {@code Authorization}, unless they override them, and
+ * share its {@link Request#getDeadline() deadline}. Entries are independent of
+ * each other and are processed in parallel on a bounded thread pool.
+ * <p>
+ * The response is a JSON array with an object for each entry in the order of
+ * the request, holding the {@code status}, the {@code headers} and the
+ * {@code body} of the entry's response. The objects are streamed to the
+ * client as soon as the entry and all entries before it have finished. JSON
+ * bodies are embedded as they are, other bodies as strings.
+ * <p>
+ * Batches cannot be nested. The endpoint is registered with
+ * {@link Router#batch(java.lang.String, int)}.
+ *
+ * @author job
+ */
+public class BatchEndpoint implements Endpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchEndpoint.class);
+
+    public static final String DEFAULT_PATH = "/_batch";
+    public static final int DEFAULT_MAX_ENTRIES = 50;
+
+    /**
+     * Request attribute marking the requests of batch entries.
+     */
+    static final String BATCH_ATTRIBUTE = BatchEndpoint.class.getName() + ".entry";
+
+    /**
+     * Headers of the batch request which are not passed on to the entries.
+     */
+    private static final Set<String> BATCH_HEADERS = new HashSet<>(Arrays.asList(
+            "content-length", "content-type", "content-encoding", "transfer-encoding", "accept-encoding",
+            Router.TIMEOUT_HEADER.toLowerCase()));
+
+    private final Router router;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final int maxEntries;
+
+    /**
+     * Creates a batch endpoint with a thread pool of its own. Besides the
+     * entries being processed, the pool queues up to
+     * {@link #DEFAULT_MAX_ENTRIES} entries per thread. Batches arriving while
+     * the queue is full are rejected with a
+     * {@code 503 - Service Unavailable}. The pool is stopped by
+     * {@link #shutdown()}.
+     *
+     * @param router the router processing the entries.
+     * @param threads the number of entries processed at the same time.
+     */
+    public BatchEndpoint(Router router, int threads) {
+        this(router, pool(threads), true, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a batch endpoint. The executor is owned by the caller and is
+     * not stopped by {@link #shutdown()}. Batches rejected by the executor are
+     * answered with a {@code 503 - Service Unavailable}.
+     *
+     * @param router the router processing the entries.
+     * @param executor the executor processing the entries.
+     * @param maxEntries the maximum number of entries of a batch.
+     */
+    public BatchEndpoint(Router router, ExecutorService executor, int maxEntries) {
+        this(router, executor, false, maxEntries);
+    }
+
+    private BatchEndpoint(Router router, ExecutorService executor, boolean ownExecutor, int maxEntries) {
+        if (router == null || executor == null || maxEntries < 1) {
+            throw new IllegalArgumentException("Invalid batch endpoint configuration.");
+        }
+        this.router = router;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Stops the thread pool of this endpoint if it has created one. Entries
+     * not yet started are dropped, running entries are interrupted.
+     */
+    public void shutdown() {
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tells whether the executor of this endpoint has been shut down.
+     *
+     * @return {@code true} if no more entries are accepted.
+     */
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Override
+    public Response call(Request request) throws APIException {
+        HttpServletRequest servletRequest = request.getServletRequest();
+        if (servletRequest.getAttribute(BATCH_ATTRIBUTE) != null) {
+            throw new StacklessAPIException(new BadRequest("Batches cannot be nested."));
+        }
+        Entry[] entries = request.<Entry[]>getBodyAs(Entry[].class).orElse(null);
+        if (entries == null || entries.length == 0) {
+            throw new StacklessAPIException(new BadRequest("Missing batch entries."));
+        }
+        if (entries.length > maxEntries) {
+            throw new StacklessAPIException(new BadRequest("Too many batch entries, the maximum is " + maxEntries + "."));
+        }
+        List<EntryRequest> entryRequests = new ArrayList<>(entries.length);
+        String timeout = request.getDeadline().isPresent()
+                ? String.valueOf(request.getDeadline().get().remaining(TimeUnit.MILLISECONDS))
+                : null;
+        for (Entry entry : entries) {
+            entryRequests.add(new EntryRequest(servletRequest, entry, timeout));
+        }
+        List<CompletableFuture<Result>> results = new ArrayList<>(entries.length);
+        try {
+            for (EntryRequest entryRequest : entryRequests) {
+                results.add(CompletableFuture.supplyAsync(() -> execute(entryRequest), executor));
+            }
+        } catch (RejectedExecutionException ex) {
+            results.forEach((result) -> result.cancel(true));
+            LOG.warn("Unable to process batch request {}: {}", request, ex.getMessage());
+            throw new StacklessAPIException(new ServiceUnavailable());
+        }
+        return new BatchResponse(results);
+    }
+
+    private Result execute(EntryRequest entryRequest) {
+        EntryResponse entryResponse = new EntryResponse();
+        try {
+            router.service(entryRequest, entryResponse);
+        } catch (ServletException | IOException | RuntimeException ex) {
+            LOG.error("Unable to process batch entry {} {}: {}", entryRequest.getMethod(), entryRequest.getPathInfo(), ex.getMessage(), ex);
+            return new Result(InternalServerError.CODE, Collections.emptyMap(), new byte[0]);
+        }
+        return entryResponse.result();
+    }
+
+    private static ExecutorService pool(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of batch threads: " + threads);
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = (runnable) -> {
+            Thread thread = new Thread(runnable, "batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * DEFAULT_MAX_ENTRIES), factory);
+    }
+
+    /**
+     * Entry of a batch request.
+     */
+    public static class Entry {
+
+        private String method;
+        private String path;
+        private Map<String, String> headers;
+        private JsonNode body;
+
+        public String getMethod() {
+            return method;
+        }
+
+        public void setMethod(String method) {
+            this.method = method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        public void setHeaders(Map<String, String> headers) {
+            this.headers = headers;
+        }
+
+        public JsonNode getBody() {
+            return body;
+        }
+
+        public void setBody(JsonNode body) {
+            this.body = body;
+        }
+
+    }
+
+    /**
+     * Response of a batch entry as sent by the router.
+     */
+    private static final class Result {
+
+        private final int status;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        Result(int status, Map<String, List<String>> headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        boolean isJson() {
+            List<String> contentType = headers.get("Content-Type");
+            return contentType != null && !contentType.isEmpty() && contentType.get(0).startsWith(JsonProducer.CONTENT_TYPE);
+        }
+
+    }
+
+    /**
+     * Response streaming the results of the entries as they finish.
+     */
+    private static final class BatchResponse extends Response {
+
+        private final List<CompletableFuture<Result>> results;
+        private long contentLength = -1;
+
+        BatchResponse(List<CompletableFuture<Result>> results) {
+            super(OK.CODE);
+            this.results = results;
+        }
+
+        @Override
+        public void send(HttpServletResponse servletResponse, ContentProducer contentProducer, ContentEncoder contentEncoder, boolean headersOnly) throws IOException {
+            servletResponse.setStatus(getStatus());
+            for (Header header : headers().values()) {
+                servletResponse.addHeader(header.getName(), header.encoded());
+            }
+            servletResponse.setHeader("Content-Type", JsonProducer.CONTENT_TYPE + "; charset=" + JsonProducer.CHARSET);
+            if (headersOnly) {
+                results.forEach((result) -> result.cancel(true));
+                servletResponse.flushBuffer();
+                contentLength = 0;
+                return;
+            }
+            try {
+                ByteCountingOutputStream out = new ByteCountingOutputStream(servletResponse.getOutputStream());
+                JsonGenerator generator = Json.getDefaultObjectMapper().getFactory().createGenerator(out);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                for (CompletableFuture<Result> future : results) {
+                    Result result;
+                    try {
+                        result = future.join();
+                    } catch (RuntimeException ex) {
+                        result = new Result(InternalServerError.CODE, Collections.emptyMap(), new byte[0]);
+                    }
+                    generator.writeStartObject();
+                    generator.writeNumberField("status", result.status);
+                    generator.writeObjectFieldStart("headers");
+                    for (Map.Entry<String, List<String>> header : result.headers.entrySet()) {
+                        generator.writeStringField(header.getKey(), String.join(", ", header.getValue()));
+                    }
+                    generator.writeEndObject();
+                    if (result.body.length > 0) {
+                        generator.writeFieldName("body");
+                        String body = new String(result.body, StandardCharsets.UTF_8);
+                        if (result.isJson()) {
+                            generator.writeRawValue(body);
+                        } else {
+                            generator.writeString(body);
+                        }
+                    }
+                    generator.writeEndObject();
+                    generator.flush();
+                    servletResponse.flushBuffer();
+                }
+                generator.writeEndArray();
+                generator.close();
+                servletResponse.flushBuffer();
+                contentLength = out.getCount();
+            } finally {
+                // Entries of a client gone away need not be processed anymore.
+                results.forEach((result) -> result.cancel(true));
+            }
+        }
+
+        @Override
+        public long getContentLength() {
+            return contentLength >= 0 ? contentLength : super.getContentLength();
+        }
+
+    }
+
+    /**
+     * Servlet request of a batch entry. It shares the connection properties
+     * of the batch request but has its own method, path, headers, body and
+     * attributes.
+     */
+    private static final class EntryRequest extends HttpServletRequestWrapper {
+
+        private final String method;
+        private final String rawPath;
+        private final Path path;
+        private final String query;
+        private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final byte[] body;
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        EntryRequest(HttpServletRequest batch, Entry entry, String timeout) throws APIException {
+            super(batch);
+            if (entry == null || entry.getMethod() == null || entry.getPath() == null || !entry.getPath().startsWith("/")) {
+                throw new StacklessAPIException(new BadRequest("Batch entries need a method and an absolute path."));
+            }
+            this.method = entry.getMethod().toUpperCase();
+            int separator = entry.getPath().indexOf('?');
+            this.rawPath = separator < 0 ? entry.getPath() : entry.getPath().substring(0, separator);
+            this.query = separator < 0 ? null : entry.getPath().substring(separator + 1);
+            try {
+                this.path = Path.parse(new URI(rawPath).getPath());
+            } catch (URISyntaxException ex) {
+                throw new StacklessAPIException(new BadRequest("Invalid path of batch entry: " + entry.getPath()));
+            }
+            Enumeration names = batch.getHeaderNames();
+            while (names != null && names.hasMoreElements()) {
+                String name = names.nextElement().toString();
+                if (BATCH_HEADERS.contains(name.toLowerCase())) {
+                    continue;
+                }
+                List<String> values = new ArrayList<>();
+                Enumeration batchValues = batch.getHeaders(name);
+                while (batchValues.hasMoreElements()) {
+                    values.add(batchValues.nextElement().toString());
+                }
+                headers.put(name, values);
+            }
+            if (entry.getHeaders() != null) {
+                for (Map.Entry<String, String> header : entry.getHeaders().entrySet()) {
+                    headers.put(header.getKey(), Collections.singletonList(header.getValue()));
+                }
+            }
+            if (entry.getBody() != null) {
+                this.body = Json.toJson(entry.getBody()).getBytes(StandardCharsets.UTF_8);
+                headers.put("Content-Type", Collections.singletonList(JsonProducer.CONTENT_TYPE + "; charset=" + JsonProducer.CHARSET));
+                headers.put("Content-Length", Collections.singletonList(String.valueOf(body.length)));
+            } else {
+                this.body = new byte[0];
+            }
+            if (timeout != null) {
+                headers.put(Router.TIMEOUT_HEADER, Collections.singletonList(timeout));
+            }
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return path.toString();
+        }
+
+        @Override
+        public String getRequestURI() {
+            HttpServletRequest batch = (HttpServletRequest) getRequest();
+            return (batch.getContextPath() == null ? "" : batch.getContextPath())
+                    + (batch.getServletPath() == null ? "" : batch.getServletPath())
+                    + rawPath;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            HttpServletRequest batch = (HttpServletRequest) getRequest();
+            String url = batch.getRequestURL().toString();
+            String uri = batch.getRequestURI();
+            String origin = uri != null && url.endsWith(uri)
+                    ? url.substring(0, url.length() - uri.length())
+                    : batch.getScheme() + "://" + batch.getServerName() + ":" + batch.getServerPort();
+            return new StringBuffer(origin).append(getRequestURI());
+        }
+
+        @Override
+        public String getQueryString() {
+            return query;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            List<String> values = headers.get(name);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+
+        @Override
+        public Enumeration getHeaders(String name) {
+            List<String> values = headers.get(name);
+            return Collections.enumeration(values == null ? Collections.<String>emptyList() : values);
+        }
+
+        @Override
+        public Enumeration getHeaderNames() {
+            return Collections.enumeration(headers.keySet());
+        }
+
+        @Override
+        public int getIntHeader(String name) {
+            String value = getHeader(name);
+            return value == null ? -1 : Integer.parseInt(value);
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            String value = getHeader(name);
+            return value == null ? -1 : ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        }
+
+        @Override
+        public String getContentType() {
+            return getHeader("Content-Type");
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return body.length > 0 ? JsonProducer.CHARSET : null;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) {
+                    return in.read(bytes, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            if (Request.PATH_ATTRIBUTE.equals(name)) {
+                return path;
+            } else if (BATCH_ATTRIBUTE.equals(name)) {
+                return Boolean.TRUE;
+            }
+            synchronized (attributes) {
+                if (attributes.containsKey(name)) {
+                    return attributes.get(name);
+                }
+            }
+            return super.getAttribute(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            synchronized (attributes) {
+                attributes.put(name, value);
+            }
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            synchronized (attributes) {
+                attributes.put(name, null);
+            }
+        }
+
+    }
+
+    /**
+     * Servlet response of a batch entry which keeps status, headers and body
+     * in memory.
+     */
+    private static final class EntryResponse implements HttpServletResponse {
+
+        private int status = OK.CODE;
+        private final Map<String, List<String>> headers = new LinkedHashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private PrintWriter writer;
+
+        Result result() {
+            if (writer != null) {
+                writer.flush();
+            }
+            return new Result(status, headers, body.toByteArray());
+        }
+
+        @Override
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public void setStatus(int status, String message) {
+            this.status = status;
+        }
+
+        @Override
+        public void sendError(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public void sendError(int status, String message) {
+            this.status = status;
+        }
+
+        @Override
+        public void sendRedirect(String location) {
+            this.status = 302;
+            setHeader("Location", location);
+        }
+
+        @Override
+        public boolean containsHeader(String name) {
+            return headers.containsKey(name);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            headers.computeIfAbsent(name, (key) -> new ArrayList<>()).add(value);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            List<String> values = new ArrayList<>();
+            values.add(value);
+            headers.put(name, values);
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            addHeader(name, String.valueOf(value));
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            setHeader(name, String.valueOf(value));
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+            setHeader(name, DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atZone(ZoneOffset.UTC)));
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+            addHeader(name, DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(date).atZone(ZoneOffset.UTC)));
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            addHeader("Set-Cookie", cookie.getName() + "=" + cookie.getValue());
+        }
+
+        @Override
+        public String encodeURL(String url) {
+            return url;
+        }
+
+        @Override
+        public String encodeRedirectURL(String url) {
+            return url;
+        }
+
+        @Override
+        public String encodeUrl(String url) {
+            return url;
+        }
+
+        @Override
+        public String encodeRedirectUrl(String url) {
+            return url;
+        }
+
+        @Override
+        public String getContentType() {
+            List<String> values = headers.get("Content-Type");
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+
+        @Override
+        public void setContentType(String type) {
+            setHeader("Content-Type", type);
+        }
+
+        @Override
+        public void setContentLength(int length) {
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return JsonProducer.CHARSET;
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+        }
+
+        @Override
+        public void setBufferSize(int size) {
+        }
+
+        @Override
+        public int getBufferSize() {
+            return 0;
+        }
+
+        @Override
+        public void setLocale(Locale locale) {
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.getDefault();
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int value) {
+                    body.write(value);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) {
+                    body.write(bytes, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() {
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public void reset() {
+            status = OK.CODE;
+            headers.clear();
+            body.reset();
+        }
+
+        @Override
+        public void resetBuffer() {
+            body.reset();
+        }
+
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time until which a request has to be answered.
+ * <p>
+ * The router derives the deadline of a request from its default timeout and
+ * the {@code X-Request-Timeout} header and aborts the request with a
+ * {@code 504 - Gateway Timeout} once it has expired. Endpoints find the
+ * deadline at {@link Request#getDeadline()} and can use the remaining time as
+ * timeout for their own calls.
+ * <p>
+ * Deadlines are based on {@link System#nanoTime()} and are immutable.
+ *
+ * @author job
+ */
+public final class Deadline {
+
+    private final long nanos;
+
+    private Deadline(long nanos) {
+        this.nanos = nanos;
+    }
+
+    /**
+     * Creates a deadline relative to now.
+     *
+     * @param timeout the time left until the deadline.
+     * @param unit the unit of the timeout.
+     * @return the deadline.
+     */
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Tells whether the deadline has passed.
+     *
+     * @return {@code true} if there is no time left.
+     */
+    public boolean isExpired() {
+        return nanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Returns the time left until the deadline.
+     *
+     * @param unit the unit of the result.
+     * @return the remaining time, zero if the deadline has passed.
+     */
+    public long remaining(TimeUnit unit) {
+        long remaining = nanos - System.nanoTime();
+        return remaining > 0 ? unit.convert(remaining, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    /**
+     * Returns the earlier of two deadlines.
+     *
+     * @param other the other deadline, may be {@code null}.
+     * @return the deadline which expires first.
+     */
+    public Deadline min(Deadline other) {
+        return other == null || nanos - other.nanos <= 0 ? this : other;
+    }
+
+    /**
+     * Limits the time a request waits for a resource, e.g. a permit, to the
+     * time left until its deadline. A request waiting this long and not
+     * getting the resource is answered with a {@code 504 - Gateway Timeout}
+     * if {@link #hasExpired(java.util.Optional) its deadline has expired} by
+     * then.
+     *
+     * @param deadline the deadline of the request, if it has any.
+     * @param maxWait the longest time the request may wait.
+     * @param unit the unit of the maximum wait time and of the result.
+     * @return the time to wait.
+     */
+    public static long waitTime(Optional<Deadline> deadline, long maxWait, TimeUnit unit) {
+        return deadline.isPresent() ? Math.min(maxWait, deadline.get().remaining(unit)) : maxWait;
+    }
+
+    /**
+     * Tells whether the deadline of a request has passed.
+     *
+     * @param deadline the deadline of the request, if it has any.
+     * @return {@code true} if the request has a deadline without time left.
+     */
+    public static boolean hasExpired(Optional<Deadline> deadline) {
+        return deadline.isPresent() && deadline.get().isExpired();
+    }
+
+    @Override
+    public String toString() {
+        return remaining(TimeUnit.MILLISECONDS) + "ms";
+    }
+
+}
@@ -39,6 +39,10 @@ import javax.servlet.ServletRequest;
  * for all requests most likely simultaneously. It is not recommended to require
  * any synchronization between the requests. So use this option with caution.
  * <p>
+ * A filter only needs to override the methods of the phases it takes part in.
+ * The router skips a filter in all phases whose method it does not override
+ * and does not create instances of filter classes which override none of them.
+ * <p>
  * There are five different filtering phases the request passes:
  * <ol>
  * <li>prepare</li>
@@ -73,7 +77,10 @@ import javax.servlet.ServletRequest;
  * If no such endpoint exists a {@code 404 - Not Found} or a {@code 405 - Method Not Allowed} 
  * response is sent depending on the existence of other endpoints which match the path but do not match the HTTP
  * method. If there are no endpoints for the path a 404 is sent. If there are endpoints
- * for the path but none that match the HTTP method, a 405 is sent.
+ * for the path but none that match the HTTP method, a 405 is sent. Requests with
+ * the methods {@code HEAD} and {@code OPTIONS} are an exception: unless endpoints
+ * are registered for them, {@code HEAD} is dispatched to the {@code GET} endpoint
+ * and {@code OPTIONS} is answered with the {@code Allow} header of the resource.
  * <h2>The "after" phase</h2>
  * After the router selects an endpoint and dispatches the request to it, the endpoint
  * should have provided a {@link Response} instance to sent to the client. Otherwise
@@ -186,4 +193,17 @@ public interface Filter {
      */
     default void finish(Optional<Request> request, Response response) {
     };
+    
+    /**
+     * This callback is called when a pooled filter instance is returned to its
+     * pool after a request has been processed. The filter has to drop all
+     * state it collected during the request, because the instance is reused
+     * for another request afterwards.
+     * <p>
+     * Filters which are not registered as pooled filters are never reset.
+     * 
+     * @see Router#filter(java.lang.Class, boolean) 
+     */
+    default void reset() {
+    };
 }
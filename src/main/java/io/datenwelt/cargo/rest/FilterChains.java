@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import io.datenwelt.cargo.rest.path.Path;
+import io.datenwelt.cargo.rest.path.PrefixTable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The effective filter pipelines of a router by path prefix.
+ * <p>
+ * Filters are either registered for all requests or scoped to a literal path
+ * prefix. For each distinct prefix a {@link FilterPipeline} is compiled from
+ * the unscoped filters and the filters of this prefix and of all prefixes
+ * above it, in the order of their registration. A request runs the pipeline
+ * of the longest prefix of its path, requests outside of any prefix only run
+ * the unscoped filters.
+ * <p>
+ * Instances are immutable snapshots of the registered filters.
+ *
+ * @author job
+ */
+final class FilterChains {
+
+    private final Object[] filters;
+    private final FilterPipeline root;
+    private final PrefixTable<FilterPipeline> scopes;
+
+    private FilterChains(Object[] filters, FilterPipeline root, PrefixTable<FilterPipeline> scopes) {
+        this.filters = filters;
+        this.root = root;
+        this.scopes = scopes;
+    }
+
+    /**
+     * Compiles the registered filters. Scoped filters are registered as
+     * instances of {@link Scoped}.
+     *
+     * @param registered the registered filters in the order of their
+     * registration.
+     * @return the compiled pipelines.
+     */
+    static FilterChains compile(List<Object> registered) {
+        Object[] filters = registered.toArray();
+        List<Object> unscoped = new ArrayList<>();
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (Object filter : filters) {
+            if (filter instanceof Scoped) {
+                prefixes.add(((Scoped) filter).prefix);
+            } else {
+                unscoped.add(filter);
+            }
+        }
+        PrefixTable<FilterPipeline> scopes = null;
+        if (!prefixes.isEmpty()) {
+            Map<String, FilterPipeline> pipelines = new HashMap<>();
+            for (String prefix : prefixes) {
+                List<Object> chain = new ArrayList<>();
+                for (Object filter : filters) {
+                    if (!(filter instanceof Scoped)) {
+                        chain.add(filter);
+                    } else if (((Scoped) filter).contains(prefix)) {
+                        chain.add(((Scoped) filter).filter);
+                    }
+                }
+                pipelines.put(prefix, FilterPipeline.compile(chain));
+            }
+            scopes = new PrefixTable<>(pipelines);
+        }
+        return new FilterChains(filters, FilterPipeline.compile(unscoped), scopes);
+    }
+
+    /**
+     * Checks if these pipelines have been compiled from the given filters.
+     *
+     * @param registered the registered filters.
+     * @return {@code true} if the filters are the same as those the pipelines
+     * have been compiled from.
+     */
+    boolean isCompiledFrom(List<Object> registered) {
+        if (registered.size() != filters.length) {
+            return false;
+        }
+        for (int idx = 0; idx < filters.length; idx++) {
+            if (registered.get(idx) != filters[idx]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether any filter is scoped to a path prefix. Otherwise all
+     * requests run the {@link #root()} pipeline.
+     *
+     * @return {@code true} if the pipeline depends on the request path.
+     */
+    boolean isScoped() {
+        return scopes != null;
+    }
+
+    /**
+     * Returns the pipeline of the filters which are not scoped to a path
+     * prefix.
+     *
+     * @return the pipeline of the unscoped filters.
+     */
+    FilterPipeline root() {
+        return root;
+    }
+
+    /**
+     * Returns the pipeline for a request path.
+     *
+     * @param path the canonical path of the request.
+     * @return the pipeline of the longest scoped prefix of the path or the
+     * pipeline of the unscoped filters.
+     */
+    FilterPipeline select(Path path) {
+        if (scopes == null) {
+            return root;
+        }
+        PrefixTable.Match<FilterPipeline> match = scopes.lookup(path);
+        return match != null ? match.getValue() : root;
+    }
+
+    /**
+     * A filter registered for the requests below a path prefix.
+     */
+    static final class Scoped {
+
+        final String prefix;
+        final Object filter;
+
+        /**
+         * Scopes a filter.
+         *
+         * @param prefix the normalized literal path prefix.
+         * @param filter the filter instance, class or factory.
+         */
+        Scoped(String prefix, Object filter) {
+            this.prefix = prefix;
+            this.filter = filter;
+        }
+
+        boolean contains(String path) {
+            return path.equals(prefix) || (path.startsWith(prefix) && path.charAt(prefix.length()) == '/');
+        }
+
+        @Override
+        public String toString() {
+            return filter + " (" + prefix + ")";
+        }
+
+    }
+
+}
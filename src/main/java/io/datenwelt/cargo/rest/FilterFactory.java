@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides filter instances for each request.
+ * <p>
+ * A factory either wraps a supplier given by the application or binds the
+ * default constructor of a filter class once as a method handle. In pooled
+ * mode instances are returned to a free list of the thread which processed
+ * the request after being {@link Filter#reset() reset} and are handed out
+ * again for the next request of that thread.
+ *
+ * @author job
+ */
+final class FilterFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FilterFactory.class);
+
+    /**
+     * Maximum number of idle instances kept per thread.
+     */
+    static final int POOL_SIZE = 4;
+
+    private final Class<? extends Filter> type;
+    private final Supplier<? extends Filter> supplier;
+    private final ThreadLocal<ArrayDeque<Filter>> pool;
+
+    private FilterFactory(Class<? extends Filter> type, Supplier<? extends Filter> supplier, boolean pooled) {
+        this.type = type;
+        this.supplier = supplier;
+        this.pool = pooled ? ThreadLocal.withInitial(ArrayDeque::new) : null;
+    }
+
+    /**
+     * Creates a factory for a supplier.
+     *
+     * @param supplier the supplier creating filter instances.
+     * @return the factory.
+     */
+    static FilterFactory of(Supplier<? extends Filter> supplier) {
+        if (supplier == null) {
+            throw new IllegalArgumentException("Filter supplier must not be null.");
+        }
+        return new FilterFactory(null, supplier, false);
+    }
+
+    /**
+     * Creates a factory for the default constructor of a filter class.
+     *
+     * @param filterClass the filter class.
+     * @param pooled {@code true} to recycle filter instances.
+     * @return the factory.
+     * @throws IllegalArgumentException if the class cannot be instantiated
+     * through a public default constructor.
+     */
+    static FilterFactory of(Class<? extends Filter> filterClass, boolean pooled) {
+        if (filterClass == null) {
+            throw new IllegalArgumentException("Filter class must not be null.");
+        }
+        if (filterClass.isInterface() || Modifier.isAbstract(filterClass.getModifiers())) {
+            throw new IllegalArgumentException("Filter " + filterClass.getName() + " cannot be instantiated.");
+        }
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup()
+                    .findConstructor(filterClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Filter.class));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new IllegalArgumentException("Filter " + filterClass.getName() + " has no public default constructor.", ex);
+        }
+        Supplier<Filter> supplier = () -> {
+            try {
+                return (Filter) constructor.invokeExact();
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Unable to create instance of filter " + filterClass.getName() + ": " + ex.getMessage(), ex);
+            }
+        };
+        return new FilterFactory(filterClass, supplier, pooled);
+    }
+
+    /**
+     * Returns the class of the filters created by this factory.
+     *
+     * @return the filter class or {@code null} if the factory wraps a
+     * supplier.
+     */
+    Class<? extends Filter> getType() {
+        return type;
+    }
+
+    Supplier<? extends Filter> getSupplier() {
+        return supplier;
+    }
+
+    boolean isPooled() {
+        return pool != null;
+    }
+
+    /**
+     * Provides a filter instance for a request. Pooled factories hand out an
+     * idle instance of the current thread if there is one.
+     *
+     * @return the filter instance.
+     */
+    Filter create() {
+        if (pool != null) {
+            Filter filter = pool.get().pollFirst();
+            if (filter != null) {
+                return filter;
+            }
+        }
+        Filter filter = supplier.get();
+        if (filter == null) {
+            throw new IllegalStateException("Filter supplier returned null.");
+        }
+        return filter;
+    }
+
+    /**
+     * Hands back a filter instance after the request has been processed.
+     * Pooled instances are reset and kept for the next request of the current
+     * thread. Instances failing to reset are dropped.
+     *
+     * @param filter the filter instance.
+     */
+    void release(Filter filter) {
+        if (pool == null || filter == null) {
+            return;
+        }
+        ArrayDeque<Filter> idle = pool.get();
+        if (idle.size() >= POOL_SIZE) {
+            return;
+        }
+        try {
+            filter.reset();
+        } catch (RuntimeException ex) {
+            LOG.error("Unable to reset filter {}, dropping the instance: {}", filter.getClass().getName(), ex.getMessage(), ex);
+            return;
+        }
+        idle.addFirst(filter);
+    }
+
+    @Override
+    public String toString() {
+        return type != null ? type.getName() : supplier.toString();
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.servlet.ServletRequest;
+
+/**
+ * Compiled form of the filters registered with a router.
+ * <p>
+ * For each of the five filter phases the pipeline keeps the positions of the
+ * filters which actually override the phase's callback of {@link Filter}. The
+ * router only calls those and skips phases without any of them entirely.
+ * Filter classes are only instantiated for a request if they take part in at
+ * least one phase.
+ * <p>
+ * The pipeline is an immutable snapshot of the registered filters. The router
+ * compiles new ones whenever the list of filters changes, see
+ * {@link FilterChains}.
+ *
+ * @author job
+ */
+final class FilterPipeline {
+
+    static final int PARSE = 0;
+    static final int BEFORE = 1;
+    static final int ROUTE = 2;
+    static final int AFTER = 3;
+    static final int FINISH = 4;
+
+    private final Object[] filters;
+    private final boolean[] active;
+    private final int[][] stages;
+
+    private FilterPipeline(Object[] filters, boolean[] active, int[][] stages) {
+        this.filters = filters;
+        this.active = active;
+        this.stages = stages;
+    }
+
+    /**
+     * Compiles the registered filters. Each element is either a filter
+     * instance or a filter class.
+     *
+     * @param registered the registered filters in the order of their
+     * registration.
+     * @return the compiled pipeline.
+     */
+    static FilterPipeline compile(List<Object> registered) {
+        Object[] filters = registered.toArray();
+        boolean[] active = new boolean[filters.length];
+        List<List<Integer>> stages = new ArrayList<>();
+        for (int stage = PARSE; stage <= FINISH; stage++) {
+            stages.add(new ArrayList<>());
+        }
+        for (int idx = 0; idx < filters.length; idx++) {
+            Class<?> type;
+            if (filters[idx] instanceof FilterFactory) {
+                type = ((FilterFactory) filters[idx]).getType();
+            } else if (filters[idx] instanceof Class) {
+                type = (Class<?>) filters[idx];
+            } else {
+                type = filters[idx] != null ? filters[idx].getClass() : null;
+            }
+            boolean[] overridden;
+            if (type != null && Filter.class.isAssignableFrom(type)) {
+                overridden = new boolean[]{
+                    overrides(type, "parse", ServletRequest.class),
+                    overrides(type, "before", Request.class),
+                    overrides(type, "route", Map.class, Request.class),
+                    overrides(type, "after", Request.class, Response.class),
+                    overrides(type, "finish", Optional.class, Response.class)
+                };
+            } else {
+                // Leave suppliers and objects of unknown type to the router's
+                // createFilterInstance() which may be overridden to handle them.
+                overridden = new boolean[]{true, true, true, true, true};
+            }
+            for (int stage = PARSE; stage <= FINISH; stage++) {
+                if (overridden[stage]) {
+                    stages.get(stage).add(idx);
+                    active[idx] = true;
+                }
+            }
+        }
+        int[][] stageArrays = new int[stages.size()][];
+        for (int stage = PARSE; stage <= FINISH; stage++) {
+            List<Integer> positions = stages.get(stage);
+            stageArrays[stage] = new int[positions.size()];
+            for (int idx = 0; idx < positions.size(); idx++) {
+                stageArrays[stage][idx] = positions.get(idx);
+            }
+        }
+        return new FilterPipeline(filters, active, stageArrays);
+    }
+
+    private static boolean overrides(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes).getDeclaringClass() != Filter.class;
+        } catch (NoSuchMethodException | SecurityException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Returns the positions of the filters taking part in a phase.
+     *
+     * @param stage the phase.
+     * @return the positions in the order of registration, may be empty.
+     */
+    int[] stage(int stage) {
+        return stages[stage];
+    }
+
+    /**
+     * Provides the filter instances for a request. Filters which do not take
+     * part in any phase are left out.
+     *
+     * @param router the router which creates instances of filter classes.
+     * @return the filter instances by position, {@code null} where a filter
+     * is left out or could not be created.
+     */
+    Filter[] instances(Router router) {
+        Filter[] instances = new Filter[filters.length];
+        for (int idx = 0; idx < filters.length; idx++) {
+            if (active[idx]) {
+                instances[idx] = router.createFilterInstance(filters[idx]).orElse(null);
+            }
+        }
+        return instances;
+    }
+
+    /**
+     * Hands the filter instances of a request back to their factories.
+     *
+     * @param instances the filter instances as provided by
+     * {@link #instances(io.datenwelt.cargo.rest.Router)}.
+     */
+    void release(Filter[] instances) {
+        for (int idx = 0; idx < filters.length; idx++) {
+            if (instances[idx] != null && filters[idx] instanceof FilterFactory) {
+                ((FilterFactory) filters[idx]).release(instances[idx]);
+            }
+        }
+    }
+
+}
@@ -22,12 +22,13 @@ import io.datenwelt.cargo.rest.content.ContentType;
 import io.datenwelt.cargo.rest.headers.ContentTypeHeader;
 import io.datenwelt.cargo.rest.headers.Header;
 import io.datenwelt.cargo.rest.path.PathParameter;
-import io.datenwelt.cargo.rest.path.Segment;
+import io.datenwelt.cargo.rest.path.Path;
 import io.datenwelt.cargo.rest.query.Query;
 import io.datenwelt.cargo.rest.response.APIException;
 import io.datenwelt.cargo.rest.response.BadRequest;
 import io.datenwelt.cargo.rest.response.InternalServerError;
 import io.datenwelt.cargo.rest.response.LengthRequired;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
 import io.datenwelt.cargo.rest.response.UnprocessableEntity;
 import io.datenwelt.cargo.rest.response.UnsupportedMediaType;
 import io.datenwelt.cargo.rest.utils.Strings;
@@ -181,10 +182,18 @@ public class Request {
 
     private static final Logger LOG = LoggerFactory.getLogger(Request.class);
 
+    /**
+     * Name of the servlet request attribute through which a router passes the
+     * already parsed path to a mounted sub-router, see
+     * {@link Router#mount(java.lang.String, io.datenwelt.cargo.rest.Router)}.
+     */
+    public static final String PATH_ATTRIBUTE = Request.class.getName() + ".path";
+
     private final String requestId = Strings.uniqid();
 
     private String method;
     private String path;
+    private Path canonicalPath;
 
     private final List<PathParameter> parameters = new ArrayList<>();
     private final List<Query> queries = new ArrayList<>();
@@ -200,13 +209,13 @@ public class Request {
     private String remoteHost;
     private String remoteAddress;
     private int remotePort;
+    private Deadline deadline;
 
     public Request(HttpServletRequest servletRequest, List<ContentType> supportedContentTypes, List<ContentEncoding> supportedContentEncodings) throws APIException {
         this.servletRequest = servletRequest;
         this.supportedContentTypes = supportedContentTypes;
         this.supportedContentEncodings = supportedContentEncodings;
         this.method = servletRequest.getMethod();
-        this.path = Segment.normalize(servletRequest.getPathInfo());
 
         StringBuffer url = servletRequest.getRequestURL();
         String query = servletRequest.getQueryString();
@@ -228,9 +237,12 @@ public class Request {
                     .append("/")
                     .append(basePath)
                     .toString());
-            path = Segment.normalize(requestURI.getPath());
-            if (path.startsWith(basePath)) {
-                path = path.substring(basePath.length());
+            Object mountedPath = servletRequest.getAttribute(PATH_ATTRIBUTE);
+            if (mountedPath instanceof Path) {
+                canonicalPath = (Path) mountedPath;
+            } else {
+                String uriPath = requestURI.getPath();
+                canonicalPath = Path.parse(uriPath, uriPath != null && uriPath.startsWith(basePath) ? basePath.length() : 0);
             }
         } catch (URISyntaxException ex) {
             throw new APIException(new InternalServerError(), "Unable to parse request URI from string '" + requestURI + "'. Using defaut value for base URI. Error: " + ex.getMessage(), ex);
@@ -280,15 +292,33 @@ public class Request {
     }
 
     public String getPath() {
+        if (path == null && canonicalPath != null) {
+            path = canonicalPath.toString();
+        }
         return path;
     }
 
+    /**
+     * Returns the path in canonical form together with the boundaries of its
+     * segments. The path is parsed once when the request is created and
+     * passed on to the router as is.
+     *
+     * @return the canonical path.
+     */
+    public Path getCanonicalPath() {
+        if (canonicalPath == null) {
+            canonicalPath = Path.parse(path);
+        }
+        return canonicalPath;
+    }
+
     public void setMethod(String method) {
         this.method = method;
     }
 
     public void setPath(String path) {
         this.path = path;
+        this.canonicalPath = null;
     }
 
     public List<PathParameter> getParameters() {
@@ -335,6 +365,21 @@ public class Request {
         this.remotePort = remotePort;
     }
 
+    /**
+     * Returns the deadline until which the request has to be answered. The
+     * router sets it from its default timeout and the
+     * {@code X-Request-Timeout} header of the request.
+     *
+     * @return the optional deadline.
+     */
+    public Optional<Deadline> getDeadline() {
+        return Optional.ofNullable(deadline);
+    }
+
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
     public Optional<ContentTypeHeader> contentType() {
         Optional<Header> header = header("Content-Type");
         if (!header.isPresent()) {
@@ -440,7 +485,7 @@ public class Request {
                 return param;
             }
         }
-        throw new APIException(new BadRequest("Missing value for path parameter '" + name + "'."));
+        throw new StacklessAPIException(new BadRequest("Missing value for path parameter '" + name + "'."));
     }
 
     public List<PathParameter> params(String name) throws APIException {
@@ -449,7 +494,7 @@ public class Request {
             params.add(param);
         });
         if (params.isEmpty()) {
-            throw new APIException(new BadRequest("Missing value for path parameter '" + name + "'."));
+            throw new StacklessAPIException(new BadRequest("Missing value for path parameter '" + name + "'."));
         }
         return params;
     }
@@ -459,15 +504,15 @@ public class Request {
         if (!contentTypeHeader.isPresent()) {
             return Optional.empty();
         }
-        String contentLengthString = header("Content-Length").orElseThrow(() -> (new APIException(new LengthRequired()))).asString();
+        String contentLengthString = header("Content-Length").orElseThrow(() -> (new StacklessAPIException(new LengthRequired()))).asString();
         int contentLength;
         try {
             contentLength = Integer.parseInt(contentLengthString);
         } catch (NumberFormatException ex) {
-            throw new APIException(new BadRequest("Unparseable number in Content-Length header."));
+            throw new StacklessAPIException(new BadRequest("Unparseable number in Content-Length header."));
         }
         if (contentLength < 0) {
-            throw new APIException(new BadRequest("Negative number value in Content-Length header."));
+            throw new StacklessAPIException(new BadRequest("Negative number value in Content-Length header."));
         }
         if (contentLength == 0) {
             return Optional.empty();
@@ -485,7 +530,7 @@ public class Request {
             }
         }
         if (consumer == null) {
-            throw new APIException(new UnsupportedMediaType());
+            throw new StacklessAPIException(new UnsupportedMediaType());
         }
         InputStream encodingInputStream = null;
         for ( ContentEncoding encoding : supportedContentEncodings) {
@@ -499,7 +544,7 @@ public class Request {
             }
         }
         if ( encodingInputStream == null ) {
-            throw new APIException(new UnprocessableEntity());
+            throw new StacklessAPIException(new UnprocessableEntity());
         }
         try {
             return Optional.ofNullable(consumer.consume(encodingInputStream, this, targetClass));
@@ -511,7 +556,7 @@ public class Request {
 
     @Override
     public String toString() {
-        return method + " " + path + (queries.isEmpty() ? "" : "?" + queryString());
+        return method + " " + getPath() + (queries.isEmpty() ? "" : "?" + queryString());
     }
 
 }
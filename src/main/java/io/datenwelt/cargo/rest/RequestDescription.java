@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Describes the request being processed in log messages.
+ * <p>
+ * The router passes instances as arguments to the logger instead of strings.
+ * The description is rendered on the first call of {@link #toString()} and
+ * kept afterwards, so requests which are not logged at all do not pay for
+ * it. Until the {@link Request} has been created the servlet request is
+ * described by its method, URL and query string.
+ * <p>
+ * Instances belong to a single request and are not thread-safe.
+ *
+ * @author job
+ */
+final class RequestDescription {
+
+    private final HttpServletRequest servletRequest;
+    private Request request;
+    private String description;
+
+    RequestDescription(HttpServletRequest servletRequest) {
+        this.servletRequest = servletRequest;
+    }
+
+    /**
+     * Describes the request by the parsed request from now on.
+     *
+     * @param request the request created from the servlet request.
+     */
+    void update(Request request) {
+        this.request = request;
+        this.description = null;
+    }
+
+    @Override
+    public String toString() {
+        if (description == null) {
+            if (request != null) {
+                description = request.toString();
+            } else {
+                String queryString = servletRequest.getQueryString();
+                StringBuilder builder = new StringBuilder("\"")
+                        .append(servletRequest.getMethod())
+                        .append(" ")
+                        .append(servletRequest.getRequestURL());
+                if (queryString != null && !queryString.isEmpty()) {
+                    builder.append("?").append(queryString);
+                }
+                description = builder.append("\"").toString();
+            }
+        }
+        return description;
+    }
+
+}
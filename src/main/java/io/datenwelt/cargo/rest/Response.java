@@ -172,12 +172,24 @@ public class Response {
     }
 
     public void send(HttpServletResponse servletResponse, ContentProducer contentProducer, ContentEncoder contentEncoder) throws IOException {
+        send(servletResponse, contentProducer, contentEncoder, false);
+    }
+
+    /**
+     * Sends the response. Content producer and encoder set their headers for
+     * the body even if only the headers are sent, so the response to a
+     * {@code HEAD} request carries the same header fields as the response to
+     * a {@code GET} request.
+     *
+     * @param servletResponse the response of the servlet container.
+     * @param contentProducer the negotiated producer of the body.
+     * @param contentEncoder the negotiated encoder of the body.
+     * @param headersOnly whether the body is left out, as for a {@code HEAD}
+     * request.
+     * @throws IOException if sending the response fails.
+     */
+    public void send(HttpServletResponse servletResponse, ContentProducer contentProducer, ContentEncoder contentEncoder, boolean headersOnly) throws IOException {
         servletResponse.setStatus(status);
-        headers.values().stream().forEach((header) -> {
-            String name = header.getName();
-            String value = header.encoded();
-            servletResponse.addHeader(name, value);
-        });
         if (body.isPresent()) {
             if ( contentProducer == null ) {
                 contentProducer = new EmptyProducer();
@@ -185,10 +197,19 @@ public class Response {
             if ( contentEncoder == null ) {
                 contentEncoder = new IdentityEncoder();
             }
-            OutputStream encodedStream = contentEncoder.encode(servletResponse.getOutputStream());
-            ByteCountingOutputStream counter = new ByteCountingOutputStream(encodedStream);
+            // Let producer and encoder set their headers before the headers
+            // are written.
             contentEncoder.prepare(this);
             contentProducer.prepare(this);
+        }
+        headers.values().stream().forEach((header) -> {
+            String name = header.getName();
+            String value = header.encoded();
+            servletResponse.addHeader(name, value);
+        });
+        if (body.isPresent() && !headersOnly) {
+            OutputStream encodedStream = contentEncoder.encode(servletResponse.getOutputStream());
+            ByteCountingOutputStream counter = new ByteCountingOutputStream(encodedStream);
             contentProducer.produce(counter);
             servletResponse.flushBuffer();
             contentLength = counter.getCount();
@@ -15,6 +15,7 @@
  */
 package io.datenwelt.cargo.rest;
 
+import io.datenwelt.cargo.rest.annotations.ResourceBinder;
 import io.datenwelt.cargo.rest.content.ContentEncoder;
 import io.datenwelt.cargo.rest.content.ContentEncoding;
 import io.datenwelt.cargo.rest.content.ContentProducer;
@@ -28,31 +29,49 @@ import io.datenwelt.cargo.rest.content.json.ApplicationJson;
 import io.datenwelt.cargo.rest.content.xml.ApplicationXml;
 import io.datenwelt.cargo.rest.content.yaml.ApplicationYaml;
 import io.datenwelt.cargo.rest.headers.AcceptHeader;
+import io.datenwelt.cargo.rest.limits.ConcurrencyLimiter;
+import io.datenwelt.cargo.rest.path.Path;
+import io.datenwelt.cargo.rest.path.PrefixTable;
 import io.datenwelt.cargo.rest.path.PathParameter;
 import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
-import io.datenwelt.cargo.rest.path.Segment;
 import io.datenwelt.cargo.rest.path.SegmentMatcher;
 import io.datenwelt.cargo.rest.path.PathRouter;
+import io.datenwelt.cargo.rest.path.Route;
+import io.datenwelt.cargo.rest.path.RouteCache;
+import io.datenwelt.cargo.rest.path.RouteTable;
 import io.datenwelt.cargo.rest.path.Segment.Scanner;
-import io.datenwelt.cargo.rest.path.errors.URITemplateMismatchException;
+import io.datenwelt.cargo.rest.path.URITemplate;
 import io.datenwelt.cargo.rest.response.APIException;
 import io.datenwelt.cargo.rest.response.BadRequest;
+import io.datenwelt.cargo.rest.response.GatewayTimeout;
 import io.datenwelt.cargo.rest.response.InternalServerError;
 import io.datenwelt.cargo.rest.response.MethodNotAllowed;
 import io.datenwelt.cargo.rest.response.NotAcceptable;
 import io.datenwelt.cargo.rest.response.NoContent;
 import io.datenwelt.cargo.rest.response.NotFound;
+import io.datenwelt.cargo.rest.response.PrerenderedResponse;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -109,12 +128,35 @@ public class Router extends HttpServlet {
 
     private static final Logger LOG = LoggerFactory.getLogger(Router.class);
 
+    private static final PrerenderedResponse NOT_FOUND = new PrerenderedResponse(new NotFound());
+
+    /**
+     * Request header carrying the number of milliseconds the client is
+     * willing to wait for the response.
+     */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
     protected final List<PathRouter> routers = new ArrayList<>();
     protected final Map<String, Endpoint> endpoints = new HashMap<>();
     protected final List<Object> filters = new ArrayList<>();
+    private volatile FilterChains filterChains;
     protected final List<ContentType> contentTypes = new ArrayList<>();
     protected final List<ContentEncoding> contentEncodings = new ArrayList<>();
 
+    private final Map<String, URITemplate> templates = new ConcurrentHashMap<>();
+    private final Map<String, Router> hosts = new ConcurrentHashMap<>();
+    private final Map<String, Router> mounts = new LinkedHashMap<>();
+    private volatile PrefixTable<Router> mountTable;
+    private final Map<String, ConcurrencyLimiter> limits = new LinkedHashMap<>();
+    private volatile PrefixTable<ConcurrencyLimiter> limitTable;
+    private final List<BatchEndpoint> batches = new CopyOnWriteArrayList<>();
+
+    private final Object routeLock = new Object();
+    private volatile RouteTable routeTable;
+    private volatile RouteCache routeCache;
+    private volatile boolean fastReject;
+    private volatile long timeoutNanos;
+
     /**
      * Default constructor for the servlet container.
      */
@@ -136,9 +178,73 @@ public class Router extends HttpServlet {
 
     }
 
+    /**
+     * Enables a bounded cache for resolved request paths. Frequently requested
+     * paths are then resolved without matching them against the URI path
+     * templates again. The cache keeps the least recently
+     * used paths up to the given capacity and is cleared whenever an endpoint
+     * is registered. Paths which do not resolve to a resource are not cached.
+     * <p>
+     * A capacity of {@code 0} disables the cache.
+     *
+     * @param capacity the maximum number of cached paths.
+     */
+    public void routeCache(int capacity) {
+        routeCache = capacity > 0 ? new RouteCache(capacity) : null;
+    }
+
+    /**
+     * Returns the route cache of this router if it has been enabled. The cache
+     * provides hit and miss counters to size it.
+     *
+     * @return the optional route cache.
+     */
+    public Optional<RouteCache> getRouteCache() {
+        return Optional.ofNullable(routeCache);
+    }
+
+    /**
+     * Enables the rejection of unroutable paths before the request is parsed.
+     * Paths whose first segment cannot lead to any registered resource are
+     * answered with a shared, pre-rendered 404 response. No filter is created
+     * or applied for them, not even the "finish" stage.
+     * <p>
+     * Enable this only if no filter rewrites the request path or provides
+     * endpoints for paths without registered resources. The check is skipped
+     * for paths containing percent encoded characters, they are routed as
+     * usual.
+     *
+     * @param enabled whether unroutable paths are rejected early.
+     */
+    public void fastReject(boolean enabled) {
+        fastReject = enabled;
+    }
+
+    /**
+     * Sets the default time budget of requests. Each request gets a deadline
+     * from this timeout or from its {@code X-Request-Timeout} header, whichever
+     * expires first. Without a default the header alone sets the deadline.
+     * <p>
+     * Once the deadline has expired the router answers with an empty
+     * {@code 504 - Gateway Timeout}. It checks the deadline before it parses
+     * the request, before it calls the endpoint, before the response is
+     * serialized and before it is sent. Endpoints find the deadline at
+     * {@link Request#getDeadline()}.
+     *
+     * @param timeout the default timeout, {@code 0} for none.
+     * @param unit the unit of the timeout.
+     */
+    public void timeout(long timeout, TimeUnit unit) {
+        timeoutNanos = unit.toNanos(timeout);
+    }
+
     /**
      * Registers an endpoint for a specific resource accessible through a
      * specific HTTP method.
+     * <p>
+     * Endpoints can be registered while the router is serving requests.
+     * Requests in progress keep using the routes which were in place when they
+     * were routed, following requests see the new endpoint.
      *
      * @param method the HTTP method through which the endpoint is accessed. The
      * argument is case insensitive.
@@ -148,32 +254,256 @@ public class Router extends HttpServlet {
      * @throws InvalidURITemplateException if the URI path template is invalid.
      */
     public void register(String method, String template, Endpoint endpoint) throws InvalidURITemplateException {
+        synchronized (routeLock) {
+            Scanner scanner = new Scanner(template);
+            while (scanner.hasNext()) {
+                SegmentMatcher nextSegment = SegmentMatcher.parse(scanner.next());
+                if (nextSegment.equals(SegmentMatcher.EMPTY_SEGMENT)
+                        || nextSegment.equals(SegmentMatcher.CURRENT_SEGMENT)
+                        || nextSegment.equals(SegmentMatcher.PREVIOUS_SEGMENT)) {
+                    continue;
+                }
+                if (nextSegment.isWildcard() && scanner.hasNext()) {
+                    throw new InvalidURITemplateException("Wildcard '" + nextSegment + "' must be the last segment of URI template: " + template);
+                }
+                boolean isNewSegment = true;
+                PathRouter router = new PathRouter(nextSegment);
+                for (PathRouter r : routers) {
+                    if (r.getTemplate().equals(nextSegment)) {
+                        router = r;
+                        isNewSegment = false;
+                        break;
+                    }
+                }
+                scanner = router.register(scanner, method, endpoint);
+                if (!scanner.hasNext()) {
+                    if (isNewSegment) {
+                        routers.add(router);
+                    }
+                    publishRouteTable();
+                    return;
+                }
+            }
+            endpoints.put(method, endpoint);
+            publishRouteTable();
+        }
+    }
+
+    /**
+     * Removes the endpoint for a specific resource and HTTP method. Resources
+     * which are left without endpoints are removed as well.
+     * <p>
+     * Like {@code register()} this method can be called while the router is
+     * serving requests.
+     *
+     * @param method the HTTP method of the endpoint.
+     * @param template the URI path template the endpoint has been registered
+     * with.
+     * @return the removed endpoint or an empty optional if no endpoint has been
+     * registered for the method and template.
+     * @throws InvalidURITemplateException if the URI path template is invalid.
+     */
+    public Optional<Endpoint> unregister(String method, String template) throws InvalidURITemplateException {
+        List<SegmentMatcher> segments = new ArrayList<>();
         Scanner scanner = new Scanner(template);
         while (scanner.hasNext()) {
             SegmentMatcher nextSegment = SegmentMatcher.parse(scanner.next());
-            if (nextSegment.equals(SegmentMatcher.EMPTY_SEGMENT)
-                    || nextSegment.equals(SegmentMatcher.CURRENT_SEGMENT)
-                    || nextSegment.equals(SegmentMatcher.PREVIOUS_SEGMENT)) {
+            if (nextSegment.equals(SegmentMatcher.CURRENT_SEGMENT)
+                    || (segments.isEmpty() && nextSegment.equals(SegmentMatcher.EMPTY_SEGMENT))) {
                 continue;
             }
-            boolean isNewSegment = true;
-            PathRouter router = new PathRouter(nextSegment);
-            for (PathRouter r : routers) {
-                if (r.getTemplate().equals(nextSegment)) {
-                    router = r;
-                    isNewSegment = false;
-                    break;
+            if (nextSegment.equals(SegmentMatcher.PREVIOUS_SEGMENT)) {
+                if (!segments.isEmpty()) {
+                    segments.remove(segments.size() - 1);
                 }
+                continue;
             }
-            scanner = router.register(scanner, method, endpoint);
-            if (!scanner.hasNext()) {
-                if (isNewSegment) {
-                    routers.add(router);
+            segments.add(nextSegment);
+        }
+        synchronized (routeLock) {
+            Endpoint removed;
+            if (segments.isEmpty()) {
+                removed = endpoints.remove(method);
+            } else {
+                removed = null;
+                Iterator<PathRouter> iterator = routers.iterator();
+                while (iterator.hasNext()) {
+                    PathRouter router = iterator.next();
+                    if (router.getTemplate().equals(segments.get(0))) {
+                        removed = router.unregister(segments.subList(1, segments.size()), method);
+                        if (router.isEmpty()) {
+                            iterator.remove();
+                        }
+                        break;
+                    }
                 }
-                return;
             }
+            if (removed != null) {
+                publishRouteTable();
+            }
+            return Optional.ofNullable(removed);
+        }
+    }
+
+    /**
+     * Mounts a sub-router below a path prefix. Requests for the prefix or for
+     * a path below it are handed over to the sub-router, which sees the path
+     * below the prefix as its own path. The prefix becomes part of the servlet
+     * path and of the base URI of these requests.
+     * <p>
+     * Mounted requests are dispatched before any filter of this router is
+     * applied. They pass through the filters, content types and encodings of
+     * the sub-router only. Prefixes are matched through a hash table, the
+     * longest mounted prefix wins. Endpoints registered with this router below
+     * a mounted prefix are not reachable.
+     *
+     * @param prefix the literal path prefix, like {@code "/billing"}.
+     * @param router the sub-router.
+     * @throws InvalidURITemplateException if the prefix is the root path or
+     * contains path variables.
+     */
+    public void mount(String prefix, Router router) throws InvalidURITemplateException {
+        for (SegmentMatcher segment : SegmentMatcher.parseSegments(prefix)) {
+            if (!segment.isLiteral()) {
+                throw new InvalidURITemplateException("Mount prefix must not contain path variables: " + prefix);
+            }
+        }
+        Path path = Path.parse(prefix);
+        if (path.isRoot()) {
+            throw new InvalidURITemplateException("Unable to mount a router at the root path.");
+        }
+        synchronized (routeLock) {
+            mounts.put(path.toString(), router);
+            mountTable = new PrefixTable<>(mounts);
+        }
+    }
+
+    /**
+     * Removes a sub-router mounted below a path prefix.
+     *
+     * @param prefix the path prefix.
+     * @return the removed sub-router or an empty optional if there was none.
+     */
+    public Optional<Router> unmount(String prefix) {
+        synchronized (routeLock) {
+            Router removed = mounts.remove(Path.parse(prefix).toString());
+            mountTable = mounts.isEmpty() ? null : new PrefixTable<>(mounts);
+            return Optional.ofNullable(removed);
+        }
+    }
+
+    /**
+     * Registers a router for a virtual host. Requests whose {@code Host}
+     * header, or the server name if the header is missing, names the host
+     * are handed over to this router as a whole, before
+     * any filter or mount point of this router is applied.
+     *
+     * @param host the host name without port. It is compared case
+     * insensitively.
+     * @param router the router for the virtual host.
+     */
+    public void host(String host, Router router) {
+        hosts.put(host.toLowerCase(Locale.ROOT), router);
+    }
+
+    /**
+     * Removes the router for a virtual host.
+     *
+     * @param host the host name.
+     * @return the removed router or an empty optional if there was none.
+     */
+    public Optional<Router> removeHost(String host) {
+        return Optional.ofNullable(hosts.remove(host.toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Registers an URI path template by name for building links to a
+     * resource. The template is compiled once, see {@link URITemplate}.
+     * Typically the template is the same as the one used to register the
+     * endpoints of the resource, so links route back to these endpoints.
+     *
+     * @param name the name of the template.
+     * @param template the URI path template.
+     * @return the compiled template.
+     * @throws InvalidURITemplateException if the URI path template is invalid.
+     */
+    public URITemplate name(String name, String template) throws InvalidURITemplateException {
+        URITemplate compiled = URITemplate.parse(template);
+        templates.put(name, compiled);
+        return compiled;
+    }
+
+    /**
+     * Returns a named URI path template.
+     *
+     * @param name the name of the template.
+     * @return the template or an empty optional if no template has been
+     * registered by this name.
+     */
+    public Optional<URITemplate> template(String name) {
+        return Optional.ofNullable(templates.get(name));
+    }
+
+    /**
+     * Builds the path to a resource from a named URI path template. The path
+     * is relative to this router, so it has to be appended to the base URI of
+     * a request to get an absolute URI.
+     *
+     * @param name the name of the template.
+     * @param values the values of the path variables in the order of their
+     * appearance in the template.
+     * @return the normalized path.
+     * @throws IllegalArgumentException if no template has been registered by
+     * this name or if the values do not fit the template.
+     */
+    public String link(String name, Object... values) {
+        URITemplate template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("No URI template registered by name '" + name + "'.");
+        }
+        return template.expand(values);
+    }
+
+    /**
+     * Limits the number of requests below a path prefix which are processed
+     * at the same time. Requests are assigned to the limiter of the longest
+     * matching prefix, so each prefix forms a separate route group. A limiter
+     * for the root path {@code "/"} applies to all requests outside of other
+     * groups.
+     * <p>
+     * Requests over the limit are answered with a pre-rendered {@code 503}
+     * right after mounted routers have been dispatched, before the request is
+     * parsed or any filter is applied.
+     *
+     * @param prefix the literal path prefix, like {@code "/reports"}.
+     * @param limiter the limiter for the route group.
+     * @throws InvalidURITemplateException if the prefix contains path
+     * variables.
+     */
+    public void limit(String prefix, ConcurrencyLimiter limiter) throws InvalidURITemplateException {
+        for (SegmentMatcher segment : SegmentMatcher.parseSegments(prefix)) {
+            if (!segment.isLiteral()) {
+                throw new InvalidURITemplateException("Limit prefix must not contain path variables: " + prefix);
+            }
+        }
+        synchronized (routeLock) {
+            limits.put(Path.parse(prefix).toString(), limiter);
+            limitTable = new PrefixTable<>(limits);
+        }
+    }
+
+    /**
+     * Removes the concurrency limit of a route group.
+     *
+     * @param prefix the path prefix.
+     * @return the removed limiter or an empty optional if there was none.
+     */
+    public Optional<ConcurrencyLimiter> removeLimit(String prefix) {
+        synchronized (routeLock) {
+            ConcurrencyLimiter removed = limits.remove(Path.parse(prefix).toString());
+            limitTable = limits.isEmpty() ? null : new PrefixTable<>(limits);
+            return Optional.ofNullable(removed);
         }
-        endpoints.put(method, endpoint);
     }
 
     /**
@@ -187,20 +517,139 @@ public class Router extends HttpServlet {
      */
     public void filter(Filter filter) {
         filters.add(filter);
+        filterChains = null;
     }
 
     /**
      * Registers a filter class. This method registers a class implementing the
-     * {@link Filter} interface. The class must provide a default constructor
-     * which is used to create a new filter instance for each incoming request.
+     * {@link Filter} interface. The class must provide a public default
+     * constructor which is used to create a new filter instance for each
+     * incoming request.
      * <p>
      * Filters are applied in the order of their registration.
      * <p>
      *
      * @param filterClass the filter instance to register.
+     * @throws IllegalArgumentException if the class cannot be instantiated.
      */
     public void filter(Class<? extends Filter> filterClass) {
-        filters.add(filterClass);
+        filter(filterClass, false);
+    }
+
+    /**
+     * Registers a filter class and optionally pools its instances. The class
+     * must provide a public default constructor.
+     * <p>
+     * Without pooling a new filter instance is created for each incoming
+     * request. With pooling each thread keeps a few idle instances which are
+     * reused for its following requests. After a request has been processed
+     * the router calls {@link Filter#reset()} and the filter has to drop any
+     * state it has collected for the request.
+     * <p>
+     * Filters are applied in the order of their registration.
+     *
+     * @param filterClass the filter class to register.
+     * @param pooled {@code true} to reuse filter instances.
+     * @throws IllegalArgumentException if the class cannot be instantiated.
+     */
+    public void filter(Class<? extends Filter> filterClass, boolean pooled) {
+        filters.add(FilterFactory.of(filterClass, pooled));
+        filterChains = null;
+    }
+
+    /**
+     * Registers a filter factory. The supplier is called for each incoming
+     * request to provide a new filter instance.
+     * <p>
+     * The router cannot tell which phases the filters of a supplier take part
+     * in and calls them in all phases. Register the filter class instead if
+     * the filter has a default constructor.
+     * <p>
+     * Filters are applied in the order of their registration.
+     *
+     * @param factory the supplier of filter instances.
+     */
+    public void filter(Supplier<? extends Filter> factory) {
+        filters.add(FilterFactory.of(factory));
+        filterChains = null;
+    }
+
+    /**
+     * Registers a filter instance for the requests below a path prefix. The
+     * filter is applied to requests whose path equals the prefix or starts
+     * with it, other requests do not pass it at all. Scoped and unscoped
+     * filters are applied together in the order of their registration.
+     * <p>
+     * The scope is selected by the path of the incoming request before any
+     * filter is applied. Filters replacing the request in the "prepare" or
+     * "before" phase do not change the scope.
+     *
+     * @param prefix the literal path prefix, like {@code "/admin"}.
+     * @param filter the filter instance to register.
+     * @throws InvalidURITemplateException if the prefix contains path
+     * variables.
+     * @see #filter(io.datenwelt.cargo.rest.Filter)
+     */
+    public void filter(String prefix, Filter filter) throws InvalidURITemplateException {
+        filters.add(scoped(prefix, filter));
+        filterChains = null;
+    }
+
+    /**
+     * Registers a filter class for the requests below a path prefix.
+     *
+     * @param prefix the literal path prefix, like {@code "/admin"}.
+     * @param filterClass the filter class to register.
+     * @throws InvalidURITemplateException if the prefix contains path
+     * variables.
+     * @throws IllegalArgumentException if the class cannot be instantiated.
+     * @see #filter(java.lang.String, io.datenwelt.cargo.rest.Filter)
+     */
+    public void filter(String prefix, Class<? extends Filter> filterClass) throws InvalidURITemplateException {
+        filter(prefix, filterClass, false);
+    }
+
+    /**
+     * Registers a filter class for the requests below a path prefix and
+     * optionally pools its instances.
+     *
+     * @param prefix the literal path prefix, like {@code "/admin"}.
+     * @param filterClass the filter class to register.
+     * @param pooled {@code true} to reuse filter instances.
+     * @throws InvalidURITemplateException if the prefix contains path
+     * variables.
+     * @throws IllegalArgumentException if the class cannot be instantiated.
+     * @see #filter(java.lang.String, io.datenwelt.cargo.rest.Filter)
+     * @see #filter(java.lang.Class, boolean)
+     */
+    public void filter(String prefix, Class<? extends Filter> filterClass, boolean pooled) throws InvalidURITemplateException {
+        filters.add(scoped(prefix, FilterFactory.of(filterClass, pooled)));
+        filterChains = null;
+    }
+
+    /**
+     * Registers a filter factory for the requests below a path prefix.
+     *
+     * @param prefix the literal path prefix, like {@code "/admin"}.
+     * @param factory the supplier of filter instances.
+     * @throws InvalidURITemplateException if the prefix contains path
+     * variables.
+     * @see #filter(java.lang.String, io.datenwelt.cargo.rest.Filter)
+     * @see #filter(java.util.function.Supplier)
+     */
+    public void filter(String prefix, Supplier<? extends Filter> factory) throws InvalidURITemplateException {
+        filters.add(scoped(prefix, FilterFactory.of(factory)));
+        filterChains = null;
+    }
+
+    private static Object scoped(String prefix, Object filter) throws InvalidURITemplateException {
+        for (SegmentMatcher segment : SegmentMatcher.parseSegments(prefix)) {
+            if (!segment.isLiteral()) {
+                throw new InvalidURITemplateException("Filter prefix must not contain path variables: " + prefix);
+            }
+        }
+        Path path = Path.parse(prefix);
+        return path.isRoot() ? filter : new FilterChains.Scoped(path.toString(), filter);
     }
 
     /**
@@ -209,7 +658,7 @@ public class Router extends HttpServlet {
      * @param filter the filter instance to remove.
      */
     public void remove(Filter filter) {
-        filters.remove(filter);
+        remove((registered) -> Objects.equals(filter, registered));
     }
 
     /**
@@ -218,7 +667,53 @@ public class Router extends HttpServlet {
      * @param filterClass
      */
     public void remove(Class<? extends Filter> filterClass) {
-        filters.remove(filterClass);
+        remove((registered) -> registered == filterClass
+                || (registered instanceof FilterFactory && ((FilterFactory) registered).getType() == filterClass));
+    }
+
+    /**
+     * Removes the filter factory, if it has been registered before.
+     *
+     * @param factory the supplier of filter instances.
+     */
+    public void remove(Supplier<? extends Filter> factory) {
+        remove((registered) -> registered instanceof FilterFactory && ((FilterFactory) registered).getSupplier() == factory);
+    }
+
+    /**
+     * Removes the first registered filter matching a predicate regardless of
+     * its scope.
+     */
+    private void remove(Predicate<Object> predicate) {
+        Iterator<Object> iterator = filters.iterator();
+        while (iterator.hasNext()) {
+            Object filter = iterator.next();
+            if (predicate.test(filter instanceof FilterChains.Scoped ? ((FilterChains.Scoped) filter).filter : filter)) {
+                iterator.remove();
+                break;
+            }
+        }
+        filterChains = null;
+    }
+
+    /**
+     * Registers an asynchronous endpoint for a specific resource accessible
+     * through a specific HTTP method. The response is processed when the
+     * stage returned by the endpoint completes.
+     *
+     * @param method the HTTP method through which the endpoint is accessed. The
+     * argument is case insensitive.
+     * @param template the URI path template of the resource.
+     * @param endpoint the endpoint which handles incoming requests for the
+     * resource.
+     * @throws InvalidURITemplateException if the URI path template is invalid.
+     * @see AsyncEndpoint
+     */
+    public void async(String method, String template, AsyncEndpoint endpoint) throws InvalidURITemplateException {
+        if (endpoint == null) {
+            throw new IllegalArgumentException("Endpoint must not be null.");
+        }
+        register(method, template, endpoint.toEndpoint());
     }
 
     /**
@@ -245,6 +740,47 @@ public class Router extends HttpServlet {
         register("POST", path, endpoint);
     }
 
+    /**
+     * Registers a batch endpoint which processes a list of requests sent in
+     * a single POST request, like {@link BatchEndpoint#DEFAULT_PATH}. The
+     * entries are processed on a bounded thread pool which is stopped when
+     * the router is {@link #destroy() destroyed}.
+     *
+     * @param path the URI path template of the batch endpoint
+     * @param threads the number of batch entries processed at the same time
+     * @return the registered endpoint
+     * @throws InvalidURITemplateException if the URI path template is invalid.
+     * @see BatchEndpoint
+     */
+    public BatchEndpoint batch(String path, int threads) throws InvalidURITemplateException {
+        BatchEndpoint batch = new BatchEndpoint(this, threads);
+        try {
+            register("POST", path, batch);
+        } catch (InvalidURITemplateException | RuntimeException ex) {
+            batch.shutdown();
+            throw ex;
+        }
+        batches.add(batch);
+        return batch;
+    }
+
+    /**
+     * Registers a batch endpoint which processes its entries on the given
+     * executor. The executor is owned by the caller, who shuts it down.
+     *
+     * @param path the URI path template of the batch endpoint
+     * @param executor the executor processing the batch entries
+     * @param maxEntries the maximum number of entries of a batch
+     * @return the registered endpoint
+     * @throws InvalidURITemplateException if the URI path template is invalid.
+     * @see BatchEndpoint
+     */
+    public BatchEndpoint batch(String path, ExecutorService executor, int maxEntries) throws InvalidURITemplateException {
+        BatchEndpoint batch = new BatchEndpoint(this, executor, maxEntries);
+        register("POST", path, batch);
+        return batch;
+    }
+
     /**
      * Registers an endpoint for a resource with a specific URI path template
      * for use with the PUT method.
@@ -281,6 +817,23 @@ public class Router extends HttpServlet {
         register("OPTIONS", path, endpoint);
     }
 
+    /**
+     * Registers the annotated methods of a resource object as endpoints. The
+     * object is scanned once, see {@link ResourceBinder} for the methods
+     * which are registered and the parameters which can be bound.
+     *
+     * @param resource the resource object.
+     * @throws InvalidURITemplateException if an URI template of the resource
+     * is invalid.
+     * @throws IllegalArgumentException if a resource method has parameters
+     * which cannot be bound.
+     */
+    public void resource(Object resource) throws InvalidURITemplateException {
+        for (ResourceBinder.Binding binding : ResourceBinder.bind(resource)) {
+            register(binding.getMethod(), binding.getTemplate(), binding.getEndpoint());
+        }
+    }
+
     /**
      * This method finds a set of possible endpoints for a specific path within
      * the registered endpoints of this router. If a matching endpoint is found
@@ -288,64 +841,255 @@ public class Router extends HttpServlet {
      * the matched parameters from the URI path template which matched the path.
      * <p>
      * If no matching endpoints are found, this method returns an empty map.
+     * <p>
+     * The returned map is shared between all requests for the same resource
+     * and must not be modified.
      *
      * @param path the path of the request
      * @param parameters a list which is filled by this method
-     * @return A (possibly empty) map of HTTP methods to endpoints that matched
-     * the input path. It is guaranteed to be not {@code null}.
+     * @return A (possibly empty) read-only map of HTTP methods to endpoints that
+     * matched the input path. It is guaranteed to be not {@code null}.
      */
     protected Map<String, Endpoint> route(String path, List<PathParameter> parameters) {
-        path = Segment.normalize(path);
-        Scanner scanner = new Scanner(path);
-        Segment next = Segment.parse(scanner.next());
-        if (!SegmentMatcher.ROOT_SEGMENT.mismatch(next)) {
-            return new LinkedHashMap<>(endpoints);
+        return route(Path.parse(path), parameters);
+    }
+
+    /**
+     * Finds the set of possible endpoints for a canonical path. This is the
+     * variant of {@link #route(java.lang.String, java.util.List)} used for
+     * incoming requests, which provide their path already parsed.
+     *
+     * @param path the canonical path of the request
+     * @param parameters a list which is filled by this method
+     * @return A (possibly empty) read-only map of HTTP methods to endpoints that
+     * matched the path. It is guaranteed to be not {@code null}.
+     */
+    protected Map<String, Endpoint> route(Path path, List<PathParameter> parameters) {
+        RouteTable table = getRouteTable();
+        RouteCache cache = routeCache;
+        String key = null;
+        if (cache != null) {
+            key = path.toString();
+            RouteCache.Entry entry = cache.get(key, table);
+            if (entry != null) {
+                parameters.addAll(entry.getParameters());
+                return entry.getRoute().getEndpoints();
+            }
         }
-        for (PathRouter router : routers) {
-            int scannerPos = scanner.getPos();
-            List<PathParameter> paramsFound;
-            try {
-                paramsFound = router.getTemplate().match(next);
-                Map<String, Endpoint> endpointsFound = router.route(scanner, paramsFound);
-                parameters.addAll(paramsFound);
-                return endpointsFound;
-            } catch (URITemplateMismatchException ex) {
-                scanner.setPos(scannerPos);
+        int mark = parameters.size();
+        Route route = table.lookup(path, parameters);
+        if (route == null) {
+            return Collections.emptyMap();
+        }
+        if (cache != null) {
+            cache.put(key, table, route, parameters.subList(mark, parameters.size()));
+        }
+        return route.getEndpoints();
+    }
+
+    /**
+     * Returns the compiled route table of this router.
+     * <p>
+     * The route table is an immutable snapshot of the registered endpoints. It
+     * is published through a single volatile reference, so reading it never
+     * blocks. Registering or removing an endpoint compiles a new snapshot and
+     * replaces the published one. Until the first request has been routed,
+     * registrations only collect the endpoints and the table is compiled once
+     * on first use.
+     *
+     * @return the compiled route table.
+     */
+    protected RouteTable getRouteTable() {
+        RouteTable table = routeTable;
+        if (table == null) {
+            synchronized (routeLock) {
+                table = routeTable;
+                if (table == null) {
+                    table = RouteTable.compile(endpoints, routers);
+                    routeTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Replaces the published route table with a new snapshot of the registered
+     * endpoints. Must be called with the route lock held.
+     */
+    private void publishRouteTable() {
+        RouteCache cache = routeCache;
+        if (cache != null) {
+            cache.clear();
+        }
+        if (routeTable != null) {
+            routeTable = RouteTable.compile(endpoints, routers);
+        }
+    }
+
+    /**
+     * Hands a request over to the router of its virtual host or to the
+     * sub-router mounted at its path, if there is one.
+     *
+     * @return {@code true} if the request has been handled by another router.
+     */
+    private boolean dispatch(HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws ServletException, IOException {
+        if (!hosts.isEmpty()) {
+            String host = servletRequest.getHeader("Host");
+            if (host == null) {
+                host = servletRequest.getServerName();
+            }
+            if (host != null) {
+                int portIdx = host.lastIndexOf(':');
+                if (portIdx > host.lastIndexOf(']')) {
+                    host = host.substring(0, portIdx);
+                }
+                Router router = hosts.get(host.toLowerCase(Locale.ROOT));
+                if (router != null) {
+                    router.service(servletRequest, servletResponse);
+                    return true;
+                }
             }
         }
-        return new HashMap<>();
+        PrefixTable<Router> table = mountTable;
+        if (table == null) {
+            return false;
+        }
+        Path path = requestPath(servletRequest);
+        PrefixTable.Match<Router> match = table.lookup(path);
+        if (match == null) {
+            return false;
+        }
+        match.getValue().service(new MountedRequest(servletRequest, match.getPrefix(), match.remainder(path)), servletResponse);
+        return true;
+    }
+
+    /**
+     * Returns the decoded path of a request below the servlet path, as used
+     * for selecting mounted routers and scoped filters.
+     */
+    private static Path requestPath(HttpServletRequest servletRequest) {
+        Object mountedPath = servletRequest.getAttribute(Request.PATH_ATTRIBUTE);
+        return mountedPath instanceof Path ? (Path) mountedPath : Path.parse(servletRequest.getPathInfo());
+    }
+
+    /**
+     * Tells whether a request can be answered with a 404 without parsing it.
+     * The path is taken from the request URI as the request does, but without
+     * decoding it. Paths with percent encoded characters are therefore never
+     * rejected.
+     */
+    private boolean rejects(HttpServletRequest servletRequest) {
+        Path path;
+        Object mountedPath = servletRequest.getAttribute(Request.PATH_ATTRIBUTE);
+        if (mountedPath instanceof Path) {
+            path = (Path) mountedPath;
+        } else {
+            String uri = servletRequest.getRequestURI();
+            if (uri == null || uri.indexOf('%') >= 0 || uri.indexOf(';') >= 0) {
+                return false;
+            }
+            String contextPath = servletRequest.getContextPath();
+            String servletPath = servletRequest.getServletPath();
+            int from = 0;
+            if (contextPath != null && uri.startsWith(contextPath)) {
+                from = contextPath.length();
+            }
+            if (servletPath != null && uri.startsWith(servletPath, from)) {
+                from += servletPath.length();
+            }
+            path = Path.parse(uri, from);
+        }
+        return rejects(path);
+    }
+
+    /**
+     * Tells whether a canonical path cannot lead to any resource of this
+     * router. Subclasses which route paths on their own have to override this
+     * method along with {@code route()}.
+     *
+     * @param path the canonical path of the request.
+     * @return {@code true} if routing the path is certain to find no
+     * endpoints.
+     * @see RouteTable#rejects(io.datenwelt.cargo.rest.path.Path)
+     */
+    protected boolean rejects(Path path) {
+        return getRouteTable().rejects(path);
+    }
+
+    /**
+     * Stops the thread pools of the batch endpoints created by this router
+     * and destroys the mounted routers and the routers of virtual hosts, which
+     * are not known to the servlet container.
+     */
+    @Override
+    public void destroy() {
+        for (BatchEndpoint batch : batches) {
+            batch.shutdown();
+        }
+        batches.clear();
+        List<Router> routers;
+        synchronized (routeLock) {
+            routers = new ArrayList<>(mounts.values());
+        }
+        routers.addAll(hosts.values());
+        for (Router router : routers) {
+            if (router != this) {
+                router.destroy();
+            }
+        }
+        super.destroy();
     }
 
     @Override
     protected void service(HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws ServletException, IOException {
-        String queryString = servletRequest.getQueryString();
+        if (dispatch(servletRequest, servletResponse)) {
+            return;
+        }
+        if (fastReject && rejects(servletRequest)) {
+            NOT_FOUND.send(servletResponse, "HEAD".equals(servletRequest.getMethod()));
+            return;
+        }
+        PrefixTable<ConcurrencyLimiter> limits = limitTable;
+        PrefixTable.Match<ConcurrencyLimiter> limit = limits != null ? limits.lookup(requestPath(servletRequest)) : null;
+        if (limit == null) {
+            process(servletRequest, servletResponse);
+            return;
+        }
+        ConcurrencyLimiter limiter = limit.getValue();
+        if (!limiter.tryAcquire()) {
+            limiter.reject(servletResponse, "HEAD".equals(servletRequest.getMethod()));
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            process(servletRequest, servletResponse);
+        } finally {
+            limiter.release(start);
+        }
+    }
+
+    private void process(HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws IOException {
         String requestMethod = servletRequest.getMethod();
-        String requestString = new StringBuilder("\"")
-                .append(requestMethod)
-                .append(" ")
-                .append(servletRequest.getRequestURL())
-                .append((queryString != null && !queryString.isEmpty()) ? "?" + queryString : "")
-                .append("\"")
-                .toString();
+        RequestDescription requestString = new RequestDescription(servletRequest);
+        Deadline deadline = deadline(servletRequest);
 
-        // Create all filter instances.
-        List<Filter> filterInstances = new ArrayList<>();
-        Iterator filterIterator = filters.iterator();
-        while (filterIterator.hasNext()) {
-            Object filterObject = filterIterator.next();
-            Optional<Filter> filter = createFilterInstance(filterObject);
-            if (filter.isPresent()) {
-                filterInstances.add(filter.get());
-            }
-        }
+        // Create the instances of all filters taking part in any stage.
+        FilterChains chains = getFilterChains();
+        FilterPipeline pipeline = chains.isScoped() ? chains.select(requestPath(servletRequest)) : chains.root();
+        Filter[] filterInstances = pipeline.instances(this);
 
         Optional<Response> response = Optional.empty();
 
         // Apply "prepare" filters.
         Optional<Request> optionalRequest = Optional.empty();
-        Iterator<Filter> iterator = filterInstances.iterator();
-        while (!optionalRequest.isPresent() && !response.isPresent() && iterator.hasNext()) {
-            Filter filter = iterator.next();
+        for (int idx : pipeline.stage(FilterPipeline.PARSE)) {
+            Filter filter = filterInstances[idx];
+            if (optionalRequest.isPresent() || response.isPresent()) {
+                break;
+            } else if (filter == null) {
+                continue;
+            }
             try {
                 optionalRequest = filter.parse(servletRequest);
                 if (optionalRequest.isPresent()) {
@@ -364,6 +1108,8 @@ public class Router extends HttpServlet {
             }
         }
 
+        response = checkDeadline(deadline, response, requestString, "prepare");
+
         Request request;
         if (response.isPresent()) {
             // If there is a response after the filter stage, we have an 
@@ -379,7 +1125,7 @@ public class Router extends HttpServlet {
             try {
 
                 request = new Request(servletRequest, contentTypes, contentEncodings);
-                requestString = request.toString();
+                requestString.update(request);
             } catch (RuntimeException ex) {
                 request = null;
                 LOG.error("Error interpreting incoming request {}: {}", requestString, ex.getMessage(), ex);
@@ -393,10 +1139,17 @@ public class Router extends HttpServlet {
 
         // If there is a request, work it out. 
         if (request != null) {
+            if (deadline != null && !request.getDeadline().isPresent()) {
+                request.setDeadline(deadline);
+            }
             // Apply "before" filter.
-            iterator = filterInstances.iterator();
-            while (!response.isPresent() && iterator.hasNext()) {
-                Filter filter = iterator.next();
+            for (int idx : pipeline.stage(FilterPipeline.BEFORE)) {
+                Filter filter = filterInstances[idx];
+                if (response.isPresent()) {
+                    break;
+                } else if (filter == null) {
+                    continue;
+                }
                 try {
                     request = filter.before(request).orElse(request);
                 } catch (APIException ex) {
@@ -414,27 +1167,35 @@ public class Router extends HttpServlet {
 
             // Find corresponding endpoints.
             List<PathParameter> parameters = new ArrayList<>();
-            Map<String, Endpoint> possibleEndpoints = new HashMap<>();
+            Map<String, Endpoint> possibleEndpoints = Collections.emptyMap();
             try {
-                possibleEndpoints = route(request.getPath(), parameters);
+                possibleEndpoints = route(request.getCanonicalPath(), parameters);
                 request.getParameters().addAll(parameters);
             } catch (RuntimeException ex) {
                 LOG.error("Unable to route request {}: {}", requestString, ex.getMessage(), ex);
                 response = Optional.of(new InternalServerError());
             }
 
-            // Apply "routing" filters.
-            iterator = filterInstances.iterator();
-            while (!response.isPresent() && iterator.hasNext()) {
-                Filter filter = iterator.next();
+            // Apply "routing" filters. The routed endpoints are shared between
+            // requests, so filters receive a copy they are free to alter.
+            int[] routeStage = pipeline.stage(FilterPipeline.ROUTE);
+            if (routeStage.length > 0 && !response.isPresent()) {
+                possibleEndpoints = new LinkedHashMap<>(possibleEndpoints);
+            }
+            for (int idx : routeStage) {
+                Filter filter = filterInstances[idx];
+                if (response.isPresent()) {
+                    break;
+                } else if (filter == null) {
+                    continue;
+                }
                 try {
                     Optional<Endpoint> endpoint = filter.route(possibleEndpoints, request);
                     if (endpoint.isPresent()) {
                         LOG.debug("Filter {} overrides endpoints for request {} in \"routing\" stage.",
                                 filter.getClass().getName(),
                                 requestString);
-                        possibleEndpoints.clear();
-                        possibleEndpoints.put(request.getMethod(), endpoint.get());
+                        possibleEndpoints = Collections.singletonMap(request.getMethod(), endpoint.get());
                         break;
                     }
                 } catch (APIException ex) {
@@ -450,19 +1211,34 @@ public class Router extends HttpServlet {
                 }
             }
 
-            // Check if we have any applicable endpoints and croak if not.
+            // Check if we have any applicable endpoints and croak if not. HEAD
+            // falls back to the GET endpoint and OPTIONS is answered with the
+            // allowed methods unless endpoints are registered for them.
+            Endpoint endpoint = possibleEndpoints.get(requestMethod);
             if (possibleEndpoints.isEmpty()) {
                 response = Optional.of(new NotFound());
-            } else if (!possibleEndpoints.containsKey(requestMethod)) {
-                response = Optional.of(new MethodNotAllowed());
+            } else if (endpoint == null && "HEAD".equals(requestMethod) && possibleEndpoints.containsKey("GET")) {
+                endpoint = possibleEndpoints.get("GET");
+            } else if (endpoint == null && "OPTIONS".equals(requestMethod)) {
+                Response options = new NoContent();
+                options.header("Allow", Route.allow(possibleEndpoints));
+                response = Optional.of(options);
+            } else if (endpoint == null) {
+                Response methodNotAllowed = new MethodNotAllowed();
+                methodNotAllowed.header("Allow", Route.allow(possibleEndpoints));
+                response = Optional.of(methodNotAllowed);
             }
 
             // Call the endpoint if we have no response yet.
+            deadline = request.getDeadline().orElse(deadline);
+            response = checkDeadline(deadline, response, requestString, "routing");
             if (!response.isPresent()) {
-                Endpoint endpoint = possibleEndpoints.get(requestMethod);
                 try {
                     Response resp = endpoint.call(request);
                     response = Optional.ofNullable(resp);
+                } catch (StacklessAPIException ex) {
+                    response = Optional.ofNullable(ex.getResponse());
+                    LOG.debug("Endpoint for request {} responded with HTTP status {}: {}", requestString, response.get().getStatus(), ex.getMessage());
                 } catch (APIException ex) {
                     response = Optional.ofNullable(ex.getResponse());
                     LOG.error("Endpoint for request {} has thrown an exception: {}", requestString, ex.getMessage(), ex);
@@ -473,9 +1249,13 @@ public class Router extends HttpServlet {
             }
 
             // Apply "after" filters.
-            iterator = filterInstances.iterator();
-            while (response.isPresent() && iterator.hasNext()) {
-                Filter filter = iterator.next();
+            for (int idx : pipeline.stage(FilterPipeline.AFTER)) {
+                Filter filter = filterInstances[idx];
+                if (!response.isPresent()) {
+                    break;
+                } else if (filter == null) {
+                    continue;
+                }
                 try {
                     Optional<Response> resp = filter.after(request, response.get());
                     if (resp.isPresent()) {
@@ -508,6 +1288,12 @@ public class Router extends HttpServlet {
             actualResponse = response.get();
         }
 
+        // Do not serialize responses nobody waits for anymore.
+        if (deadline != null && deadline.isExpired()) {
+            LOG.debug("Deadline of request {} expired before serialization.", requestString);
+            actualResponse = new GatewayTimeout();
+        }
+
         ContentProducer contentProducer;
         ContentEncoder contentEncoder;
 
@@ -549,16 +1335,25 @@ public class Router extends HttpServlet {
             contentEncoder = new IdentityEncoder();
         }
 
-        // Send the response.
+        if (deadline != null && deadline.isExpired() && actualResponse.getStatus() != GatewayTimeout.CODE) {
+            LOG.debug("Deadline of request {} expired before sending the response.", requestString);
+            actualResponse = new GatewayTimeout();
+            contentProducer = new EmptyProducer();
+            contentEncoder = new IdentityEncoder();
+        }
+
+        // Send the response. Responses to HEAD requests carry the headers of
+        // the body, but the body is never serialized.
+        boolean headersOnly = "HEAD".equals(requestMethod);
         try {
-            actualResponse.send(servletResponse, contentProducer, contentEncoder);
+            actualResponse.send(servletResponse, contentProducer, contentEncoder, headersOnly);
         } catch (IOException | RuntimeException ex) {
             LOG.error("Unable to send response for request {}: {}", requestString, ex.getMessage(), ex);
             actualResponse = new InternalServerError();
             contentProducer = new EmptyProducer();
             contentEncoder = new IdentityEncoder();
             try {
-                actualResponse.send(servletResponse, contentProducer, contentEncoder);
+                actualResponse.send(servletResponse, contentProducer, contentEncoder, headersOnly);
             } catch (Exception fallbackEx) {
                 LOG.error("Unable to send fallback error message for request {}: {}", requestString, fallbackEx.getMessage(), fallbackEx);
                 actualResponse = new InternalServerError();
@@ -566,23 +1361,78 @@ public class Router extends HttpServlet {
         }
 
         // Apply the "finish" filters.
-        iterator = filterInstances.iterator();
-        while (response.isPresent() && iterator.hasNext()) {
-            Filter filter = iterator.next();
+        int[] finishStage = pipeline.stage(FilterPipeline.FINISH);
+        Optional<Request> finishedRequest = finishStage.length > 0 ? Optional.ofNullable(request) : null;
+        for (int idx : finishStage) {
+            Filter filter = filterInstances[idx];
+            if (!response.isPresent()) {
+                break;
+            } else if (filter == null) {
+                continue;
+            }
             try {
-                filter.finish(Optional.ofNullable(request), actualResponse);
+                filter.finish(finishedRequest, actualResponse);
             } catch (RuntimeException ex) {
                 LOG.error("Unable to apply \"finish\" filter {} to request {}: {}", filter.getClass().getName(), requestString, ex.getMessage(), ex);
             }
         }
 
+        // Hand pooled filter instances back.
+        pipeline.release(filterInstances);
+
+    }
+
+    /**
+     * Returns the deadline of an incoming request, if it has any.
+     */
+    private Deadline deadline(HttpServletRequest servletRequest) {
+        long timeout = timeoutNanos;
+        Deadline deadline = timeout > 0 ? Deadline.after(timeout, TimeUnit.NANOSECONDS) : null;
+        String header = servletRequest.getHeader(TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                long millis = Long.parseLong(header.trim());
+                deadline = Deadline.after(Math.max(0, millis), TimeUnit.MILLISECONDS).min(deadline);
+            } catch (NumberFormatException ex) {
+                LOG.debug("Ignoring invalid {} header: {}", TIMEOUT_HEADER, header);
+            }
+        }
+        return deadline;
+    }
+
+    /**
+     * Replaces a missing response with a {@code 504} once the deadline has
+     * expired.
+     */
+    private static Optional<Response> checkDeadline(Deadline deadline, Optional<Response> response, RequestDescription requestString, String stage) {
+        if (response.isPresent() || deadline == null || !deadline.isExpired()) {
+            return response;
+        }
+        LOG.debug("Deadline of request {} expired after \"{}\" stage.", requestString, stage);
+        return Optional.of(new GatewayTimeout());
+    }
+
+    /**
+     * Returns the compiled form of the registered filters. The pipelines are
+     * compiled again after filters have been registered or removed.
+     *
+     * @return the filter pipelines.
+     */
+    FilterChains getFilterChains() {
+        FilterChains chains = filterChains;
+        if (chains == null || !chains.isCompiledFrom(filters)) {
+            chains = FilterChains.compile(filters);
+            filterChains = chains;
+        }
+        return chains;
     }
 
     /**
      * Returns an optional instance of the input object. This method is meant to
      * receive either an instance of {@link Filter} or a class which implements
      * {@link Filter}. It returns the instance itself in the first case, a new
-     * instance of the class in the second case.
+     * instance of the class in the second case. Filters registered by class or
+     * by supplier are provided by their factory, possibly from its pool.
      * <p>
      * If the instantiation of the class fails, the class does not implement
      * {@code Filter}, the instance is no {@code Filter} or if {@code null} is
@@ -603,6 +1453,14 @@ public class Router extends HttpServlet {
             return Optional.ofNullable((Filter) input);
 
         }
+        if (input instanceof FilterFactory) {
+            try {
+                return Optional.of(((FilterFactory) input).create());
+            } catch (RuntimeException ex) {
+                LOG.error("Unable to create instance of filter {}: {}", input, ex.getMessage(), ex);
+                return Optional.empty();
+            }
+        }
         if (Filter.class
                 .isAssignableFrom((Class<?>) input)) {
             Class<? extends Filter> filterClass = (Class<? extends Filter>) input;
@@ -619,7 +1477,9 @@ public class Router extends HttpServlet {
     }
 
     /**
-     * Returns all registered path routers.
+     * Returns all registered path routers. The list is the mutable source of
+     * the route table and must not be accessed while endpoints are registered
+     * concurrently.
      *
      * @return A list of all registered path routers.
      */
@@ -634,7 +1494,9 @@ public class Router extends HttpServlet {
      * @return A list of all registered endpoints of the root resource.
      */
     public Map<String, Endpoint> getEndpoints() {
-        return new LinkedHashMap<>(endpoints);
+        synchronized (routeLock) {
+            return new LinkedHashMap<>(endpoints);
+        }
     }
 
     protected ContentProducer negotiateContent(Request request, Response response) throws APIException {
@@ -703,4 +1565,42 @@ public class Router extends HttpServlet {
         }
         return null;
     }
+
+    /**
+     * Servlet request as seen by a mounted sub-router. The mount prefix is
+     * moved from the path info to the servlet path and the remaining path is
+     * passed on already parsed.
+     */
+    private static class MountedRequest extends HttpServletRequestWrapper {
+
+        private final String servletPath;
+        private final Path path;
+
+        MountedRequest(HttpServletRequest request, String prefix, Path path) {
+            super(request);
+            String parentPath = request.getServletPath();
+            this.servletPath = (parentPath == null ? "" : parentPath) + prefix;
+            this.path = path;
+        }
+
+        @Override
+        public String getServletPath() {
+            return servletPath;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return path.toString();
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            if (Request.PATH_ATTRIBUTE.equals(name)) {
+                return path;
+            }
+            return super.getAttribute(name);
+        }
+
+    }
+
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests a router generated at compile time for a resource class.
+ * <p>
+ * The annotation processor {@link io.datenwelt.cargo.rest.processor.RouterProcessor}
+ * reads the {@link Path} and HTTP method annotations of the class and
+ * generates a subclass of {@link io.datenwelt.cargo.rest.Router} in the same
+ * package. Its routing is plain Java code comparing path segments, so the URI
+ * templates are neither parsed nor registered when the router starts.
+ * <p>
+ * Resource methods must accept a single {@link io.datenwelt.cargo.rest.Request}
+ * and return a {@link io.datenwelt.cargo.rest.Response}, like an
+ * {@link io.datenwelt.cargo.rest.Endpoint}. They may be static. The generated
+ * router is named after the resource class with the suffix "Router" unless
+ * another name is given.
+ *
+ * @author job
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface CompiledRouter {
+
+    /**
+     * The simple name of the generated router.
+     *
+     * @return the name or an empty string for the default name.
+     */
+    String value() default "";
+
+}
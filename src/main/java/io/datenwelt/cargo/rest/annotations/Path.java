@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * URI path template of a resource.
+ * <p>
+ * On a resource method the template addresses the resource the method is an
+ * endpoint for. On a resource class it is a common prefix for the templates of
+ * all its methods. A method without {@code @Path} is an endpoint for the
+ * resource addressed by the class template. The template syntax is the same
+ * as for {@link io.datenwelt.cargo.rest.Router#register(java.lang.String, java.lang.String, io.datenwelt.cargo.rest.Endpoint)}.
+ * <p>
+ * Example:
+ * <pre>
+ *      &#64;Path("/persons")
+ *      public class Persons {
+ *
+ *          &#64;GET
+ *          &#64;Path("/{id:int}")
+ *          public Response get(Request request) throws APIException {
+ *              ...
+ *          }
+ *      }
+ * </pre>
+ *
+ * @author job
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Path {
+
+    String value();
+
+}
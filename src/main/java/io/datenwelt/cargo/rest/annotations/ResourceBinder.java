@@ -0,0 +1,410 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.annotations;
+
+import io.datenwelt.cargo.rest.Endpoint;
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.path.PathParameter;
+import io.datenwelt.cargo.rest.path.Segment.Scanner;
+import io.datenwelt.cargo.rest.path.SegmentMatcher;
+import io.datenwelt.cargo.rest.path.URITemplate;
+import io.datenwelt.cargo.rest.path.VariableType;
+import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
+import io.datenwelt.cargo.rest.query.Query;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.BadRequest;
+import io.datenwelt.cargo.rest.response.InternalServerError;
+import io.datenwelt.cargo.rest.response.OK;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binds the annotated methods of a resource object to endpoints.
+ * <p>
+ * The public methods of the resource class are scanned once. Each method
+ * annotated with an HTTP method like {@link GET} becomes an endpoint for the
+ * URI template given by the {@link Path} annotations of the class and the
+ * method. Methods are bound in the {@link #precedence(java.lang.String) order
+ * of precedence} of their templates, which is the order the generated routers
+ * of {@link CompiledRouter} use, too. A path therefore resolves to the same
+ * method whether the resource is bound at runtime or compiled into a router.
+ * <p>
+ * A method which accepts a single {@link Request} and returns a
+ * {@link Response} is turned into an {@link Endpoint} by
+ * {@link LambdaMetafactory}, so calling it costs the same as calling a lambda
+ * written by hand. Other methods are called through a {@link MethodHandle}
+ * with arguments provided by binders which are resolved when the method is
+ * bound:
+ * <ul>
+ * <li>A parameter of type {@code Request} receives the request.</li>
+ * <li>A parameter annotated with {@link PathParam} receives the value of a path
+ * variable of the template.</li>
+ * <li>A parameter annotated with {@link QueryParam} receives the value of a
+ * query parameter.</li>
+ * <li>A single parameter without annotation receives the request body,
+ * deserialized into the type of the parameter.</li>
+ * </ul>
+ * Methods may return a {@code Response}, nothing, which results in 204 - No
+ * Content, or any other object which is sent as body of a 200 - OK response.
+ *
+ * @author job
+ */
+public final class ResourceBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceBinder.class);
+
+    private static final Map<Class<? extends Annotation>, String> HTTP_METHODS = new LinkedHashMap<>();
+
+    static {
+        HTTP_METHODS.put(GET.class, "GET");
+        HTTP_METHODS.put(POST.class, "POST");
+        HTTP_METHODS.put(PUT.class, "PUT");
+        HTTP_METHODS.put(DELETE.class, "DELETE");
+        HTTP_METHODS.put(OPTIONS.class, "OPTIONS");
+    }
+
+    private ResourceBinder() {
+    }
+
+    /**
+     * Binds the annotated methods of a resource object.
+     *
+     * @param resource the resource object.
+     * @return the endpoints with their HTTP methods and URI templates.
+     * @throws InvalidURITemplateException if an URI template is invalid.
+     * @throws IllegalArgumentException if a method has parameters which
+     * cannot be bound.
+     */
+    public static List<Binding> bind(Object resource) throws InvalidURITemplateException {
+        Class<?> type = resource.getClass();
+        Path classPath = type.getAnnotation(Path.class);
+        String base = classPath != null ? classPath.value() : "";
+        List<Binding> bindings = new ArrayList<>();
+        for (Method method : type.getMethods()) {
+            List<String> httpMethods = httpMethods(method);
+            if (httpMethods.isEmpty()) {
+                continue;
+            }
+            Path methodPath = method.getAnnotation(Path.class);
+            String template = join(base, methodPath != null ? methodPath.value() : "");
+            Endpoint endpoint = endpoint(resource, method, URITemplate.parse(template).getVariableNames());
+            String precedence = precedence(template);
+            for (String httpMethod : httpMethods) {
+                bindings.add(new Binding(httpMethod, template, endpoint, method.getName(), precedence));
+            }
+        }
+        // The order of the reflected methods is unspecified.
+        bindings.sort(Comparator.comparing((Binding binding) -> binding.precedence)
+                .thenComparing(Binding::getTemplate)
+                .thenComparing((binding) -> binding.methodName));
+        return bindings;
+    }
+
+    /**
+     * Returns the precedence of an URI template among the templates of a
+     * resource class. Path variables of sibling resources are tried in the
+     * order the resources have been registered, so resource methods are
+     * registered in the order of the precedence of their templates, then in
+     * the order of the templates and of the method names.
+     * <p>
+     * The precedence ranks each segment of the template: a literal segment
+     * comes before a segment whose variables are all typed, which comes before
+     * a segment with an untyped variable. A wildcard comes last. Typed
+     * variables are therefore tried before untyped ones, whatever their names.
+     *
+     * @param template the URI template.
+     * @return a key ordering templates by their precedence when compared as
+     * strings.
+     * @throws InvalidURITemplateException if the template is invalid.
+     */
+    public static String precedence(String template) throws InvalidURITemplateException {
+        StringBuilder precedence = new StringBuilder();
+        Scanner scanner = new Scanner(template);
+        while (scanner.hasNext()) {
+            SegmentMatcher segment = SegmentMatcher.parse(scanner.next());
+            if (segment.isLiteral()) {
+                precedence.append('0');
+            } else if (segment.isWildcard()) {
+                precedence.append('3');
+            } else if (segment.getVariableTypes().contains(VariableType.ANY)) {
+                precedence.append('2');
+            } else {
+                precedence.append('1');
+            }
+        }
+        return precedence.toString();
+    }
+
+    /**
+     * Returns the HTTP methods a method is annotated with.
+     *
+     * @param method the method.
+     * @return the names of the HTTP methods, may be empty.
+     */
+    public static List<String> httpMethods(Method method) {
+        List<String> httpMethods = new ArrayList<>();
+        for (Map.Entry<Class<? extends Annotation>, String> httpMethod : HTTP_METHODS.entrySet()) {
+            if (method.isAnnotationPresent(httpMethod.getKey())) {
+                httpMethods.add(httpMethod.getValue());
+            }
+        }
+        return httpMethods;
+    }
+
+    /**
+     * Combines the URI template of a resource class with the template of one
+     * of its methods.
+     *
+     * @param base the template of the class, may be empty.
+     * @param path the template of the method, may be empty.
+     * @return the template of the method's resource.
+     */
+    public static String join(String base, String path) {
+        while (base.endsWith("/")) {
+            base = base.substring(0, base.length() - 1);
+        }
+        if (path.isEmpty() || path.startsWith("/")) {
+            return base + path;
+        }
+        return base + "/" + path;
+    }
+
+    private static Endpoint endpoint(Object resource, Method method, List<String> variables) {
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length == 1 && parameterTypes[0] == Request.class
+                && Response.class.isAssignableFrom(method.getReturnType())
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            MethodHandle factory = null;
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodType invokedType = isStatic
+                        ? MethodType.methodType(Endpoint.class)
+                        : MethodType.methodType(Endpoint.class, method.getDeclaringClass());
+                factory = LambdaMetafactory.metafactory(lookup, "call", invokedType,
+                        MethodType.methodType(Response.class, Request.class),
+                        lookup.unreflect(method),
+                        MethodType.methodType(method.getReturnType(), Request.class)).getTarget();
+            } catch (LambdaConversionException | IllegalAccessException | SecurityException ex) {
+                LOG.debug("Unable to bind resource method {} as lambda, calling it through a method handle: {}", method, ex.getMessage());
+            }
+            if (factory != null) {
+                try {
+                    return isStatic ? (Endpoint) factory.invoke() : (Endpoint) factory.invoke(resource);
+                } catch (RuntimeException | Error ex) {
+                    throw ex;
+                } catch (Throwable ex) {
+                    throw new IllegalArgumentException("Unable to bind resource method " + method + ": " + ex.getMessage(), ex);
+                }
+            }
+        }
+        Parameter[] parameters = method.getParameters();
+        Binder[] binders = new Binder[parameters.length];
+        boolean body = false;
+        for (int idx = 0; idx < parameters.length; idx++) {
+            Parameter parameter = parameters[idx];
+            PathParam pathParam = parameter.getAnnotation(PathParam.class);
+            QueryParam queryParam = parameter.getAnnotation(QueryParam.class);
+            if (pathParam != null) {
+                if (!variables.contains(pathParam.value())) {
+                    throw new IllegalArgumentException("Unknown path variable '" + pathParam.value() + "' bound to resource method " + method + ".");
+                }
+                binders[idx] = pathBinder(pathParam.value(), parameter.getType(), method);
+            } else if (queryParam != null) {
+                binders[idx] = queryBinder(queryParam.value(), parameter.getType(), method);
+            } else if (parameter.getType() == Request.class) {
+                binders[idx] = (request) -> request;
+            } else {
+                if (body || parameter.getType().isPrimitive()) {
+                    throw new IllegalArgumentException("Unable to bind parameter " + parameter.getName() + " of resource method " + method + " to the request body.");
+                }
+                Class<?> bodyType = parameter.getType();
+                binders[idx] = (request) -> request.getBodyAs(bodyType).orElse(null);
+                body = true;
+            }
+        }
+        MethodHandle handle;
+        try {
+            method.setAccessible(true);
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException | RuntimeException ex) {
+            throw new IllegalArgumentException("Unable to bind resource method " + method + ": " + ex.getMessage(), ex);
+        }
+        if (!isStatic) {
+            handle = handle.bindTo(resource);
+        }
+        handle = handle.asSpreader(Object[].class, binders.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        return new BoundEndpoint(handle, binders);
+    }
+
+    private static Binder pathBinder(String name, Class<?> type, Method method) {
+        if (type == String.class) {
+            return (request) -> request.param(name).get();
+        } else if (type == int.class || type == Integer.class) {
+            return (request) -> request.param(name).getInt();
+        } else if (type == long.class || type == Long.class) {
+            return (request) -> request.param(name).getLong();
+        } else if (type == UUID.class) {
+            return (request) -> request.param(name).getUUID();
+        } else if (type == PathParameter.class) {
+            return (request) -> request.param(name);
+        }
+        throw new IllegalArgumentException("Unable to bind path variable '" + name + "' to a parameter of type " + type.getName() + " of resource method " + method + ".");
+    }
+
+    private static Binder queryBinder(String name, Class<?> type, Method method) {
+        Converter converter;
+        if (type == String.class) {
+            converter = (value) -> value;
+        } else if (type == int.class || type == Integer.class) {
+            converter = Integer::valueOf;
+        } else if (type == long.class || type == Long.class) {
+            converter = Long::valueOf;
+        } else if (type == boolean.class || type == Boolean.class) {
+            converter = Boolean::valueOf;
+        } else if (type == UUID.class) {
+            converter = UUID::fromString;
+        } else {
+            throw new IllegalArgumentException("Unable to bind query parameter '" + name + "' to a parameter of type " + type.getName() + " of resource method " + method + ".");
+        }
+        boolean required = type.isPrimitive();
+        return (request) -> {
+            String value = request.query(name).flatMap(Query::getValue).orElse(null);
+            if (value == null) {
+                if (required) {
+                    throw new StacklessAPIException(new BadRequest("Missing value for query parameter '" + name + "'."));
+                }
+                return null;
+            }
+            try {
+                return converter.convert(value);
+            } catch (IllegalArgumentException ex) {
+                throw new StacklessAPIException(new BadRequest("Illegal input value for query parameter " + name + ": Unable to read value '" + value + "'."));
+            }
+        };
+    }
+
+    /**
+     * Provides the value of a method parameter from a request.
+     */
+    @FunctionalInterface
+    private interface Binder {
+
+        Object bind(Request request) throws APIException;
+
+    }
+
+    @FunctionalInterface
+    private interface Converter {
+
+        Object convert(String value);
+
+    }
+
+    /**
+     * Endpoint calling a resource method through a method handle taking its
+     * arguments as an array.
+     */
+    private static class BoundEndpoint implements Endpoint {
+
+        private final MethodHandle handle;
+        private final Binder[] binders;
+
+        BoundEndpoint(MethodHandle handle, Binder[] binders) {
+            this.handle = handle;
+            this.binders = binders;
+        }
+
+        @Override
+        public Response call(Request request) throws APIException {
+            Object[] arguments = new Object[binders.length];
+            for (int idx = 0; idx < binders.length; idx++) {
+                arguments[idx] = binders[idx].bind(request);
+            }
+            Object result;
+            try {
+                result = (Object) handle.invokeExact(arguments);
+            } catch (APIException | RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new APIException(new InternalServerError(), "Resource method has thrown an exception: " + ex.getMessage(), ex);
+            }
+            if (result == null || result instanceof Response) {
+                return (Response) result;
+            }
+            return new OK(result);
+        }
+
+    }
+
+    /**
+     * Endpoint bound to a resource method together with its HTTP method and
+     * URI template.
+     */
+    public static final class Binding {
+
+        private final String method;
+        private final String template;
+        private final Endpoint endpoint;
+        private final String methodName;
+        private final String precedence;
+
+        Binding(String method, String template, Endpoint endpoint, String methodName, String precedence) {
+            this.method = method;
+            this.template = template;
+            this.endpoint = endpoint;
+            this.methodName = methodName;
+            this.precedence = precedence;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        public Endpoint getEndpoint() {
+            return endpoint;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + template;
+        }
+
+    }
+
+}
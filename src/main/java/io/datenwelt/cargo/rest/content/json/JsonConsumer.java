@@ -22,6 +22,7 @@ import io.datenwelt.cargo.rest.Request;
 import io.datenwelt.cargo.rest.content.ContentConsumer;
 import io.datenwelt.cargo.rest.response.APIException;
 import io.datenwelt.cargo.rest.response.BadRequest;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
 import io.datenwelt.cargo.rest.serialization.Json;
 import java.io.IOException;
 import java.io.InputStream;
@@ -38,7 +39,7 @@ public class JsonConsumer implements ContentConsumer {
         try {
            return om.readValue(inputStream, targetClass);
         } catch (JsonParseException | JsonMappingException ex) {
-            throw new APIException(new BadRequest());
+            throw new StacklessAPIException(new BadRequest());
         }
     }
 
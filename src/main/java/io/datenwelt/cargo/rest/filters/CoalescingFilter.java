@@ -0,0 +1,306 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.filters;
+
+import io.datenwelt.cargo.rest.Endpoint;
+import io.datenwelt.cargo.rest.Filter;
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.content.ContentEncoder;
+import io.datenwelt.cargo.rest.content.ContentProducer;
+import io.datenwelt.cargo.rest.headers.Header;
+import io.datenwelt.cargo.rest.query.Query;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces identical GET requests which are processed at the same time.
+ * <p>
+ * The first request for a resource becomes the leader and calls the endpoint.
+ * Requests arriving while the leader is still in flight wait for its result
+ * instead of calling the endpoint again. Requests are identical if they have
+ * the same path, the same queries regardless of their order and the same
+ * values for a set of headers the response may vary by. By default these are
+ * {@code Accept}, {@code Accept-Encoding}, {@code Accept-Language},
+ * {@code Authorization} and {@code Cookie}.
+ * <p>
+ * Each request receives its own copy of the leader's response, so "after"
+ * filters can alter status and headers independently. The body object is
+ * shared and serialized only once per content type and encoding. Filters must
+ * not modify the body object itself. Responses replaced by a new body are
+ * serialized as usual.
+ * <p>
+ * A waiting request gives up after a timeout and calls the endpoint on its
+ * own. If the leader fails with an {@link APIException} the waiting requests
+ * receive the same error response.
+ * <p>
+ * The filter is registered as a single instance and is thread-safe. It takes
+ * part in the "route" phase and wraps the GET endpoint of the resource.
+ *
+ * @author job
+ */
+public class CoalescingFilter implements Filter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoalescingFilter.class);
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+    public static final String[] DEFAULT_VARY = {"Accept", "Accept-Encoding", "Accept-Language", "Authorization", "Cookie"};
+
+    private final Map<String, CompletableFuture<Result>> flights = new ConcurrentHashMap<>();
+    private final AtomicInteger followers = new AtomicInteger();
+    private final long timeoutMillis;
+    private final String[] vary;
+
+    public CoalescingFilter() {
+        this(DEFAULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_VARY);
+    }
+
+    /**
+     * Creates a coalescing filter.
+     *
+     * @param timeout how long requests wait for the leader's response.
+     * @param unit the unit of the timeout.
+     * @param vary the names of the request headers which distinguish
+     * otherwise identical requests.
+     */
+    public CoalescingFilter(long timeout, TimeUnit unit, String... vary) {
+        this.timeoutMillis = unit.toMillis(timeout);
+        this.vary = vary.clone();
+    }
+
+    @Override
+    public Optional<Endpoint> route(Map<String, Endpoint> endpoints, Request request) throws APIException {
+        if (!"GET".equals(request.getMethod())) {
+            return Optional.empty();
+        }
+        Endpoint endpoint = endpoints.get("GET");
+        if (endpoint != null) {
+            endpoints.put("GET", (req) -> call(endpoint, req));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the number of requests currently in flight as leaders.
+     *
+     * @return the number of distinct requests being processed.
+     */
+    public int getFlights() {
+        return flights.size();
+    }
+
+    /**
+     * Returns the number of requests waiting for the response of a leader.
+     *
+     * @return the number of followers.
+     */
+    int getFollowers() {
+        return followers.get();
+    }
+
+    private Response call(Endpoint endpoint, Request request) throws APIException {
+        String key = key(request);
+        CompletableFuture<Result> flight = new CompletableFuture<>();
+        CompletableFuture<Result> leader = flights.putIfAbsent(key, flight);
+        if (leader == null) {
+            return lead(endpoint, request, key, flight);
+        }
+        Result result;
+        followers.incrementAndGet();
+        try {
+            result = leader.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            LOG.debug("Timeout waiting for coalesced request {}, calling the endpoint.", request);
+            return endpoint.call(request);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return endpoint.call(request);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            followers.decrementAndGet();
+        }
+        if (result.error != null) {
+            throw new StacklessAPIException(result.copy(), result.error.getMessage());
+        }
+        return result.copy();
+    }
+
+    private Response lead(Endpoint endpoint, Request request, String key, CompletableFuture<Result> flight) throws APIException {
+        try {
+            Response response = endpoint.call(request);
+            Result result = new Result(response, null);
+            flight.complete(result);
+            return result.copy();
+        } catch (APIException ex) {
+            flight.complete(new Result(ex.getResponse(), ex));
+            throw ex;
+        } catch (RuntimeException | Error ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    private String key(Request request) {
+        StringBuilder key = new StringBuilder(request.getCanonicalPath().toString());
+        List<Query> queries = request.queries();
+        if (!queries.isEmpty()) {
+            List<String> sorted = new ArrayList<>(queries.size());
+            for (Query query : queries) {
+                sorted.add(query.toString());
+            }
+            Collections.sort(sorted);
+            for (String query : sorted) {
+                key.append('\n').append(query);
+            }
+        }
+        for (String name : vary) {
+            key.append('\0');
+            Optional<Header> header = request.header(name);
+            if (header.isPresent()) {
+                key.append(header.get().encoded());
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * The outcome of a leader's endpoint call.
+     */
+    private static final class Result {
+
+        private final int status;
+        private final List<Header> headers = new ArrayList<>();
+        private final Object body;
+        private final APIException error;
+        private final boolean empty;
+        private final Map<String, byte[]> rendered = new ConcurrentHashMap<>();
+
+        Result(Response response, APIException error) {
+            this.empty = response == null;
+            this.status = empty ? 0 : response.getStatus();
+            this.body = empty ? null : response.body().orElse(null);
+            this.error = error;
+            if (!empty) {
+                for (Header header : response.headers().values()) {
+                    headers.add(copy(header));
+                }
+            }
+        }
+
+        Response copy() {
+            if (empty) {
+                return null;
+            }
+            CoalescedResponse response = new CoalescedResponse(this);
+            for (Header header : headers) {
+                response.headers().put(header.getName(), copy(header));
+            }
+            return response;
+        }
+
+        private static Header copy(Header header) {
+            Header copy = new Header(header.getName());
+            copy.add(header);
+            return copy;
+        }
+
+        byte[] render(ContentProducer contentProducer, ContentEncoder contentEncoder) {
+            String key = contentProducer.getClass().getName() + " " + contentEncoder.getClass().getName();
+            return rendered.computeIfAbsent(key, (k) -> {
+                try {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    try (OutputStream encoded = contentEncoder.encode(out)) {
+                        contentProducer.produce(encoded);
+                    }
+                    return out.toByteArray();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+
+    }
+
+    /**
+     * Copy of a coalesced response which sends the shared body serialization.
+     */
+    private static final class CoalescedResponse extends Response {
+
+        private final Result result;
+        private long contentLength = -1;
+
+        CoalescedResponse(Result result) {
+            super(result.status, result.body);
+            this.result = result;
+        }
+
+        @Override
+        public void send(HttpServletResponse servletResponse, ContentProducer contentProducer, ContentEncoder contentEncoder, boolean headersOnly) throws IOException {
+            Object body = body().orElse(null);
+            if (headersOnly || body == null || body != result.body || contentProducer == null || contentEncoder == null) {
+                contentLength = -1;
+                super.send(servletResponse, contentProducer, contentEncoder, headersOnly);
+                return;
+            }
+            servletResponse.setStatus(getStatus());
+            contentEncoder.prepare(this);
+            contentProducer.prepare(this);
+            for (Header header : headers().values()) {
+                servletResponse.addHeader(header.getName(), header.encoded());
+            }
+            byte[] bytes;
+            try {
+                bytes = result.render(contentProducer, contentEncoder);
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            servletResponse.getOutputStream().write(bytes);
+            servletResponse.flushBuffer();
+            contentLength = bytes.length;
+        }
+
+        @Override
+        public long getContentLength() {
+            return contentLength >= 0 ? contentLength : super.getContentLength();
+        }
+
+    }
+
+}
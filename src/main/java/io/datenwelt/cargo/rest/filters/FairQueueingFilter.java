@@ -0,0 +1,386 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.filters;
+
+import io.datenwelt.cargo.rest.Deadline;
+import io.datenwelt.cargo.rest.Endpoint;
+import io.datenwelt.cargo.rest.Filter;
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.headers.Header;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.GatewayTimeout;
+import io.datenwelt.cargo.rest.response.PrerenderedResponse;
+import io.datenwelt.cargo.rest.response.ServiceUnavailable;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Schedules the endpoint calls of competing clients with weighted fair
+ * queuing.
+ * <p>
+ * Requests are classified into flows, for example by route, by a header or by
+ * the client address. Each flow has a weight, which is {@code 1} unless
+ * configured otherwise. At most {@code workers} endpoint calls run at the same
+ * time. Requests arriving while all workers are busy wait in the queue of
+ * their flow, and a finishing call hands its worker to the waiting request
+ * with the smallest virtual finish time. A flow with weight {@code 4}
+ * therefore gets four times the share of a flow with weight {@code 1} while
+ * both are busy, and a flow sending thousands of requests only delays its own
+ * requests:
+ * <pre>
+ *      FairQueueingFilter scheduler = new FairQueueingFilter(16, 100, 5, TimeUnit.SECONDS,
+ *              (request) -&gt; request.getPath().startsWith("/reports") ? "bulk" : "interactive");
+ *      scheduler.weight("interactive", 8);
+ *      router.filter(scheduler);
+ * </pre>
+ * A request waits no longer than the maximum wait time or its
+ * {@link Request#getDeadline() deadline}. Requests finding the queue of their
+ * flow full or giving up waiting are turned away with a pre-rendered
+ * {@code 503 - Service Unavailable} response, or with a
+ * {@code 504 - Gateway Timeout} if their deadline expired.
+ * <p>
+ * The filter takes part in the "route" phase and wraps the endpoint selected
+ * for the request. Endpoints can also be wrapped individually with
+ * {@link #wrap(Endpoint)}. Endpoints run on the thread which processes the
+ * request. The filter is registered as a single instance and is
+ * thread-safe.
+ *
+ * @author job
+ */
+public class FairQueueingFilter implements Filter {
+
+    public static final int DEFAULT_WEIGHT = 1;
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    private final int workers;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+    private final Function<Request, String> classifier;
+    private final Map<String, Integer> weights = new ConcurrentHashMap<>();
+    private final PrerenderedResponse unavailable;
+    private final LongAdder rejected = new LongAdder();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private final Map<String, Flow> flows = new HashMap<>();
+    private int idle;
+    private double virtualTime;
+    private long sequence;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param workers the number of endpoint calls running at the same time.
+     * @param maxQueued the number of requests waiting per flow.
+     * @param maxWait the longest time a request waits for a worker.
+     * @param unit the unit of the maximum wait time.
+     * @param classifier the function returning the flow of a request.
+     */
+    public FairQueueingFilter(int workers, int maxQueued, long maxWait, TimeUnit unit, Function<Request, String> classifier) {
+        if (workers < 1 || maxQueued < 0 || maxWait < 0) {
+            throw new IllegalArgumentException("Invalid scheduler: " + workers + " workers, " + maxQueued + " queued, " + maxWait + " " + unit);
+        }
+        if (classifier == null) {
+            throw new IllegalArgumentException("Classifier must not be null.");
+        }
+        this.workers = workers;
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.classifier = classifier;
+        this.idle = workers;
+        ServiceUnavailable response = new ServiceUnavailable();
+        response.header("Retry-After", DEFAULT_RETRY_AFTER_SECONDS);
+        this.unavailable = new PrerenderedResponse(response);
+    }
+
+    /**
+     * Returns a classifier which uses the value of a request header as flow,
+     * e.g. an API key. Requests without the header are classified by their
+     * remote address.
+     *
+     * @param name the name of the header.
+     * @return the classifier.
+     */
+    public static Function<Request, String> byHeader(String name) {
+        return (request) -> {
+            Optional<Header> header = request.header(name);
+            return header.isPresent() ? header.get().encoded() : request.getRemoteAddress();
+        };
+    }
+
+    /**
+     * Returns a classifier which uses the remote address of a request as
+     * flow.
+     *
+     * @return the classifier.
+     */
+    public static Function<Request, String> byRemoteAddress() {
+        return Request::getRemoteAddress;
+    }
+
+    /**
+     * Sets the weight of a flow.
+     *
+     * @param flow the flow.
+     * @param weight the weight of the flow, {@code 1} or more.
+     */
+    public void weight(String flow, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Invalid weight for flow " + flow + ": " + weight);
+        }
+        weights.put(flow, weight);
+    }
+
+    @Override
+    public Optional<Endpoint> route(Map<String, Endpoint> endpoints, Request request) throws APIException {
+        String method = request.getMethod();
+        if (!endpoints.containsKey(method) && "HEAD".equals(method)) {
+            method = "GET";
+        }
+        Endpoint endpoint = endpoints.get(method);
+        if (endpoint != null) {
+            endpoints.put(method, wrap(endpoint));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Schedules the calls of an endpoint.
+     *
+     * @param endpoint the endpoint.
+     * @return an endpoint calling the given endpoint when the scheduler hands
+     * it a worker.
+     */
+    public Endpoint wrap(Endpoint endpoint) {
+        if (endpoint == null) {
+            throw new IllegalArgumentException("Endpoint must not be null.");
+        }
+        return (request) -> call(endpoint, request);
+    }
+
+    /**
+     * Returns the number of requests waiting for a worker.
+     *
+     * @return the number of waiting requests of all flows.
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests of a flow waiting for a worker.
+     *
+     * @param flow the flow.
+     * @return the number of waiting requests of the flow.
+     */
+    public int getQueueDepth(String flow) {
+        lock.lock();
+        try {
+            Flow state = flows.get(flow);
+            return state != null ? state.queued : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of flows with waiting requests.
+     *
+     * @return the number of flows the scheduler keeps state for.
+     */
+    int getFlows() {
+        lock.lock();
+        try {
+            return flows.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of endpoint calls running.
+     *
+     * @return the number of busy workers.
+     */
+    public int getActive() {
+        lock.lock();
+        try {
+            return workers - idle;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of rejected requests.
+     *
+     * @return the number of requests turned away since the filter has been
+     * created.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private Response call(Endpoint endpoint, Request request) throws APIException {
+        acquire(request);
+        try {
+            return endpoint.call(request);
+        } finally {
+            release();
+        }
+    }
+
+    private void acquire(Request request) throws APIException {
+        String key = classifier.apply(request);
+        if (key == null) {
+            key = "";
+        }
+        Optional<Deadline> deadline = request.getDeadline();
+        long timeout = Deadline.waitTime(deadline, maxWaitNanos, TimeUnit.NANOSECONDS);
+        lock.lock();
+        try {
+            if (idle > 0 && waiters.isEmpty()) {
+                idle--;
+                virtualTime += 1.0 / weights.getOrDefault(key, DEFAULT_WEIGHT);
+                return;
+            }
+            Flow flow = flows.get(key);
+            if ((flow != null ? flow.queued : 0) >= maxQueued) {
+                rejected.increment();
+                throw new StacklessAPIException(unavailable.toResponse(), "Scheduler queue of flow " + key + " is full.");
+            }
+            if (flow == null) {
+                flow = new Flow(weights.getOrDefault(key, DEFAULT_WEIGHT));
+                flows.put(key, flow);
+            }
+            Waiter waiter = new Waiter(key, flow.stamp(virtualTime), sequence++, lock.newCondition());
+            flow.queued++;
+            waiters.add(waiter);
+            long remaining = timeout;
+            while (!waiter.granted && remaining > 0) {
+                try {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (waiter.granted) {
+                return;
+            }
+            waiters.remove(waiter);
+            if (--flow.queued == 0) {
+                flows.remove(key);
+            }
+            rejected.increment();
+        } finally {
+            lock.unlock();
+        }
+        if (Deadline.hasExpired(deadline)) {
+            throw new StacklessAPIException(new GatewayTimeout(), "Deadline expired waiting for the scheduler.");
+        }
+        throw new StacklessAPIException(unavailable.toResponse(), "Timeout waiting for the scheduler.");
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            Waiter next = waiters.poll();
+            if (next == null) {
+                idle++;
+                return;
+            }
+            virtualTime = next.finish;
+            Flow flow = flows.get(next.flow);
+            if (flow != null && --flow.queued == 0) {
+                flows.remove(next.flow);
+            }
+            next.granted = true;
+            next.condition.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Scheduling state of a flow with waiting requests. The state is dropped
+     * when the last waiting request of the flow gets a worker or gives up: the
+     * flow has then been served up to the virtual time, and finish times
+     * beyond it belong to requests which gave up. It starts over like a new
+     * flow, so only flows with waiting requests are kept.
+     */
+    private static final class Flow {
+
+        private final int weight;
+        private double lastFinish;
+        private int queued;
+
+        Flow(int weight) {
+            this.weight = weight;
+        }
+
+        /**
+         * Assigns the virtual finish time to the next request of the flow.
+         */
+        double stamp(double virtualTime) {
+            lastFinish = Math.max(virtualTime, lastFinish) + 1.0 / weight;
+            return lastFinish;
+        }
+
+    }
+
+    /**
+     * A request waiting for a worker.
+     */
+    private static final class Waiter implements Comparable<Waiter> {
+
+        private final String flow;
+        private final double finish;
+        private final long sequence;
+        private final Condition condition;
+        private boolean granted;
+
+        Waiter(String flow, double finish, long sequence, Condition condition) {
+            this.flow = flow;
+            this.finish = finish;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int result = Double.compare(finish, other.finish);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+
+    }
+
+}
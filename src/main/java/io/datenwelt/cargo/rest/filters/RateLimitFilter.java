@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.filters;
+
+import io.datenwelt.cargo.rest.Filter;
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.PrerenderedResponse;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
+import io.datenwelt.cargo.rest.response.TooManyRequests;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Limits the rate of requests per client with token buckets.
+ * <p>
+ * Each client owns a bucket holding up to {@code capacity} tokens which is
+ * refilled completely within the given period. A request takes one token and
+ * is rejected with a pre-rendered {@code 429 - Too Many Requests} response
+ * carrying a {@code Retry-After} header if the bucket is empty. Clients are
+ * identified by their remote address or by the value of a configurable
+ * header, e.g. an API key. Requests without that header fall back to the
+ * remote address.
+ * <p>
+ * The filter takes part in the "prepare" phase only, so rejected requests are
+ * never parsed. Register it before other filters which provide requests in
+ * that phase. The filter is registered as a single instance and is
+ * thread-safe.
+ * <p>
+ * Buckets are refilled lazily: a bucket is a single number, the time at which
+ * it will be full again, updated with a compare-and-set. No timer thread is
+ * involved. The buckets are spread over a fixed number of stripes. Each stripe
+ * drops its full buckets from time to time while serving requests, which
+ * costs nothing because a full bucket is the same as a new one.
+ *
+ * @author job
+ */
+public class RateLimitFilter implements Filter {
+
+    /**
+     * Number of stripes the buckets are spread over.
+     */
+    static final int STRIPES = 16;
+
+    /**
+     * Shortest time between two evictions of idle buckets in a stripe.
+     */
+    static final long MIN_EVICTION_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int capacity;
+    private final long intervalNanos;
+    private final long evictionNanos;
+    private final String keyHeader;
+    private final PrerenderedResponse tooManyRequests;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a rate limit per remote address.
+     *
+     * @param capacity the number of requests a client can make at once.
+     * @param period the time in which an empty bucket is refilled.
+     * @param unit the unit of the period.
+     */
+    public RateLimitFilter(int capacity, long period, TimeUnit unit) {
+        this(capacity, period, unit, null);
+    }
+
+    /**
+     * Creates a rate limit per value of a request header.
+     *
+     * @param capacity the number of requests a client can make at once.
+     * @param period the time in which an empty bucket is refilled.
+     * @param unit the unit of the period.
+     * @param keyHeader the name of the header identifying the client or
+     * {@code null} to use the remote address.
+     */
+    public RateLimitFilter(int capacity, long period, TimeUnit unit, String keyHeader) {
+        if (capacity < 1 || period <= 0) {
+            throw new IllegalArgumentException("Invalid rate limit: " + capacity + " per " + period + " " + unit);
+        }
+        long periodNanos = unit.toNanos(period);
+        this.capacity = capacity;
+        this.intervalNanos = Math.max(1, periodNanos / capacity);
+        this.evictionNanos = Math.max(MIN_EVICTION_NANOS, periodNanos);
+        this.keyHeader = keyHeader;
+        TooManyRequests response = new TooManyRequests();
+        long retryAfterSeconds = (intervalNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+        response.header("Retry-After", (int) Math.min(Integer.MAX_VALUE, retryAfterSeconds));
+        this.tooManyRequests = new PrerenderedResponse(response);
+        long now = System.nanoTime();
+        for (int idx = 0; idx < STRIPES; idx++) {
+            stripes[idx] = new Stripe(now + evictionNanos);
+        }
+    }
+
+    @Override
+    public Optional<Request> parse(ServletRequest servletRequest) throws APIException {
+        String key = key(servletRequest);
+        if (!tryAcquire(key)) {
+            rejected.increment();
+            throw new StacklessAPIException(tooManyRequests.toResponse(), "Rate limit exceeded for " + key);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Takes a token from the bucket of a client.
+     *
+     * @param key the client.
+     * @return {@code true} if the bucket held a token.
+     */
+    boolean tryAcquire(String key) {
+        long now = System.nanoTime();
+        Stripe stripe = stripes[(key.hashCode() ^ (key.hashCode() >>> 16)) & (STRIPES - 1)];
+        stripe.evict(now, evictionNanos);
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            bucket = new AtomicLong(now);
+            AtomicLong present = stripe.buckets.putIfAbsent(key, bucket);
+            if (present != null) {
+                bucket = present;
+            }
+        }
+        long limit = now + capacity * intervalNanos;
+        while (true) {
+            long full = bucket.get();
+            long next = (full - now > 0 ? full : now) + intervalNanos;
+            if (next - limit > 0) {
+                return false;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of clients with a bucket.
+     *
+     * @return the number of buckets which have not been evicted yet.
+     */
+    public int getKeys() {
+        int keys = 0;
+        for (Stripe stripe : stripes) {
+            keys += stripe.buckets.size();
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the number of rejected requests.
+     *
+     * @return the number of requests turned away since the filter has been
+     * created.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private String key(ServletRequest servletRequest) {
+        if (keyHeader != null && servletRequest instanceof HttpServletRequest) {
+            String value = ((HttpServletRequest) servletRequest).getHeader(keyHeader);
+            if (value != null && !value.isEmpty()) {
+                return value;
+            }
+        }
+        String address = servletRequest.getRemoteAddr();
+        return address != null ? address : "";
+    }
+
+    /**
+     * Part of the buckets. The value of a bucket is the time at which it is
+     * full again.
+     */
+    private static final class Stripe {
+
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final AtomicLong nextEviction;
+
+        Stripe(long nextEviction) {
+            this.nextEviction = new AtomicLong(nextEviction);
+        }
+
+        void evict(long now, long evictionNanos) {
+            long next = nextEviction.get();
+            if (now - next < 0 || !nextEviction.compareAndSet(next, now + evictionNanos)) {
+                return;
+            }
+            buckets.values().removeIf((bucket) -> bucket.get() - now <= 0);
+        }
+
+    }
+
+}
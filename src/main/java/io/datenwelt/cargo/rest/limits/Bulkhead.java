@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.limits;
+
+import io.datenwelt.cargo.rest.Deadline;
+import io.datenwelt.cargo.rest.Endpoint;
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.GatewayTimeout;
+import io.datenwelt.cargo.rest.response.PrerenderedResponse;
+import io.datenwelt.cargo.rest.response.ServiceUnavailable;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Isolates endpoints from each other by bounding the number of requests they
+ * process at the same time.
+ * <p>
+ * Endpoints are put behind a bulkhead by {@link #wrap(Endpoint) wrapping}
+ * them when they are registered:
+ * <pre>
+ *      Bulkhead exports = new Bulkhead(4, 16, 2, TimeUnit.SECONDS);
+ *      router.GET("/reports/{id}/export", exports.wrap(reports::export));
+ * </pre>
+ * A slow endpoint then holds at most as many container threads as the
+ * bulkhead has permits plus waiting places, and the remaining threads stay
+ * available for the other endpoints. Requests finding all permits taken wait
+ * for one, but no longer than the maximum wait time or their
+ * {@link Request#getDeadline() deadline}. Requests finding the queue
+ * full or giving up waiting are turned away with a pre-rendered
+ * {@code 503 - Service Unavailable} response carrying a {@code Retry-After}
+ * header, or with a {@code 504 - Gateway Timeout} if their deadline expired.
+ * <p>
+ * Several endpoints can share one bulkhead. Instances are thread-safe.
+ *
+ * @author job
+ */
+public class Bulkhead {
+
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final PrerenderedResponse unavailable;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a bulkhead.
+     *
+     * @param maxConcurrent the number of requests processed at the same time.
+     * @param maxQueued the number of requests waiting for a permit.
+     * @param maxWait the longest time a request waits for a permit.
+     * @param unit the unit of the maximum wait time.
+     */
+    public Bulkhead(int maxConcurrent, int maxQueued, long maxWait, TimeUnit unit) {
+        this(maxConcurrent, maxQueued, maxWait, unit, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    /**
+     * Creates a bulkhead.
+     *
+     * @param maxConcurrent the number of requests processed at the same time.
+     * @param maxQueued the number of requests waiting for a permit.
+     * @param maxWait the longest time a request waits for a permit.
+     * @param unit the unit of the maximum wait time.
+     * @param retryAfterSeconds the value of the {@code Retry-After} header of
+     * rejected requests.
+     */
+    public Bulkhead(int maxConcurrent, int maxQueued, long maxWait, TimeUnit unit, int retryAfterSeconds) {
+        if (maxConcurrent < 1 || maxQueued < 0 || maxWait < 0) {
+            throw new IllegalArgumentException("Invalid bulkhead: " + maxConcurrent + " concurrent, " + maxQueued + " queued, " + maxWait + " " + unit);
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.permits = new Semaphore(maxConcurrent, true);
+        ServiceUnavailable response = new ServiceUnavailable();
+        response.header("Retry-After", retryAfterSeconds);
+        this.unavailable = new PrerenderedResponse(response);
+    }
+
+    /**
+     * Puts an endpoint behind this bulkhead.
+     *
+     * @param endpoint the endpoint.
+     * @return an endpoint calling the given endpoint within the limits of the
+     * bulkhead.
+     */
+    public Endpoint wrap(Endpoint endpoint) {
+        if (endpoint == null) {
+            throw new IllegalArgumentException("Endpoint must not be null.");
+        }
+        return (request) -> call(endpoint, request);
+    }
+
+    private Response call(Endpoint endpoint, Request request) throws APIException {
+        calls.increment();
+        if (!permits.tryAcquire()) {
+            acquire(request);
+        }
+        try {
+            return endpoint.call(request);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire(Request request) throws APIException {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw new StacklessAPIException(unavailable.toResponse(), "Bulkhead queue is full.");
+        }
+        long start = System.nanoTime();
+        Optional<Deadline> deadline = request != null ? request.getDeadline() : Optional.empty();
+        long timeout = Deadline.waitTime(deadline, maxWaitNanos, TimeUnit.NANOSECONDS);
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeout, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            queued.decrementAndGet();
+            waitNanos.add(System.nanoTime() - start);
+        }
+        if (!acquired) {
+            rejected.increment();
+            if (Deadline.hasExpired(deadline)) {
+                throw new StacklessAPIException(new GatewayTimeout(), "Deadline expired waiting for the bulkhead.");
+            }
+            throw new StacklessAPIException(unavailable.toResponse(), "Timeout waiting for the bulkhead.");
+        }
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * Returns the number of requests being processed.
+     *
+     * @return the number of taken permits.
+     */
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Returns the number of requests waiting for a permit.
+     *
+     * @return the current queue depth.
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the average time requests have waited for a permit. Requests
+     * getting a permit right away count with a wait time of zero.
+     *
+     * @param unit the unit of the result.
+     * @return the average wait time since the bulkhead has been created.
+     */
+    public long getAverageWait(TimeUnit unit) {
+        long count = calls.sum();
+        return count > 0 ? unit.convert(waitNanos.sum() / count, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    /**
+     * Returns the number of rejected requests.
+     *
+     * @return the number of requests turned away since the bulkhead has been
+     * created.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+}
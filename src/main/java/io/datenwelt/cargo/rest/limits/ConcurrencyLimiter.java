@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.limits;
+
+import io.datenwelt.cargo.rest.response.PrerenderedResponse;
+import io.datenwelt.cargo.rest.response.ServiceUnavailable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Adaptive limit for the number of requests processed at the same time.
+ * <p>
+ * The limit follows the observed latency with an additive increase,
+ * multiplicative decrease (AIMD) scheme. Each finished request is a sample.
+ * If it took longer than the latency threshold, the limit is multiplied by
+ * {@value #BACKOFF}. Otherwise the limit grows by one as long as at least half
+ * of it is in use, so an idle limit does not grow without evidence that more
+ * requests can be handled. The limit always stays between its minimum and
+ * maximum.
+ * <p>
+ * Requests above the limit are turned away with a pre-rendered
+ * {@code 503 - Service Unavailable} response carrying a {@code Retry-After}
+ * header. Instances are thread-safe and non-blocking.
+ *
+ * @author job
+ * @see io.datenwelt.cargo.rest.Router#limit(java.lang.String,
+ * io.datenwelt.cargo.rest.limits.ConcurrencyLimiter)
+ */
+public class ConcurrencyLimiter {
+
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    public static final int DEFAULT_MAX_LIMIT = 200;
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+    public static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThreshold;
+    private final PrerenderedResponse unavailable;
+    private final AtomicLong limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a limiter with the default limits.
+     *
+     * @param latencyThreshold the latency above which requests count as
+     * overload.
+     * @param unit the unit of the latency threshold.
+     */
+    public ConcurrencyLimiter(long latencyThreshold, TimeUnit unit) {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, latencyThreshold, unit, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    /**
+     * Creates a limiter.
+     *
+     * @param initialLimit the limit to start with.
+     * @param minLimit the lowest limit.
+     * @param maxLimit the highest limit.
+     * @param latencyThreshold the latency above which requests count as
+     * overload.
+     * @param unit the unit of the latency threshold.
+     * @param retryAfterSeconds the value of the {@code Retry-After} header of
+     * rejected requests.
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThreshold, TimeUnit unit, int retryAfterSeconds) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits: " + minLimit + " - " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThreshold = unit.toNanos(latencyThreshold);
+        this.limit = new AtomicLong(Double.doubleToLongBits(Math.max(minLimit, Math.min(maxLimit, initialLimit))));
+        ServiceUnavailable response = new ServiceUnavailable();
+        response.header("Retry-After", retryAfterSeconds);
+        this.unavailable = new PrerenderedResponse(response);
+    }
+
+    /**
+     * Takes a slot for a request if the limit allows it.
+     *
+     * @return {@code true} if the request may be processed. It has to be
+     * passed to {@link #release(long)} afterwards.
+     */
+    public boolean tryAcquire() {
+        int current = inFlight.get();
+        while (current < getLimit()) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = inFlight.get();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Frees the slot of a processed request and adjusts the limit to its
+     * latency.
+     *
+     * @param startNanos the {@link System#nanoTime()} at which the request
+     * acquired its slot.
+     */
+    public void release(long startNanos) {
+        long latency = System.nanoTime() - startNanos;
+        int current = inFlight.getAndDecrement();
+        long bits;
+        double next;
+        do {
+            bits = limit.get();
+            double value = Double.longBitsToDouble(bits);
+            if (latency > latencyThreshold) {
+                next = Math.max(minLimit, value * BACKOFF);
+            } else if (current * 2 >= value) {
+                next = Math.min(maxLimit, value + 1);
+            } else {
+                return;
+            }
+        } while (!limit.compareAndSet(bits, Double.doubleToLongBits(next)));
+    }
+
+    /**
+     * Sends the pre-rendered {@code 503} response to a rejected request.
+     *
+     * @param servletResponse the response of the servlet container.
+     * @throws IOException if sending fails.
+     */
+    public void reject(HttpServletResponse servletResponse) throws IOException {
+        reject(servletResponse, false);
+    }
+
+    /**
+     * Sends the pre-rendered {@code 503} response to a rejected request.
+     *
+     * @param servletResponse the response of the servlet container.
+     * @param headersOnly whether the body is left out, as for a {@code HEAD}
+     * request.
+     * @throws IOException if sending fails.
+     */
+    public void reject(HttpServletResponse servletResponse, boolean headersOnly) throws IOException {
+        unavailable.send(servletResponse, headersOnly);
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return the number of requests allowed at the same time.
+     */
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    /**
+     * Returns the number of requests being processed.
+     *
+     * @return the number of acquired slots.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns the number of rejected requests.
+     *
+     * @return the number of requests turned away since the limiter has been
+     * created.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+}
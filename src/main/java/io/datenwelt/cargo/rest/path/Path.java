@@ -0,0 +1,399 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import static io.datenwelt.cargo.rest.path.Segment.SEPARATOR;
+import static io.datenwelt.cargo.rest.path.Segment.VALID_CHARS;
+import java.util.Arrays;
+
+/**
+ * Canonical form of a request path together with the boundaries of its
+ * segments.
+ * <p>
+ * The canonical form is the same as produced by
+ * {@link Segment#normalize(java.lang.String)}: every segment starts with a
+ * separator, characters outside of {@link Segment#VALID_CHARS} are percent
+ * encoded, percent encoded octets are written in upper case, "." and ".."
+ * segments are resolved and a trailing separator is dropped. An empty path is
+ * represented by the root segment "/".
+ * <p>
+ * The path is parsed in a single pass with table driven character
+ * classification. If the input already is in canonical form, the input string
+ * is used as is and the only allocation is the array of segment offsets.
+ * Instances are immutable and can be passed on to the router, so the path of a
+ * request is parsed only once.
+ *
+ * @author job
+ */
+public final class Path {
+
+    private static final boolean[] VALID = new boolean[128];
+    private static final byte[] HEX = new byte[128];
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    static {
+        for (int idx = 0; idx < VALID_CHARS.length(); idx++) {
+            VALID[VALID_CHARS.charAt(idx)] = true;
+        }
+        for (int idx = 0; idx < HEX.length; idx++) {
+            HEX[idx] = -1;
+        }
+        for (int idx = 0; idx < 16; idx++) {
+            HEX[HEX_DIGITS[idx]] = (byte) idx;
+            HEX[Character.toLowerCase(HEX_DIGITS[idx])] = (byte) idx;
+        }
+    }
+
+    private static final Path ROOT = new Path(SEPARATOR.toString(), new int[]{0, 1});
+
+    private final String value;
+    private final int[] offsets;
+    private String path;
+
+    private Path(String value, int[] offsets) {
+        this.value = value;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns the canonical form of a path.
+     *
+     * @param input the path, may be {@code null}.
+     * @return the canonical path.
+     */
+    public static Path parse(String input) {
+        return parse(input, 0);
+    }
+
+    /**
+     * Returns the canonical form of the part of a string starting at an index.
+     * This is used to strip a known prefix like the servlet path without
+     * copying the string first.
+     *
+     * @param input the string containing the path, may be {@code null}.
+     * @param from the index at which the path starts.
+     * @return the canonical path.
+     */
+    public static Path parse(String input, int from) {
+        if (input == null || from >= input.length()) {
+            return ROOT;
+        }
+        int count = countCanonical(input, from);
+        if (count > 0) {
+            int[] offsets = new int[count + 1];
+            int idx = 0;
+            for (int pos = from; pos < input.length(); pos++) {
+                if (input.charAt(pos) == SEPARATOR) {
+                    offsets[idx++] = pos;
+                }
+            }
+            offsets[count] = input.length();
+            return new Path(input, offsets);
+        }
+        return canonicalize(input, from);
+    }
+
+    /**
+     * Counts the segments of a string which already is in canonical form.
+     *
+     * @return the number of segments or {@code -1} if the input is not in
+     * canonical form.
+     */
+    private static int countCanonical(String input, int from) {
+        int length = input.length();
+        if (input.charAt(from) != SEPARATOR || (length - from > 1 && input.charAt(length - 1) == SEPARATOR)) {
+            return -1;
+        }
+        int count = 0;
+        int segmentStart = from;
+        for (int pos = from; pos < length; pos++) {
+            char c = input.charAt(pos);
+            if (c == SEPARATOR) {
+                if (isDotSegment(input, segmentStart, pos) && pos > from) {
+                    return -1;
+                }
+                segmentStart = pos;
+                count++;
+            } else if (c == '%') {
+                if (pos + 2 >= length || !isUpperHex(input.charAt(pos + 1)) || !isUpperHex(input.charAt(pos + 2))) {
+                    return -1;
+                }
+                pos += 2;
+            } else if (c >= VALID.length || !VALID[c]) {
+                return -1;
+            }
+        }
+        return isDotSegment(input, segmentStart, length) ? -1 : count;
+    }
+
+    private static boolean isDotSegment(CharSequence input, int from, int to) {
+        int length = to - from;
+        return (length == 2 && input.charAt(from + 1) == '.')
+                || (length == 3 && input.charAt(from + 1) == '.' && input.charAt(from + 2) == '.');
+    }
+
+    private static boolean isUpperHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F');
+    }
+
+    private static Path canonicalize(String input, int from) {
+        int length = input.length();
+        StringBuilder canonical = new StringBuilder(length - from + 16);
+        int[] offsets = new int[8];
+        int count = 0;
+        int pos = from;
+        if (input.charAt(pos) == SEPARATOR) {
+            pos++;
+        }
+        while (true) {
+            int segmentStart = canonical.length();
+            canonical.append(SEPARATOR);
+            while (pos < length && input.charAt(pos) != SEPARATOR) {
+                pos = appendEncoded(input, pos, canonical);
+            }
+            if (isDotSegment(canonical, segmentStart, canonical.length())) {
+                int truncate = segmentStart;
+                if (canonical.length() - segmentStart == 3 && count > 0) {
+                    truncate = offsets[--count];
+                }
+                canonical.setLength(truncate);
+            } else {
+                if (count + 1 >= offsets.length) {
+                    int[] grown = new int[offsets.length * 2];
+                    System.arraycopy(offsets, 0, grown, 0, count);
+                    offsets = grown;
+                }
+                offsets[count++] = segmentStart;
+            }
+            // A separator at the end of the input does not start a segment.
+            if (pos >= length - 1) {
+                break;
+            }
+            pos++;
+        }
+        if (count == 0) {
+            return ROOT;
+        }
+        int[] trimmed = new int[count + 1];
+        System.arraycopy(offsets, 0, trimmed, 0, count);
+        trimmed[count] = canonical.length();
+        return new Path(canonical.toString(), trimmed);
+    }
+
+    /**
+     * Appends the canonical form of the character at a position to a string
+     * builder.
+     *
+     * @param input the input string.
+     * @param pos the position of the character.
+     * @param out the builder receiving the canonical form.
+     * @return the position of the next character to read.
+     */
+    static int appendEncoded(String input, int pos, StringBuilder out) {
+        char c = input.charAt(pos);
+        if (c < VALID.length && VALID[c]) {
+            out.append(c);
+            return pos + 1;
+        }
+        if (c == '%' && pos + 2 < input.length()) {
+            char high = input.charAt(pos + 1);
+            char low = input.charAt(pos + 2);
+            if (high < HEX.length && HEX[high] >= 0 && low < HEX.length && HEX[low] >= 0) {
+                out.append('%').append(HEX_DIGITS[HEX[high]]).append(HEX_DIGITS[HEX[low]]);
+                return pos + 3;
+            }
+        }
+        int codePoint = input.codePointAt(pos);
+        encode(codePoint, out);
+        return pos + Character.charCount(codePoint);
+    }
+
+    /**
+     * Appends the percent encoded UTF-8 octets of a code point to a string
+     * builder.
+     *
+     * @param codePoint the code point to encode.
+     * @param out the builder receiving the encoded octets.
+     */
+    static void encode(int codePoint, StringBuilder out) {
+        if (codePoint < 0x80) {
+            appendOctet(codePoint, out);
+        } else if (codePoint < 0x800) {
+            appendOctet(0xC0 | (codePoint >> 6), out);
+            appendOctet(0x80 | (codePoint & 0x3F), out);
+        } else if (codePoint < 0x10000) {
+            appendOctet(0xE0 | (codePoint >> 12), out);
+            appendOctet(0x80 | ((codePoint >> 6) & 0x3F), out);
+            appendOctet(0x80 | (codePoint & 0x3F), out);
+        } else {
+            appendOctet(0xF0 | (codePoint >> 18), out);
+            appendOctet(0x80 | ((codePoint >> 12) & 0x3F), out);
+            appendOctet(0x80 | ((codePoint >> 6) & 0x3F), out);
+            appendOctet(0x80 | (codePoint & 0x3F), out);
+        }
+    }
+
+    /**
+     * Appends a value for a path variable in canonical form. Other than
+     * {@code appendEncoded()} this encodes every character outside of the
+     * valid characters, including "%" and, unless separators are kept, "/".
+     * The dots of a value or, if separators are kept, of a segment of the
+     * value which is "." or ".." are encoded as well, so the value is not
+     * removed or resolved against the preceding segment when the path is
+     * normalized.
+     *
+     * @param value the raw value.
+     * @param keepSeparators whether "/" is appended as is.
+     * @param out the builder receiving the canonical form.
+     */
+    static void appendValue(String value, boolean keepSeparators, StringBuilder out) {
+        int length = value.length();
+        int segmentStart = 0;
+        for (int pos = 0; pos < length;) {
+            char c = value.charAt(pos);
+            if (keepSeparators && c == SEPARATOR) {
+                out.append(c);
+                pos++;
+                segmentStart = pos;
+            } else if (c == '.' && isDotValue(value, segmentStart, keepSeparators)) {
+                appendOctet(c, out);
+                pos++;
+            } else if (c < VALID.length && VALID[c]) {
+                out.append(c);
+                pos++;
+            } else {
+                int codePoint = value.codePointAt(pos);
+                encode(codePoint, out);
+                pos += Character.charCount(codePoint);
+            }
+        }
+    }
+
+    private static boolean isDotValue(String value, int start, boolean keepSeparators) {
+        int end = keepSeparators ? value.indexOf(SEPARATOR, start) : -1;
+        if (end < 0) {
+            end = value.length();
+        }
+        int length = end - start;
+        return (length == 1 || length == 2) && value.charAt(start) == '.' && value.charAt(end - 1) == '.';
+    }
+
+    private static void appendOctet(int octet, StringBuilder out) {
+        out.append('%').append(HEX_DIGITS[(octet >> 4) & 0xF]).append(HEX_DIGITS[octet & 0xF]);
+    }
+
+    /**
+     * Returns the number of segments. The root path consists of a single empty
+     * segment.
+     *
+     * @return the number of segments.
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the string the segment offsets refer to. This is either the
+     * canonical path itself or a string containing it.
+     *
+     * @return the underlying string.
+     */
+    public String value() {
+        return value;
+    }
+
+    /**
+     * Returns the index of the leading separator of a segment within
+     * {@code value()}.
+     *
+     * @param idx the index of the segment.
+     * @return the start of the segment.
+     */
+    public int start(int idx) {
+        return offsets[idx];
+    }
+
+    /**
+     * Returns the index after the last character of a segment within
+     * {@code value()}.
+     *
+     * @param idx the index of the segment.
+     * @return the end of the segment.
+     */
+    public int end(int idx) {
+        return offsets[idx + 1];
+    }
+
+    /**
+     * Returns a segment including its leading separator.
+     *
+     * @param idx the index of the segment.
+     * @return the segment.
+     */
+    public String segment(int idx) {
+        return value.substring(offsets[idx], offsets[idx + 1]);
+    }
+
+    /**
+     * Returns the part of this path starting at a segment. The underlying
+     * string is shared.
+     *
+     * @param idx the index of the first segment of the sub path.
+     * @return the sub path or the root path if there are no segments left.
+     */
+    public Path subPath(int idx) {
+        if (idx == 0) {
+            return this;
+        }
+        if (idx >= size()) {
+            return ROOT;
+        }
+        return new Path(value, Arrays.copyOfRange(offsets, idx, offsets.length));
+    }
+
+    public boolean isRoot() {
+        return offsets.length == 2 && offsets[1] - offsets[0] == 1;
+    }
+
+    @Override
+    public String toString() {
+        String result = path;
+        if (result == null) {
+            int from = offsets[0];
+            int to = offsets[offsets.length - 1];
+            result = (from == 0 && to == value.length()) ? value : value.substring(from, to);
+            path = result;
+        }
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return toString().equals(obj.toString());
+    }
+
+}
@@ -17,8 +17,15 @@ package io.datenwelt.cargo.rest.path;
 
 import io.datenwelt.cargo.rest.response.APIException;
 import io.datenwelt.cargo.rest.response.BadRequest;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
+import java.util.UUID;
 
 /**
+ * Value of a path variable matched by the router.
+ * <p>
+ * Values of typed path variables like {@code {id:int}} are converted while
+ * routing. The typed accessors return the converted value directly. Values of
+ * untyped variables are converted on each call of a typed accessor.
  *
  * @author job
  */
@@ -26,10 +33,16 @@ public class PathParameter {
     
     private final String name;
     private final String value;
+    private final Object converted;
 
     public PathParameter(String name, String value) {
+        this(name, value, null);
+    }
+
+    public PathParameter(String name, String value, Object converted) {
         this.name = name;
         this.value = value;
+        this.converted = converted;
     }
     
     @Override
@@ -45,13 +58,47 @@ public class PathParameter {
         return value;
     }
 
+    /**
+     * Returns the value converted according to the type of the path variable.
+     *
+     * @return the converted value or the string value for untyped path
+     * variables.
+     */
+    public Object value() {
+        return converted != null ? converted : value;
+    }
+
     public int getInt() throws APIException {
+        if (converted instanceof Integer) {
+            return (Integer) converted;
+        }
         try {
             return Integer.parseInt(value);
         } catch (NumberFormatException ex) {
-            throw new APIException(new BadRequest("Illegal input value for path parameter " + name  + ": Unable to read value '" + value + "' as integer." ));
+            throw new StacklessAPIException(new BadRequest("Illegal input value for path parameter " + name  + ": Unable to read value '" + value + "' as integer." ));
+        }
+    }
+
+    public long getLong() throws APIException {
+        if (converted instanceof Long || converted instanceof Integer) {
+            return ((Number) converted).longValue();
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new StacklessAPIException(new BadRequest("Illegal input value for path parameter " + name  + ": Unable to read value '" + value + "' as long integer." ));
+        }
+    }
+
+    public UUID getUUID() throws APIException {
+        if (converted instanceof UUID) {
+            return (UUID) converted;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException ex) {
+            throw new StacklessAPIException(new BadRequest("Illegal input value for path parameter " + name  + ": Unable to read value '" + value + "' as UUID." ));
         }
     }
     
 }
-
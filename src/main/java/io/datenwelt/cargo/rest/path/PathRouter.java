@@ -21,6 +21,7 @@ import io.datenwelt.cargo.rest.path.Segment.Scanner;
 import io.datenwelt.cargo.rest.path.errors.URITemplateMismatchException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,6 +50,9 @@ public class PathRouter {
             if (nextSegment.equals(SegmentMatcher.PREVIOUS_SEGMENT)) {
                 return new Scanner(scanner.getRemaining());
             }
+            if (nextSegment.isWildcard() && scanner.hasNext()) {
+                throw new InvalidURITemplateException("Wildcard '" + nextSegment + "' must be the last segment of URI template: " + scanner.getInput());
+            }
             PathRouter router = new PathRouter(nextSegment);
             boolean isNewSegment = true;
             for (PathRouter r : routers) {
@@ -70,22 +74,73 @@ public class PathRouter {
         return scanner;
     }
 
+    /**
+     * Removes the endpoint for a HTTP method from the resource below this
+     * router. Child routers which are left without endpoints and without
+     * children of their own are removed.
+     *
+     * @param templates the remaining, normalized segments of the URI path
+     * template. An empty list addresses this router's own resource.
+     * @param method the HTTP method of the endpoint.
+     * @return the removed endpoint or {@code null} if there was none.
+     */
+    public Endpoint unregister(List<SegmentMatcher> templates, String method) {
+        if (templates.isEmpty()) {
+            return endpoints.remove(method);
+        }
+        SegmentMatcher nextSegment = templates.get(0);
+        Iterator<PathRouter> iterator = routers.iterator();
+        while (iterator.hasNext()) {
+            PathRouter router = iterator.next();
+            if (router.template.equals(nextSegment)) {
+                Endpoint removed = router.unregister(templates.subList(1, templates.size()), method);
+                if (router.isEmpty()) {
+                    iterator.remove();
+                }
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if this router neither has endpoints nor child routers.
+     *
+     * @return {@code true} if the router is empty.
+     */
+    public boolean isEmpty() {
+        return endpoints.isEmpty() && routers.isEmpty();
+    }
+
     public Map<String, Endpoint> route(Scanner scanner, List<PathParameter> parameters) throws URITemplateMismatchException {
-        if (!scanner.hasNext()) {
+        Path path = Path.parse(scanner.getRemaining());
+        scanner.terminate();
+        return route(path, path.isRoot() ? 1 : 0, parameters);
+    }
+
+    /**
+     * Finds the endpoints for the remaining segments of a canonical path. The
+     * segments are matched against the child routers in the order of their
+     * registration, without backtracking.
+     *
+     * @param path the canonical path.
+     * @param idx the index of the first segment below this router.
+     * @param parameters the list which receives the matched path parameters.
+     * @return the endpoints found or an empty map.
+     */
+    public Map<String, Endpoint> route(Path path, int idx, List<PathParameter> parameters) {
+        if (idx >= path.size()) {
             return new LinkedHashMap(endpoints);
         }
-        Segment next = Segment.parse(scanner.next());
-        for (int idx = 0; idx < routers.size(); idx++) {
-            PathRouter router = routers.get(idx);
-            int scannerPos = scanner.getPos();
-            List<PathParameter> matchedParams;
-            try {
-                matchedParams = router.getTemplate().match(next);
-            } catch (URITemplateMismatchException ex) {
-                scanner.setPos(scannerPos);
+        String value = path.value();
+        for (PathRouter router : routers) {
+            int to = router.getTemplate().isWildcard() ? path.end(path.size() - 1) : path.end(idx);
+            List<PathParameter> matchedParams = new ArrayList<>();
+            if (!router.getTemplate().match(value, path.start(idx), to, matchedParams)) {
                 continue;
             }
-            Map<String, Endpoint> endpointsFound = router.route(scanner, matchedParams);
+            int next = router.getTemplate().isWildcard() ? path.size() : idx + 1;
+            Map<String, Endpoint> endpointsFound = router.route(path, next, matchedParams);
             parameters.addAll(matchedParams);
             return endpointsFound;
         }
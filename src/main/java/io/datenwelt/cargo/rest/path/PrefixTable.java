@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable table of values keyed by literal path prefixes, like the mount
+ * points of sub-routers.
+ * <p>
+ * The prefixes are kept in a hash table. A lookup probes the table once per
+ * distinct prefix depth with a region of the canonical path, starting with
+ * the deepest prefix, so the longest matching prefix wins and the path is not
+ * copied.
+ *
+ * @author job
+ * @param <V> the type of the values.
+ */
+public class PrefixTable<V> {
+
+    private final RegionTable<Match<V>> matches;
+    private final int[] depths;
+
+    /**
+     * Creates a prefix table.
+     *
+     * @param entries the values by prefix. The prefixes are normalized, see
+     * {@link Path}.
+     */
+    public PrefixTable(Map<String, V> entries) {
+        Map<String, Match<V>> normalized = new HashMap<>();
+        Set<Integer> distinctDepths = new TreeSet<>();
+        for (Map.Entry<String, V> entry : entries.entrySet()) {
+            Path prefix = Path.parse(entry.getKey());
+            int depth = prefix.isRoot() ? 0 : prefix.size();
+            String key = depth == 0 ? "" : prefix.toString();
+            normalized.put(key, new Match<>(key, depth, entry.getValue()));
+            distinctDepths.add(depth);
+        }
+        this.matches = new RegionTable<>(normalized);
+        this.depths = new int[distinctDepths.size()];
+        int idx = depths.length;
+        for (int depth : distinctDepths) {
+            depths[--idx] = depth;
+        }
+    }
+
+    /**
+     * Finds the longest prefix of a path.
+     *
+     * @param path the canonical path.
+     * @return the match for the longest prefix or {@code null} if no prefix
+     * matches.
+     */
+    public Match<V> lookup(Path path) {
+        String value = path.value();
+        int from = path.start(0);
+        int size = path.isRoot() ? 0 : path.size();
+        for (int depth : depths) {
+            if (depth > size) {
+                continue;
+            }
+            Match<V> match = matches.get(value, from, depth == 0 ? from : path.end(depth - 1));
+            if (match != null) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return matches.size() == 0;
+    }
+
+    /**
+     * A prefix found in the table together with its value.
+     *
+     * @param <V> the type of the value.
+     */
+    public static class Match<V> {
+
+        private final String prefix;
+        private final int depth;
+        private final V value;
+
+        Match(String prefix, int depth, V value) {
+            this.prefix = prefix;
+            this.depth = depth;
+            this.value = value;
+        }
+
+        /**
+         * Returns the normalized prefix. The root prefix is represented by an
+         * empty string.
+         *
+         * @return the prefix.
+         */
+        public String getPrefix() {
+            return prefix;
+        }
+
+        /**
+         * Returns the number of segments of the prefix.
+         *
+         * @return the number of segments.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the part of a path below this prefix.
+         *
+         * @param path the path the prefix has been found for.
+         * @return the remaining path.
+         */
+        public Path remainder(Path path) {
+            return path.subPath(path.isRoot() ? 1 : depth);
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Open addressing hash table from strings to values which is probed with a
+ * region of a string, so the region does not have to be copied for the
+ * lookup.
+ *
+ * @author job
+ * @param <V> the type of the values.
+ */
+class RegionTable<V> {
+
+    private final String[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+
+    RegionTable(Map<String, V> entries) {
+        int capacity = 1;
+        while (capacity < entries.size() * 2) {
+            capacity <<= 1;
+        }
+        this.keys = new String[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.size = entries.size();
+        for (Map.Entry<String, V> entry : entries.entrySet()) {
+            int slot = entry.getKey().hashCode() & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = entry.getKey();
+            values[slot] = entry.getValue();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(String input, int from, int to) {
+        if (size == 0) {
+            return null;
+        }
+        // Same hash function as String.hashCode() applied to the region.
+        int hash = 0;
+        for (int pos = from; pos < to; pos++) {
+            hash = 31 * hash + input.charAt(pos);
+        }
+        int length = to - from;
+        for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            String key = keys[slot];
+            if (key.length() == length && input.regionMatches(from, key, 0, length)) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Map.Entry<String, V>> entries() {
+        List<Map.Entry<String, V>> entries = new ArrayList<>(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(keys[slot], (V) values[slot]));
+            }
+        }
+        return entries;
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import io.datenwelt.cargo.rest.Endpoint;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A resolved resource of a compiled {@link RouteTable}. It holds the endpoints
+ * registered for the resource by their HTTP method.
+ * <p>
+ * Instances are immutable and shared between all requests which resolve to the
+ * same resource. The map returned by {@code getEndpoints()} is read-only, so
+ * callers which want to alter the set of endpoints have to copy it first.
+ * <p>
+ * The value of the {@code Allow} header for the resource is rendered once when
+ * the route is created. It lists the registered methods plus {@code HEAD} and
+ * {@code OPTIONS} which the router answers on its own, in alphabetical order.
+ *
+ * @author job
+ */
+public class Route {
+
+    private final Endpoints endpoints;
+
+    public Route(Map<String, Endpoint> endpoints) {
+        Map<String, Endpoint> copy = Collections.unmodifiableMap(new LinkedHashMap<>(endpoints));
+        this.endpoints = new Endpoints(copy, renderAllow(copy));
+    }
+
+    public Map<String, Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Returns the value of the {@code Allow} header for this resource.
+     *
+     * @return the allowed methods separated by commas.
+     */
+    public String getAllow() {
+        return endpoints.allow;
+    }
+
+    /**
+     * Returns the value of the {@code Allow} header for a set of endpoints.
+     * The value is only rendered if the endpoints are not those of a route,
+     * for example because a filter has altered them.
+     *
+     * @param endpoints the endpoints by HTTP method.
+     * @return the allowed methods separated by commas.
+     */
+    public static String allow(Map<String, Endpoint> endpoints) {
+        if (endpoints instanceof Endpoints) {
+            return ((Endpoints) endpoints).allow;
+        }
+        return renderAllow(endpoints);
+    }
+
+    private static String renderAllow(Map<String, Endpoint> endpoints) {
+        Set<String> methods = new TreeSet<>(endpoints.keySet());
+        if (methods.contains("GET")) {
+            methods.add("HEAD");
+        }
+        methods.add("OPTIONS");
+        return String.join(", ", methods);
+    }
+
+    @Override
+    public String toString() {
+        return endpoints.keySet().toString();
+    }
+
+    /**
+     * Read-only endpoints of a route carrying the rendered {@code Allow}
+     * header.
+     */
+    private static final class Endpoints extends AbstractMap<String, Endpoint> {
+
+        private final Map<String, Endpoint> endpoints;
+        private final String allow;
+
+        Endpoints(Map<String, Endpoint> endpoints, String allow) {
+            this.endpoints = endpoints;
+            this.allow = allow;
+        }
+
+        @Override
+        public Endpoint get(Object key) {
+            return endpoints.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return endpoints.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return endpoints.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return endpoints.isEmpty();
+        }
+
+        @Override
+        public Set<Entry<String, Endpoint>> entrySet() {
+            return endpoints.entrySet();
+        }
+
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of resolved request paths. It maps a canonical request path to
+ * the {@link Route} it resolved to and the path parameters extracted on the
+ * way, so frequently requested paths skip template matching.
+ * <p>
+ * The cache evicts the least recently used paths once its capacity is
+ * reached. It is split into stripes by the hash of the path, each stripe with
+ * its own lock and its own share of the capacity, to keep contention low.
+ * <p>
+ * Every entry remembers the {@link RouteTable} it was resolved from. Entries
+ * of an outdated route table are treated as misses, so a cache never returns a
+ * route of a table which has been replaced in the meantime.
+ *
+ * @author job
+ */
+public class RouteCache {
+
+    private static final int MAX_STRIPES = 16;
+
+    private final int capacity;
+    private final Stripe[] stripes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RouteCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity of the route cache must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        int stripeCount = Math.min(MAX_STRIPES, capacity);
+        this.stripes = new Stripe[stripeCount];
+        for (int idx = 0; idx < stripeCount; idx++) {
+            int stripeCapacity = capacity / stripeCount + (idx < capacity % stripeCount ? 1 : 0);
+            stripes[idx] = new Stripe(stripeCapacity);
+        }
+    }
+
+    /**
+     * Returns the cached resolution of a path.
+     *
+     * @param path the request path.
+     * @param table the route table currently in use.
+     * @return the cached entry or {@code null} if the path is not cached or
+     * has been resolved by another route table.
+     */
+    public Entry get(String path, RouteTable table) {
+        Entry entry = stripe(path).get(path);
+        if (entry == null || entry.table != table) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Caches the resolution of a path.
+     *
+     * @param path the request path.
+     * @param table the route table which resolved the path.
+     * @param route the resolved route.
+     * @param parameters the path parameters extracted while resolving the path.
+     */
+    public void put(String path, RouteTable table, Route route, List<PathParameter> parameters) {
+        stripe(path).put(path, new Entry(table, route, parameters));
+    }
+
+    /**
+     * Removes all entries from the cache. The counters are not reset.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private Stripe stripe(String path) {
+        int hash = path.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[(hash & 0x7fffffff) % stripes.length];
+    }
+
+    @Override
+    public String toString() {
+        return "RouteCache{size=" + size() + ", capacity=" + capacity
+                + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + "}";
+    }
+
+    public static class Entry {
+
+        private final RouteTable table;
+        private final Route route;
+        private final List<PathParameter> parameters;
+
+        Entry(RouteTable table, Route route, List<PathParameter> parameters) {
+            this.table = table;
+            this.route = route;
+            this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+        }
+
+        public Route getRoute() {
+            return route;
+        }
+
+        public List<PathParameter> getParameters() {
+            return parameters;
+        }
+
+    }
+
+    private class Stripe {
+
+        private final Map<String, Entry> entries;
+
+        Stripe(int stripeCapacity) {
+            this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    if (size() > stripeCapacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized Entry get(String path) {
+            return entries.get(path);
+        }
+
+        synchronized void put(String path, Entry entry) {
+            entries.put(path, entry);
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+    }
+
+}
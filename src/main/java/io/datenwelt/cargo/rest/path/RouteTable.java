@@ -0,0 +1,277 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import io.datenwelt.cargo.rest.Endpoint;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Compiled, immutable form of a tree of {@link PathRouter} instances.
+ * <p>
+ * The route table is a trie with one node per URI template segment. Child
+ * nodes with a literal template (a template without path variables) are kept
+ * in a hash table keyed by the normalized segment, so they are found with a
+ * single lookup regardless of the number of siblings. Child nodes with path
+ * variables are kept in the order of their registration and are tried one
+ * after another if no literal child matches.
+ * <p>
+ * Lookups backtrack: if a matching child does not lead to a resource with
+ * registered endpoints, the next candidate is tried. Literal children take
+ * precedence over variable children, a wildcard child which matches the
+ * remainder of the path is tried last. Typed path variables are checked while
+ * routing, so a value which does not fit the type of a variable falls through
+ * to the next candidate.
+ * <p>
+ * Wildcards below a chain of literal segments whose last node has no other
+ * children, like {@code /static/assets/{path*}}, are additionally kept in a
+ * prefix table keyed by the literal prefix. Deep paths below such a prefix
+ * are resolved with a single hash lookup per distinct prefix depth.
+ * <p>
+ * Lookups work on the segment offsets of a {@link Path}. The hash tables are
+ * probed with regions of the path, so routing does not copy segments.
+ * <p>
+ * The table also answers whether a path can be rejected by its first segment
+ * alone, see {@link #rejects(io.datenwelt.cargo.rest.path.Path)}. This is a
+ * single probe of the literal children of the root and allocates nothing.
+ *
+ * @author job
+ */
+public class RouteTable {
+
+    private final Node root;
+    private final RegionTable<Node> prefixes;
+    private final int[] prefixDepths;
+    private final boolean open;
+
+    protected RouteTable(Node root) {
+        this.root = root;
+        boolean anyFirstSegment = root.wildcard != null && root.wildcard.live;
+        for (Node variable : root.variables) {
+            anyFirstSegment |= variable.live;
+        }
+        this.open = anyFirstSegment;
+        Map<String, Node> prefixMap = new HashMap<>();
+        Set<Integer> depths = new TreeSet<>();
+        collectPrefixes(root, "", 0, prefixMap, depths);
+        this.prefixes = new RegionTable<>(prefixMap);
+        this.prefixDepths = new int[depths.size()];
+        int idx = 0;
+        for (int depth : depths) {
+            prefixDepths[idx++] = depth;
+        }
+    }
+
+    /**
+     * Compiles the tree of path routers below the root resource into a route
+     * table.
+     *
+     * @param endpoints the endpoints registered for the root resource.
+     * @param routers the path routers for the first path segment.
+     * @return the compiled route table.
+     */
+    public static RouteTable compile(Map<String, Endpoint> endpoints, List<PathRouter> routers) {
+        return new RouteTable(compile(null, endpoints, routers));
+    }
+
+    private static Node compile(SegmentMatcher template, Map<String, Endpoint> endpoints, List<PathRouter> routers) {
+        Map<String, Node> literals = new HashMap<>();
+        List<Node> variables = new ArrayList<>();
+        Node wildcard = null;
+        for (PathRouter router : routers) {
+            SegmentMatcher childTemplate = router.getTemplate();
+            Node child = compile(childTemplate, router.endpoints, router.getRouters());
+            if (childTemplate.isLiteral()) {
+                literals.put(childTemplate.getDefinition(), child);
+            } else if (childTemplate.isWildcard()) {
+                wildcard = child;
+            } else {
+                variables.add(child);
+            }
+        }
+        Route route = endpoints.isEmpty() ? null : new Route(endpoints);
+        return new Node(template, route, new RegionTable<>(literals), variables.toArray(new Node[variables.size()]), wildcard);
+    }
+
+    private static void collectPrefixes(Node node, String prefix, int depth, Map<String, Node> prefixes, Set<Integer> depths) {
+        // A wildcard is the only candidate for paths below the prefix if the
+        // node has no other children and all nodes above it are literals.
+        if (node.wildcard != null && node.wildcard.route != null
+                && node.literals.size() == 0 && node.variables.length == 0) {
+            prefixes.put(prefix, node.wildcard);
+            depths.add(depth);
+            return;
+        }
+        for (Map.Entry<String, Node> literal : node.literals.entries()) {
+            collectPrefixes(literal.getValue(), prefix + literal.getKey(), depth + 1, prefixes, depths);
+        }
+    }
+
+    /**
+     * Finds the resource for a path. The path is normalized first, see
+     * {@link Path}.
+     *
+     * @param path the path.
+     * @param parameters the list which receives the matched path parameters.
+     * @return the resource for the path or {@code null} if there is none.
+     */
+    public Route lookup(String path, List<PathParameter> parameters) {
+        return lookup(Path.parse(path), parameters);
+    }
+
+    /**
+     * Finds the resource for a canonical path. If a resource is found, the
+     * values of its path variables are appended to {@code parameters}.
+     * Otherwise the list is left untouched.
+     *
+     * @param path the canonical path.
+     * @param parameters the list which receives the matched path parameters.
+     * @return the resource for the path or {@code null} if there is none.
+     */
+    public Route lookup(Path path, List<PathParameter> parameters) {
+        int idx = 0;
+        while (idx < path.size() && path.end(idx) - path.start(idx) == 1) {
+            idx++;
+        }
+        if (prefixDepths.length > 0 && idx == 0) {
+            Route route = lookupPrefix(path, parameters);
+            if (route != null) {
+                return route;
+            }
+        }
+        return lookup(root, path, idx, parameters);
+    }
+
+    /**
+     * Tells whether a path cannot lead to any resource, judged by its first
+     * segment. The check is conservative: if the root has a path variable or a
+     * wildcard which leads to a resource, no path is rejected. Otherwise a path
+     * is rejected if its first segment is none of the literal first segments
+     * of the registered templates, or if no resource is registered below it.
+     * A path which is not rejected may still not resolve to a resource.
+     *
+     * @param path the canonical path.
+     * @return {@code true} if {@code lookup()} is certain to find no resource.
+     */
+    public boolean rejects(Path path) {
+        if (open) {
+            return false;
+        }
+        int idx = 0;
+        while (idx < path.size() && path.end(idx) - path.start(idx) == 1) {
+            idx++;
+        }
+        if (idx == path.size()) {
+            return root.route == null;
+        }
+        Node first = root.literals.get(path.value(), path.start(idx), path.end(idx));
+        return first == null || !first.live;
+    }
+
+    private Route lookupPrefix(Path path, List<PathParameter> parameters) {
+        String value = path.value();
+        int from = path.start(0);
+        for (int depth : prefixDepths) {
+            // Only paths extending below the prefix are candidates.
+            if (depth >= path.size()) {
+                return null;
+            }
+            Node wildcard = prefixes.get(value, from, path.start(depth));
+            if (wildcard != null) {
+                wildcard.template.match(value, path.start(depth), path.end(path.size() - 1), parameters);
+                return wildcard.route;
+            }
+        }
+        return null;
+    }
+
+    private static Route lookup(Node node, Path path, int idx, List<PathParameter> parameters) {
+        String value = path.value();
+        int size = path.size();
+        int pathEnd = path.end(size - 1);
+        if (idx == size) {
+            if (node.route == null && node.wildcard != null) {
+                return lookupWildcard(node.wildcard, value, pathEnd, pathEnd, parameters);
+            }
+            return node.route;
+        }
+        int from = path.start(idx);
+        int to = path.end(idx);
+        Node literal = node.literals.get(value, from, to);
+        if (literal != null) {
+            Route route = lookup(literal, path, idx + 1, parameters);
+            if (route != null) {
+                return route;
+            }
+        }
+        for (Node variable : node.variables) {
+            int mark = parameters.size();
+            if (!variable.template.match(value, from, to, parameters)) {
+                continue;
+            }
+            Route route = lookup(variable, path, idx + 1, parameters);
+            if (route != null) {
+                return route;
+            }
+            parameters.subList(mark, parameters.size()).clear();
+        }
+        if (node.wildcard != null) {
+            return lookupWildcard(node.wildcard, value, from, pathEnd, parameters);
+        }
+        return null;
+    }
+
+    private static Route lookupWildcard(Node wildcard, String value, int from, int to, List<PathParameter> parameters) {
+        if (wildcard.route == null) {
+            return null;
+        }
+        wildcard.template.match(value, from, to, parameters);
+        return wildcard.route;
+    }
+
+    private static class Node {
+
+        private final SegmentMatcher template;
+        private final Route route;
+        private final RegionTable<Node> literals;
+        private final Node[] variables;
+        private final Node wildcard;
+        // Whether there is a resource at this node or below it.
+        private final boolean live;
+
+        Node(SegmentMatcher template, Route route, RegionTable<Node> literals, Node[] variables, Node wildcard) {
+            this.template = template;
+            this.route = route;
+            this.literals = literals;
+            this.variables = variables;
+            this.wildcard = wildcard;
+            boolean hasRoute = route != null || (wildcard != null && wildcard.live);
+            for (Node variable : variables) {
+                hasRoute |= variable.live;
+            }
+            for (Map.Entry<String, Node> literal : literals.entries()) {
+                hasRoute |= literal.getValue().live;
+            }
+            this.live = hasRoute;
+        }
+
+    }
+
+}
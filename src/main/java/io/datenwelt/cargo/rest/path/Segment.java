@@ -15,14 +15,12 @@
  */
 package io.datenwelt.cargo.rest.path;
 
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
@@ -67,37 +65,15 @@ public class Segment {
         if (segment == null) {
             segment = "";
         }
-        try {
-            int pos = 0;
-            StringBuilder seg = new StringBuilder(SEPARATOR.toString());
-            if (segment.length() >= 1 && segment.charAt(0) == SEPARATOR) {
-                pos++;
-            }
-            while (pos < segment.length()) {
-                Character currentChar = segment.charAt(pos);
-                if (VALID_CHARS.indexOf(currentChar) != -1) {
-                    seg.append(currentChar);
-                } else {
-                    if (currentChar == '%' && pos + 3 <= segment.length()) {
-                        Matcher m = PCT_ENCODED.matcher(segment.substring(pos));
-                        if (m.matches()) {
-                            seg.append(m.group(1).toUpperCase());
-                            pos += 3;
-                            continue;
-                        }
-                    }
-                    byte[] bytes = currentChar.toString().getBytes("UTF-8");
-                    seg.append("%");
-                    for (Byte b : bytes) {
-                        seg.append(Integer.toString(b.intValue(), 16).toUpperCase());
-                    }
-                }
-                pos++;
-            }
-            return new Segment(seg.toString());
-        } catch (UnsupportedEncodingException ex) {
-            throw new Error("Your runtime must support UTF-8 to run this module.", ex);
+        int pos = 0;
+        StringBuilder seg = new StringBuilder(segment.length() + 1).append(SEPARATOR);
+        if (segment.length() >= 1 && segment.charAt(0) == SEPARATOR) {
+            pos++;
+        }
+        while (pos < segment.length()) {
+            pos = Path.appendEncoded(segment, pos, seg);
         }
+        return new Segment(seg.toString());
     }
 
     public static Segment[] parseSegments(String input) {
@@ -140,14 +116,15 @@ public class Segment {
         return segmentList.toArray(new Segment[0]);
     }
 
+    /**
+     * Returns the canonical form of a path. See {@link Path} for a
+     * representation which also keeps the boundaries of the segments.
+     *
+     * @param path the path to normalize.
+     * @return the normalized path.
+     */
     public static String normalize(String path) {
-        Segment[] segments = Segment.parseSegments(path);
-        segments = Segment.normalize(segments);
-        StringBuilder normalized = new StringBuilder();
-        for ( Segment seg  : segments ) {
-            normalized.append(seg);
-        }
-        return normalized.toString();
+        return Path.parse(path).toString();
     }
 
     @Override
@@ -19,14 +19,28 @@ import io.datenwelt.cargo.rest.path.errors.URITemplateMismatchException;
 import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
 import static io.datenwelt.cargo.rest.path.Segment.SEPARATOR;
 import static io.datenwelt.cargo.rest.path.Segment.VALID_CHARS;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
+ * Matcher for a single segment of an URI path template.
+ * <p>
+ * A template segment consists of literal characters and path variables in
+ * curly braces. Path variables may be typed, see {@link VariableType} for the
+ * supported types. Matching is done by comparing the literal parts and
+ * checking the characters of the variable parts against their type, without
+ * regular expressions. If a segment contains more than one variable, variables
+ * are matched greedily from left to right.
+ * <p>
+ * The last segment of a template may be a wildcard which matches the remainder
+ * of the path, spanning any number of segments. A named wildcard like
+ * {@code {path*}} passes the remainder without its leading separator as path
+ * parameter. The anonymous wildcard {@code **} matches without a parameter.
  *
  * @author job
  */
@@ -36,20 +50,46 @@ public class SegmentMatcher {
     public final static String VALID_VARIABLE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWabcdefghijklmnopqrstuvwxyz0123456789";
     public final static char VARIABLE_OPEN = '{';
     public final static char VARIABLE_CLOSE = '}';
+    public final static char VARIABLE_TYPE = ':';
+    public final static char VARIABLE_WILDCARD = '*';
+    public final static String WILDCARD = "**";
 
-    public static final SegmentMatcher CURRENT_SEGMENT = new SegmentMatcher(Pattern.compile("\\Q/.\\E"), "/.", new ArrayList<>());
-    public static final SegmentMatcher EMPTY_SEGMENT = new SegmentMatcher(Pattern.compile("\\Q/\\E"), "/.", new ArrayList<>());
+    public static final SegmentMatcher CURRENT_SEGMENT = new SegmentMatcher("/.", new String[]{"/."}, new String[0], new VariableType[0]);
+    public static final SegmentMatcher EMPTY_SEGMENT = new SegmentMatcher("/", new String[]{"/"}, new String[0], new VariableType[0]);
     public static final SegmentMatcher ROOT_SEGMENT = EMPTY_SEGMENT;
-    public static final SegmentMatcher PREVIOUS_SEGMENT = new SegmentMatcher(Pattern.compile("\\Q/..\\E"), "/.", new ArrayList<>());
-    
-    private final Pattern pattern;
+    public static final SegmentMatcher PREVIOUS_SEGMENT = new SegmentMatcher("/..", new String[]{"/.."}, new String[0], new VariableType[0]);
+
     private final String definition;
-    private final List<String> variableNames;
+    private final String[] literals;
+    private final String[] variableNames;
+    private final VariableType[] variableTypes;
+    private final boolean wildcard;
+    private final String patternString;
+    private volatile Pattern pattern;
+
+    protected SegmentMatcher(String definition, String[] literals, String[] variableNames, VariableType[] variableTypes) {
+        this.definition = definition;
+        this.literals = literals;
+        this.variableNames = variableNames;
+        this.variableTypes = variableTypes;
+        this.wildcard = false;
+        StringBuilder regex = new StringBuilder();
+        for (int idx = 0; idx < literals.length; idx++) {
+            if (idx > 0) {
+                regex.append(variableTypes[idx - 1].getPattern());
+            }
+            regex.append("\\Q").append(literals[idx]).append("\\E");
+        }
+        this.patternString = regex.toString();
+    }
 
-    protected SegmentMatcher(Pattern pattern, String definition, List<String> variableNames) {
-        this.pattern = pattern;
+    private SegmentMatcher(String definition, String variableName) {
         this.definition = definition;
-        this.variableNames = new ArrayList<>(variableNames);
+        this.literals = new String[]{SEPARATOR.toString()};
+        this.variableNames = variableName != null ? new String[]{variableName} : new String[0];
+        this.variableTypes = variableName != null ? new VariableType[]{VariableType.REMAINDER} : new VariableType[0];
+        this.wildcard = true;
+        this.patternString = "\\Q" + SEPARATOR + "\\E" + VariableType.REMAINDER.getPattern();
     }
 
     public static SegmentMatcher root() {
@@ -59,65 +99,88 @@ public class SegmentMatcher {
             return null;
         }
     }
-    
+
     public static SegmentMatcher parse(String segment) throws InvalidURITemplateException {
         if (segment == null) {
             segment = "";
         }
-        try {
-            int pos = 0;
-            List<String> variables = new ArrayList<>();
-            StringBuilder pattern = new StringBuilder("\\Q" + SEPARATOR.toString());
-            StringBuilder definition = new StringBuilder(SEPARATOR.toString());
-            if (segment.length() >= 1 && segment.charAt(0) == SEPARATOR) {
-                pos++;
+        int pos = 0;
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        List<VariableType> types = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(SEPARATOR.toString());
+        StringBuilder definition = new StringBuilder(SEPARATOR.toString());
+        if (segment.length() >= 1 && segment.charAt(0) == SEPARATOR) {
+            pos++;
+        }
+        String raw = segment.substring(pos);
+        if (raw.equals(WILDCARD)) {
+            return new SegmentMatcher(SEPARATOR + WILDCARD, null);
+        }
+        if (raw.length() > 3 && raw.charAt(0) == VARIABLE_OPEN
+                && raw.endsWith(String.valueOf(VARIABLE_WILDCARD) + VARIABLE_CLOSE)) {
+            String name = raw.substring(1, raw.length() - 2);
+            if (!VARIABLE_PATTERN.matcher(name).matches()) {
+                throw new InvalidURITemplateException("Invalid path variable name '" + name + "' in URI template: " + segment);
             }
-            while (pos < segment.length()) {
-                Character currentChar = segment.charAt(pos);
-                if (VALID_CHARS.indexOf(currentChar) != -1) {
-                    pattern.append(currentChar);
-                    definition.append(currentChar);
-                } else if (currentChar == VARIABLE_OPEN) {
+            return new SegmentMatcher(SEPARATOR + raw, name);
+        }
+        while (pos < segment.length()) {
+            Character currentChar = segment.charAt(pos);
+            if (VALID_CHARS.indexOf(currentChar) != -1) {
+                literal.append(currentChar);
+                definition.append(currentChar);
+            } else if (currentChar == VARIABLE_OPEN) {
+                definition.append(currentChar);
+                StringBuilder variableName = new StringBuilder();
+                while (currentChar != VARIABLE_CLOSE) {
+                    pos++;
+                    if (pos == segment.length()) {
+                        throw new InvalidURITemplateException("Unclosed path variable in URI template: " + segment);
+                    }
+                    currentChar = segment.charAt(pos);
                     definition.append(currentChar);
-                    StringBuilder variableName = new StringBuilder();
-                    while (currentChar != VARIABLE_CLOSE) {
-                        pos++;
-                        if (pos == segment.length()) {
-                            throw new InvalidURITemplateException("Unclosed path variable in URI template: " + segment);
+                    if (currentChar == '/') {
+                        throw new InvalidURITemplateException("Unclosed path variable in URI template: " + segment);
+                    }
+                    if (currentChar == VARIABLE_CLOSE) {
+                        String name = variableName.toString();
+                        String type = "";
+                        int typePos = name.indexOf(VARIABLE_TYPE);
+                        if (typePos != -1) {
+                            type = name.substring(typePos + 1);
+                            name = name.substring(0, typePos);
                         }
-                        currentChar = segment.charAt(pos);
-                        definition.append(currentChar);
-                        if (currentChar == '/') {
-                            throw new InvalidURITemplateException("Unclosed path variable in URI template: " + segment);
+                        if (name.indexOf(VARIABLE_WILDCARD) != -1) {
+                            throw new InvalidURITemplateException("Wildcard path variable '" + name + "' must span a whole segment in URI template: " + segment);
                         }
-                        if (currentChar == VARIABLE_CLOSE) {
-                            pattern.append("\\E(.+)\\Q");
-                            Matcher m = VARIABLE_PATTERN.matcher(variableName);
-                            if (!m.matches()) {
-                                throw new InvalidURITemplateException("Invalid path variable name '" + variableName + "' in URI template: " + segment);
-                            }
-                            variables.add(variableName.toString());
-                            break;
-                        } else {
-                            variableName.append(currentChar);
+                        Matcher m = VARIABLE_PATTERN.matcher(name);
+                        if (!m.matches()) {
+                            throw new InvalidURITemplateException("Invalid path variable name '" + name + "' in URI template: " + segment);
                         }
-                    }
-                } else {
-                    byte[] bytes = currentChar.toString().getBytes("UTF-8");
-                    pattern.append("%");
-                    definition.append("%");
-                    for (Byte b : bytes) {
-                        pattern.append(Integer.toString(b.intValue(), 16).toUpperCase());
-                        definition.append(Integer.toString(b.intValue(), 16).toUpperCase());
+                        literals.add(literal.toString());
+                        literal.setLength(0);
+                        variables.add(name);
+                        types.add(VariableType.parse(type));
+                        break;
+                    } else {
+                        variableName.append(currentChar);
                     }
                 }
-                pos++;
+            } else {
+                int start = literal.length();
+                int codePoint = segment.codePointAt(pos);
+                Path.encode(codePoint, literal);
+                definition.append(literal, start, literal.length());
+                pos += Character.charCount(codePoint) - 1;
             }
-            pattern.append("\\E");
-            return new SegmentMatcher(Pattern.compile(pattern.toString()), definition.toString(), variables);
-        } catch (UnsupportedEncodingException ex) {
-            throw new Error("Your runtime must support UTF-8 to run this module.", ex);
+            pos++;
         }
+        literals.add(literal.toString());
+        return new SegmentMatcher(definition.toString(),
+                literals.toArray(new String[literals.size()]),
+                variables.toArray(new String[variables.size()]),
+                types.toArray(new VariableType[types.size()]));
     }
 
     public static SegmentMatcher[] parseSegments(String input) throws InvalidURITemplateException {
@@ -139,18 +202,119 @@ public class SegmentMatcher {
     }
 
     public List<PathParameter> match(Segment input) throws URITemplateMismatchException {
+        Optional<List<PathParameter>> params = tryMatch(input);
+        if (!params.isPresent()) {
+            throw new URITemplateMismatchException("Segment '" + input + "' does not match URI template '" + definition + "'.");
+        }
+        return params.get();
+    }
+
+    /**
+     * Matches a segment against this template without throwing an exception
+     * on a mismatch.
+     *
+     * @param input the segment.
+     * @return the path parameters of the matched segment or an empty optional
+     * if the segment does not match.
+     */
+    public Optional<List<PathParameter>> tryMatch(String input) {
+        return tryMatch(Segment.parse(input));
+    }
+
+    /**
+     * Matches a segment against this template without throwing an exception
+     * on a mismatch.
+     *
+     * @param input the segment.
+     * @return the path parameters of the matched segment or an empty optional
+     * if the segment does not match.
+     */
+    public Optional<List<PathParameter>> tryMatch(Segment input) {
         String segment = input.toString();
-        Matcher m = pattern.matcher(segment);
-        if ( !m.matches() ) {
-            throw new URITemplateMismatchException("Segment '" + segment + "' does not match URI template '" + definition + "'.");
+        List<PathParameter> params = new ArrayList<>(variableNames.length);
+        if (!match(segment, 0, segment.length(), params)) {
+            return Optional.empty();
+        }
+        return Optional.of(params);
+    }
+
+    /**
+     * Matches a region of a string containing a normalized segment against
+     * this template. The path parameters are appended to the given list if the
+     * region matches. Otherwise the list is left untouched.
+     *
+     * @param input the string containing the segment including its leading
+     * separator.
+     * @param from the index of the segment's leading separator.
+     * @param to the index after the segment's last character. For wildcard
+     * templates the region may span several segments or may be empty.
+     * @param parameters the list which receives the path parameters.
+     * @return {@code true} if the segment matches.
+     */
+    public boolean match(String input, int from, int to, List<PathParameter> parameters) {
+        if (wildcard) {
+            if (variableNames.length > 0) {
+                String value = from < to ? input.substring(from + 1, to) : "";
+                parameters.add(new PathParameter(variableNames[0], value));
+            }
+            return true;
+        }
+        String first = literals[0];
+        if (to - from < first.length() || !input.regionMatches(from, first, 0, first.length())) {
+            return false;
+        }
+        if (variableNames.length == 0) {
+            return to - from == first.length();
+        }
+        int mark = parameters.size();
+        if (matchVariable(0, input, from + first.length(), to, parameters)) {
+            return true;
+        }
+        parameters.subList(mark, parameters.size()).clear();
+        return false;
+    }
+
+    private boolean matchVariable(int idx, String input, int from, int to, List<PathParameter> parameters) {
+        VariableType type = variableTypes[idx];
+        String next = literals[idx + 1];
+        boolean last = idx == variableNames.length - 1;
+        int maxEnd = from;
+        int limit = to - next.length();
+        while (maxEnd < limit && type.accepts(input.charAt(maxEnd))) {
+            maxEnd++;
         }
-        List<PathParameter> params = new ArrayList<>();
-        for ( int idx=0; idx<variableNames.size(); idx++) {
-            String variableValue = m.group(idx+1);
-            PathParameter param = new PathParameter(variableNames.get(idx), variableValue);
-            params.add(param);
+        if (last) {
+            // The last variable has to extend up to the trailing literal.
+            if (maxEnd != limit || maxEnd == from || !input.regionMatches(limit, next, 0, next.length())) {
+                return false;
+            }
+            return addParameter(idx, input, from, limit, parameters);
+        }
+        for (int end = maxEnd; end > from; end--) {
+            if (!input.regionMatches(end, next, 0, next.length())) {
+                continue;
+            }
+            int mark = parameters.size();
+            if (addParameter(idx, input, from, end, parameters)
+                    && matchVariable(idx + 1, input, end + next.length(), to, parameters)) {
+                return true;
+            }
+            parameters.subList(mark, parameters.size()).clear();
+        }
+        return false;
+    }
+
+    private boolean addParameter(int idx, String input, int from, int to, List<PathParameter> parameters) {
+        VariableType type = variableTypes[idx];
+        Object converted = null;
+        if (type.isTyped()) {
+            converted = type.convert(input, from, to);
+            if (converted == null) {
+                return false;
+            }
         }
-        return params;
+        parameters.add(new PathParameter(variableNames[idx], input.substring(from, to), converted));
+        return true;
     }
     
     public boolean mismatch(String input) {
@@ -158,16 +322,23 @@ public class SegmentMatcher {
     }
     
     public boolean mismatch(Segment input) {
-        try { 
-            match(input);
-            return false;
-        } catch (URITemplateMismatchException ex) {
-            return true;
-        }
+        String segment = input.toString();
+        return !match(segment, 0, segment.length(), new ArrayList<>(variableNames.length));
     }
 
+    /**
+     * Returns a regular expression equivalent to this template. The expression
+     * is compiled on first use and not used for matching.
+     *
+     * @return the regular expression.
+     */
     public Pattern getPattern() {
-        return pattern;
+        Pattern compiled = pattern;
+        if (compiled == null) {
+            compiled = Pattern.compile(patternString);
+            pattern = compiled;
+        }
+        return compiled;
     }
 
     public String getDefinition() {
@@ -175,13 +346,49 @@ public class SegmentMatcher {
     }
 
     public List<String> getVariableNames() {
-        return new ArrayList<>(variableNames);
+        return new ArrayList<>(Arrays.asList(variableNames));
+    }
+
+    public List<VariableType> getVariableTypes() {
+        return new ArrayList<>(Arrays.asList(variableTypes));
+    }
+
+    /**
+     * Returns a literal part of this template. The literal parts surround
+     * the path variables, so there is one more literal part than there are
+     * variables. The first part starts with the separator.
+     *
+     * @param idx the index of the literal part.
+     * @return the literal part in normalized form.
+     */
+    String getLiteral(int idx) {
+        return literals[idx];
+    }
+
+    /**
+     * Checks if this template consists of literal characters only.
+     *
+     * @return {@code true} if the template has no path variables.
+     */
+    public boolean isLiteral() {
+        return variableNames.length == 0 && !wildcard;
+    }
+
+    /**
+     * Checks if this template is a wildcard which matches the remainder of a
+     * path, like {@code {path*}} or {@code **}. Wildcards may only appear as
+     * the last segment of an URI template.
+     *
+     * @return {@code true} for wildcard templates.
+     */
+    public boolean isWildcard() {
+        return wildcard;
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 83 * hash + Objects.hashCode(this.pattern);
+        hash = 83 * hash + Objects.hashCode(this.patternString);
         return hash;
     }
 
@@ -197,7 +404,7 @@ public class SegmentMatcher {
             return false;
         }
         final SegmentMatcher other = (SegmentMatcher) obj;
-        return Objects.equals(this.pattern.pattern(), other.pattern.pattern());
+        return Objects.equals(this.patternString, other.patternString);
     }
 
     @Override
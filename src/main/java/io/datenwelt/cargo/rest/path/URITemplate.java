@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import io.datenwelt.cargo.rest.path.Segment.Scanner;
+import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * URI path template compiled for building paths from values, the reverse of
+ * routing.
+ * <p>
+ * The template is parsed with the same rules as templates registered with the
+ * router and compiled into literal chunks and variable slots. Expanding the
+ * template appends the chunks and the percent encoded values to a single
+ * string builder. Values are encoded like path segments are normalized, so an
+ * expanded path routes back to the template with the same values. Values or
+ * remainder segments which are "." or ".." are encoded as "%2E" and "%2E%2E",
+ * so they cannot escape the template when the path is normalized. Values which
+ * do not fit the type of their variable are rejected.
+ *
+ * @author job
+ */
+public class URITemplate {
+
+    private final String template;
+    private final String[] chunks;
+    private final String[] names;
+    private final VariableType[] types;
+    private final boolean[] remainders;
+    private final int literalLength;
+
+    protected URITemplate(String template, String[] chunks, String[] names, VariableType[] types, boolean[] remainders) {
+        this.template = template;
+        this.chunks = chunks;
+        this.names = names;
+        this.types = types;
+        this.remainders = remainders;
+        int length = 0;
+        for (String chunk : chunks) {
+            length += chunk.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compiles an URI path template.
+     *
+     * @param template the URI path template.
+     * @return the compiled template.
+     * @throws InvalidURITemplateException if the template is invalid.
+     */
+    public static URITemplate parse(String template) throws InvalidURITemplateException {
+        List<SegmentMatcher> segments = new ArrayList<>();
+        Scanner scanner = new Scanner(template);
+        while (scanner.hasNext()) {
+            SegmentMatcher segment = SegmentMatcher.parse(scanner.next());
+            if (segment.equals(SegmentMatcher.CURRENT_SEGMENT)
+                    || (segments.isEmpty() && segment.equals(SegmentMatcher.EMPTY_SEGMENT))) {
+                continue;
+            }
+            if (segment.equals(SegmentMatcher.PREVIOUS_SEGMENT)) {
+                if (!segments.isEmpty()) {
+                    segments.remove(segments.size() - 1);
+                }
+                continue;
+            }
+            if (segment.isWildcard() && scanner.hasNext()) {
+                throw new InvalidURITemplateException("Wildcard '" + segment + "' must be the last segment of URI template: " + template);
+            }
+            segments.add(segment);
+        }
+
+        List<String> chunks = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<VariableType> types = new ArrayList<>();
+        List<Boolean> remainders = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        for (SegmentMatcher segment : segments) {
+            List<String> segmentNames = segment.getVariableNames();
+            List<VariableType> segmentTypes = segment.getVariableTypes();
+            if (segment.isWildcard()) {
+                // The remainder brings its own separator, if there is any.
+                if (!segmentNames.isEmpty()) {
+                    chunks.add(chunk.toString());
+                    chunk.setLength(0);
+                    names.add(segmentNames.get(0));
+                    types.add(segmentTypes.get(0));
+                    remainders.add(true);
+                }
+                continue;
+            }
+            chunk.append(segment.getLiteral(0));
+            for (int idx = 0; idx < segmentNames.size(); idx++) {
+                chunks.add(chunk.toString());
+                chunk.setLength(0);
+                names.add(segmentNames.get(idx));
+                types.add(segmentTypes.get(idx));
+                remainders.add(false);
+                chunk.append(segment.getLiteral(idx + 1));
+            }
+        }
+        chunks.add(chunk.toString());
+        boolean[] remainderFlags = new boolean[remainders.size()];
+        for (int idx = 0; idx < remainderFlags.length; idx++) {
+            remainderFlags[idx] = remainders.get(idx);
+        }
+        return new URITemplate(template,
+                chunks.toArray(new String[chunks.size()]),
+                names.toArray(new String[names.size()]),
+                types.toArray(new VariableType[types.size()]),
+                remainderFlags);
+    }
+
+    /**
+     * Expands the template with values given in the order of the path
+     * variables.
+     *
+     * @param values the values of the path variables. They are converted with
+     * {@code String.valueOf()}.
+     * @return the expanded, normalized path.
+     * @throws IllegalArgumentException if the number of values does not match
+     * the number of path variables or if a value does not fit the type of its
+     * variable.
+     */
+    public String expand(Object... values) {
+        if (values.length != names.length) {
+            throw new IllegalArgumentException("URI template " + template + " requires " + names.length + " values, got " + values.length + ".");
+        }
+        StringBuilder path = new StringBuilder(literalLength + 16 * names.length);
+        path.append(chunks[0]);
+        for (int idx = 0; idx < names.length; idx++) {
+            appendValue(idx, values[idx], path);
+            path.append(chunks[idx + 1]);
+        }
+        return path.length() == 0 ? Segment.SEPARATOR.toString() : path.toString();
+    }
+
+    /**
+     * Expands the template with values given by the names of the path
+     * variables.
+     *
+     * @param values the values by variable name. They are converted with
+     * {@code String.valueOf()}.
+     * @return the expanded, normalized path.
+     * @throws IllegalArgumentException if a value is missing or does not fit
+     * the type of its variable.
+     */
+    public String expand(Map<String, ?> values) {
+        StringBuilder path = new StringBuilder(literalLength + 16 * names.length);
+        path.append(chunks[0]);
+        for (int idx = 0; idx < names.length; idx++) {
+            appendValue(idx, values.get(names[idx]), path);
+            path.append(chunks[idx + 1]);
+        }
+        return path.length() == 0 ? Segment.SEPARATOR.toString() : path.toString();
+    }
+
+    private void appendValue(int idx, Object value, StringBuilder path) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing value for path variable '" + names[idx] + "' of URI template " + template + ".");
+        }
+        String string = String.valueOf(value);
+        if (remainders[idx]) {
+            if (!string.isEmpty()) {
+                if (string.charAt(0) != Segment.SEPARATOR) {
+                    path.append(Segment.SEPARATOR);
+                }
+                Path.appendValue(string, true, path);
+            }
+            return;
+        }
+        int start = path.length();
+        Path.appendValue(string, false, path);
+        int end = path.length();
+        VariableType type = types[idx];
+        boolean valid = end > start;
+        for (int pos = start; valid && pos < end; pos++) {
+            valid = type.accepts(path.charAt(pos));
+        }
+        if (valid && type.isTyped()) {
+            valid = type.convert(path.substring(start, end), 0, end - start) != null;
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("Value '" + string + "' does not fit path variable '" + names[idx] + "' of URI template " + template + ".");
+        }
+    }
+
+    public List<String> getVariableNames() {
+        return new ArrayList<>(Arrays.asList(names));
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+}
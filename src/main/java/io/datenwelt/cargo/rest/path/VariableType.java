@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
+import java.util.UUID;
+
+/**
+ * Type of a path variable in an URI template. The type is given after the
+ * variable name, separated by a colon:
+ * <ul>
+ * <li>{@code {name}} matches any non-empty value.</li>
+ * <li>{@code {id:int}} matches a decimal 32-bit integer.</li>
+ * <li>{@code {id:long}} matches a decimal 64-bit integer.</li>
+ * <li>{@code {id:uuid}} matches an UUID in its canonical form.</li>
+ * <li>{@code {slug:[a-z0-9-]+}} matches a non-empty value consisting of the
+ * characters of the bracket expression. Only single characters and ranges are
+ * supported within the brackets.</li>
+ * <li>{@code {path*}} matches the remainder of the path, see
+ * {@link SegmentMatcher#isWildcard()}.</li>
+ * </ul>
+ * Values are checked character by character while routing, without regular
+ * expressions. Typed values are converted once and passed on with the
+ * {@link PathParameter}.
+ *
+ * @author job
+ */
+public abstract class VariableType {
+
+    public static final VariableType ANY = new VariableType("", "(.+)", false) {
+        @Override
+        public boolean accepts(char c) {
+            return true;
+        }
+    };
+
+    public static final VariableType REMAINDER = new VariableType("*", "(.*)", false) {
+        @Override
+        public boolean accepts(char c) {
+            return true;
+        }
+    };
+
+    public static final VariableType INT = new VariableType("int", "(-?[0-9]{1,10})", true) {
+        @Override
+        public boolean accepts(char c) {
+            return (c >= '0' && c <= '9') || c == '-';
+        }
+
+        @Override
+        public Object convert(String input, int from, int to) {
+            Long value = parseLong(input, from, to, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            return value != null ? value.intValue() : null;
+        }
+    };
+
+    public static final VariableType LONG = new VariableType("long", "(-?[0-9]{1,19})", true) {
+        @Override
+        public boolean accepts(char c) {
+            return (c >= '0' && c <= '9') || c == '-';
+        }
+
+        @Override
+        public Object convert(String input, int from, int to) {
+            return parseLong(input, from, to, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+    };
+
+    public static final VariableType UUID = new VariableType("uuid",
+            "([0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12})", true) {
+        @Override
+        public boolean accepts(char c) {
+            return hex(c) >= 0 || c == '-';
+        }
+
+        @Override
+        public Object convert(String input, int from, int to) {
+            if (to - from != 36) {
+                return null;
+            }
+            long msb = 0;
+            long lsb = 0;
+            int digits = 0;
+            for (int pos = from; pos < to; pos++) {
+                int offset = pos - from;
+                char c = input.charAt(pos);
+                if (offset == 8 || offset == 13 || offset == 18 || offset == 23) {
+                    if (c != '-') {
+                        return null;
+                    }
+                    continue;
+                }
+                int digit = hex(c);
+                if (digit < 0) {
+                    return null;
+                }
+                if (digits < 16) {
+                    msb = (msb << 4) | digit;
+                } else {
+                    lsb = (lsb << 4) | digit;
+                }
+                digits++;
+            }
+            return new UUID(msb, lsb);
+        }
+    };
+
+    private final String name;
+    private final String pattern;
+    private final boolean typed;
+
+    protected VariableType(String name, String pattern, boolean typed) {
+        this.name = name;
+        this.pattern = pattern;
+        this.typed = typed;
+    }
+
+    /**
+     * Returns the type for a type specification from an URI template.
+     *
+     * @param spec the type specification after the colon or an empty string
+     * for untyped variables.
+     * @return the variable type.
+     * @throws InvalidURITemplateException if the type specification is not
+     * supported.
+     */
+    public static VariableType parse(String spec) throws InvalidURITemplateException {
+        switch (spec) {
+            case "":
+                return ANY;
+            case "int":
+                return INT;
+            case "long":
+                return LONG;
+            case "uuid":
+                return UUID;
+            default:
+                return charClass(spec);
+        }
+    }
+
+    private static VariableType charClass(String spec) throws InvalidURITemplateException {
+        int end;
+        if (spec.endsWith("]+")) {
+            end = spec.length() - 2;
+        } else if (spec.endsWith("]")) {
+            end = spec.length() - 1;
+        } else {
+            end = -1;
+        }
+        if (!spec.startsWith("[") || end <= 1 || spec.charAt(1) == '^') {
+            throw new InvalidURITemplateException("Unsupported type '" + spec + "' of path variable. Use int, long, uuid or a bracket expression like [a-z0-9-]+.");
+        }
+        boolean[] table = new boolean[128];
+        for (int pos = 1; pos < end; pos++) {
+            char first = spec.charAt(pos);
+            char last = first;
+            if (pos + 2 < end && spec.charAt(pos + 1) == '-') {
+                last = spec.charAt(pos + 2);
+                pos += 2;
+            }
+            if (first > last || last >= table.length) {
+                throw new InvalidURITemplateException("Invalid character range in type '" + spec + "' of path variable.");
+            }
+            for (char c = first; c <= last; c++) {
+                table[c] = true;
+            }
+        }
+        String pattern = "(" + spec.substring(0, end + 1) + "+)";
+        return new VariableType(spec, pattern, false) {
+            @Override
+            public boolean accepts(char c) {
+                return c < table.length && table[c];
+            }
+        };
+    }
+
+    /**
+     * Checks if a character may appear within a value of this type.
+     *
+     * @param c the character of the normalized path segment.
+     * @return {@code true} if the character is acceptable.
+     */
+    public abstract boolean accepts(char c);
+
+    /**
+     * Converts a value of this type. The characters of the value have already
+     * been checked with {@code accepts()}.
+     *
+     * @param input the string containing the value.
+     * @param from the index of the first character of the value.
+     * @param to the index after the last character of the value.
+     * @return the converted value or {@code null} if the value is not valid
+     * for this type.
+     */
+    public Object convert(String input, int from, int to) {
+        return input.substring(from, to);
+    }
+
+    /**
+     * Checks if this type converts values into something else than a string.
+     *
+     * @return {@code true} for typed variables.
+     */
+    public boolean isTyped() {
+        return typed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns a regular expression equivalent to this type. The expression is
+     * not used for matching but describes the type and distinguishes URI
+     * templates with differently typed variables.
+     *
+     * @return a regular expression for values of this type.
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static Long parseLong(String input, int from, int to, long min, long max) {
+        boolean negative = from < to && input.charAt(from) == '-';
+        int pos = negative ? from + 1 : from;
+        if (pos == to) {
+            return null;
+        }
+        // Accumulate negatively to cover the full range down to the minimum.
+        long limit = negative ? min : -max;
+        long multmin = limit / 10;
+        long value = 0;
+        for (; pos < to; pos++) {
+            int digit = input.charAt(pos) - '0';
+            if (digit < 0 || digit > 9 || value < multmin) {
+                return null;
+            }
+            value *= 10;
+            if (value < limit + digit) {
+                return null;
+            }
+            value -= digit;
+        }
+        return negative ? value : -value;
+    }
+
+}
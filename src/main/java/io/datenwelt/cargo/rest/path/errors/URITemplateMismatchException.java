@@ -16,25 +16,31 @@
 package io.datenwelt.cargo.rest.path.errors;
 
 /**
+ * Signals that a path segment does not match an URI template.
+ * <p>
+ * The exception does not capture a stack trace, since a mismatch is an
+ * expected outcome while routing. Use
+ * {@link io.datenwelt.cargo.rest.path.SegmentMatcher#tryMatch(io.datenwelt.cargo.rest.path.Segment)}
+ * to match without exceptions at all.
  *
  * @author job
  */
 public class URITemplateMismatchException extends Exception {
 
     public URITemplateMismatchException() {
+        super(null, null, false, false);
     }
 
     public URITemplateMismatchException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     public URITemplateMismatchException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 
     public URITemplateMismatchException(Throwable cause) {
-        super(cause);
+        super(cause == null ? null : cause.toString(), cause, false, false);
     }
 
-    
 }
@@ -0,0 +1,633 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.processor;
+
+import io.datenwelt.cargo.rest.Endpoint;
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.Router;
+import io.datenwelt.cargo.rest.annotations.CompiledRouter;
+import io.datenwelt.cargo.rest.annotations.DELETE;
+import io.datenwelt.cargo.rest.annotations.GET;
+import io.datenwelt.cargo.rest.annotations.OPTIONS;
+import io.datenwelt.cargo.rest.annotations.POST;
+import io.datenwelt.cargo.rest.annotations.PUT;
+import io.datenwelt.cargo.rest.annotations.Path;
+import io.datenwelt.cargo.rest.annotations.ResourceBinder;
+import io.datenwelt.cargo.rest.path.PathRouter;
+import io.datenwelt.cargo.rest.path.SegmentMatcher;
+import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
+import io.datenwelt.cargo.rest.response.APIException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor generating routers for resource classes annotated with
+ * {@link CompiledRouter}.
+ * <p>
+ * The URI templates of the resource methods are registered with a
+ * {@link Router} at build time, so they are validated and normalized exactly
+ * like templates registered at runtime. The resulting tree of resources is
+ * then written out as Java code: one private method per resource which
+ * compares the next path segment against the literal templates of its
+ * children with a {@code switch} on the segment length and
+ * {@code String.startsWith()}, tries the children with path variables in the
+ * order of their registration and falls back to a wildcard child. This is the
+ * same order the route table uses. Resource methods are registered in the
+ * {@link ResourceBinder#precedence(java.lang.String) order of precedence} of
+ * their templates, like {@link Router#resource(java.lang.Object)} does, so a
+ * generated router resolves a path to the same method as a router with the
+ * resource bound at runtime.
+ * <p>
+ * Segments with path variables are matched by {@link SegmentMatcher}
+ * constants of the generated class. Endpoints are method references to the
+ * resource methods. Routes registered with the generated router at runtime
+ * are consulted if none of the generated routes matches.
+ * <p>
+ * The processor is registered as a service. It is picked up by the compiler
+ * whenever this library is on the class path of a compilation.
+ *
+ * @author job
+ */
+public class RouterProcessor extends AbstractProcessor {
+
+    private static final Map<Class<? extends Annotation>, String> HTTP_METHODS = new LinkedHashMap<>();
+
+    static {
+        HTTP_METHODS.put(GET.class, "GET");
+        HTTP_METHODS.put(POST.class, "POST");
+        HTTP_METHODS.put(PUT.class, "PUT");
+        HTTP_METHODS.put(DELETE.class, "DELETE");
+        HTTP_METHODS.put(OPTIONS.class, "OPTIONS");
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(CompiledRouter.class.getName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(CompiledRouter.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@CompiledRouter is only applicable to classes.");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            if (type.getNestingKind() != NestingKind.TOP_LEVEL
+                    && (type.getNestingKind() != NestingKind.MEMBER || !type.getModifiers().contains(Modifier.STATIC))) {
+                error(type, "@CompiledRouter is only applicable to top level or static nested classes.");
+                continue;
+            }
+            try {
+                generate(type);
+            } catch (InvalidURITemplateException ex) {
+                error(type, ex.getMessage());
+            } catch (IOException ex) {
+                error(type, "Unable to write router for " + type.getQualifiedName() + ": " + ex.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws InvalidURITemplateException, IOException {
+        Path classPath = type.getAnnotation(Path.class);
+        String base = classPath != null ? classPath.value() : "";
+        TemplateTree tree = new TemplateTree();
+        int declared = 0;
+        boolean instanceMethods = false;
+        List<Declaration> declarations = new ArrayList<>();
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+            ExecutableElement method = (ExecutableElement) member;
+            List<String> httpMethods = new ArrayList<>();
+            for (Map.Entry<Class<? extends Annotation>, String> httpMethod : HTTP_METHODS.entrySet()) {
+                if (method.getAnnotation(httpMethod.getKey()) != null) {
+                    httpMethods.add(httpMethod.getValue());
+                }
+            }
+            if (httpMethods.isEmpty()) {
+                continue;
+            }
+            if (!isEndpoint(method)) {
+                return;
+            }
+            Path methodPath = method.getAnnotation(Path.class);
+            String template = ResourceBinder.join(base, methodPath != null ? methodPath.value() : "");
+            try {
+                declarations.add(new Declaration(method, httpMethods, template, ResourceBinder.precedence(template)));
+            } catch (InvalidURITemplateException ex) {
+                error(method, ex.getMessage());
+                return;
+            }
+            instanceMethods |= !method.getModifiers().contains(Modifier.STATIC);
+        }
+        declarations.sort(Comparator.comparing((Declaration declaration) -> declaration.precedence)
+                .thenComparing((declaration) -> declaration.template)
+                .thenComparing((declaration) -> declaration.method.getSimpleName().toString()));
+        for (Declaration declaration : declarations) {
+            for (String httpMethod : declaration.httpMethods) {
+                try {
+                    tree.register(httpMethod, declaration.template, declaration);
+                } catch (InvalidURITemplateException ex) {
+                    error(declaration.method, ex.getMessage());
+                    return;
+                }
+                declared++;
+            }
+        }
+        List<Node> nodes = new ArrayList<>();
+        Node root = new Node(0, null, tree.getEndpoints(), tree.children());
+        nodes.add(root);
+        collect(root, nodes);
+        int registered = 0;
+        for (Node node : nodes) {
+            registered += node.endpoints.size();
+        }
+        if (registered != declared) {
+            error(type, "Resource class " + type.getQualifiedName() + " declares several endpoints for the same HTTP method and URI template.");
+            return;
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String name = type.getAnnotation(CompiledRouter.class).value();
+        if (name.isEmpty()) {
+            name = type.getSimpleName() + "Router";
+        }
+        String qualifiedName = packageName.isEmpty() ? name : packageName + "." + name;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            new Writer(out, type, name, nodes, instanceMethods, hasDefaultConstructor(type)).write(packageName);
+        }
+    }
+
+    private static void collect(Node node, List<Node> nodes) {
+        for (PathRouter router : node.children) {
+            Node child = new Node(nodes.size(), router.getTemplate(), router.getEndpoints(), router.getRouters());
+            nodes.add(child);
+            node.nodes.add(child);
+            collect(child, nodes);
+        }
+    }
+
+    private boolean isEndpoint(ExecutableElement method) {
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror request = processingEnv.getElementUtils().getTypeElement(Request.class.getName()).asType();
+        TypeMirror response = processingEnv.getElementUtils().getTypeElement(Response.class.getName()).asType();
+        TypeMirror exception = processingEnv.getElementUtils().getTypeElement(APIException.class.getName()).asType();
+        TypeMirror runtimeException = processingEnv.getElementUtils().getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror error = processingEnv.getElementUtils().getTypeElement(Error.class.getName()).asType();
+        List<? extends VariableElement> parameters = method.getParameters();
+        if (method.getModifiers().contains(Modifier.PRIVATE)
+                || parameters.size() != 1
+                || !types.isSameType(parameters.get(0).asType(), request)
+                || !types.isAssignable(method.getReturnType(), response)) {
+            error(method, "Resource method " + method.getSimpleName() + " must not be private, accept a single Request and return a Response."
+                    + " Bind other parameters at runtime with Router.resource().");
+            return false;
+        }
+        for (TypeMirror thrown : method.getThrownTypes()) {
+            if (!types.isAssignable(thrown, exception) && !types.isAssignable(thrown, runtimeException) && !types.isAssignable(thrown, error)) {
+                error(method, "Resource method " + method.getSimpleName() + " must not throw " + thrown + ".");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasDefaultConstructor(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) member).getParameters().isEmpty()
+                    && !member.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Router used to build the tree of resources at compile time.
+     */
+    private static class TemplateTree extends Router {
+
+        List<PathRouter> children() {
+            return getRouters();
+        }
+
+    }
+
+    /**
+     * Placeholder endpoint referring to a resource method.
+     */
+    private static class Declaration implements Endpoint {
+
+        private final ExecutableElement method;
+        private final List<String> httpMethods;
+        private final String template;
+        private final String precedence;
+
+        Declaration(ExecutableElement method, List<String> httpMethods, String template, String precedence) {
+            this.method = method;
+            this.httpMethods = httpMethods;
+            this.template = template;
+            this.precedence = precedence;
+        }
+
+        @Override
+        public Response call(Request request) throws APIException {
+            return null;
+        }
+
+    }
+
+    private static class Node {
+
+        private final int id;
+        private final SegmentMatcher template;
+        private final Map<String, Endpoint> endpoints;
+        private final List<PathRouter> children;
+        private final List<Node> nodes = new ArrayList<>();
+
+        Node(int id, SegmentMatcher template, Map<String, Endpoint> endpoints, List<PathRouter> children) {
+            this.id = id;
+            this.template = template;
+            this.endpoints = new TreeMap<>(endpoints);
+            this.children = children;
+        }
+
+        Node wildcard() {
+            for (Node node : nodes) {
+                if (node.template.isWildcard()) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        boolean hasVariables() {
+            for (Node node : nodes) {
+                if (!node.template.isLiteral()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Writes the source code of a generated router.
+     */
+    private static class Writer {
+
+        private final PrintWriter out;
+        private final String resource;
+        private final String name;
+        private final List<Node> nodes;
+        private final boolean instanceMethods;
+        private final boolean defaultConstructor;
+
+        Writer(PrintWriter out, TypeElement type, String name, List<Node> nodes, boolean instanceMethods, boolean defaultConstructor) {
+            this.out = out;
+            this.resource = type.getQualifiedName().toString();
+            this.name = name;
+            this.nodes = nodes;
+            this.instanceMethods = instanceMethods;
+            this.defaultConstructor = defaultConstructor;
+        }
+
+        void write(String packageName) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import io.datenwelt.cargo.rest.Endpoint;");
+            out.println("import io.datenwelt.cargo.rest.Router;");
+            out.println("import io.datenwelt.cargo.rest.path.Path;");
+            out.println("import io.datenwelt.cargo.rest.path.PathParameter;");
+            out.println("import io.datenwelt.cargo.rest.path.Route;");
+            out.println("import io.datenwelt.cargo.rest.path.SegmentMatcher;");
+            out.println("import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;");
+            out.println("import java.util.HashMap;");
+            out.println("import java.util.List;");
+            out.println("import java.util.Map;");
+            out.println();
+            out.println("/**");
+            out.println(" * Router for {@link " + resource + "}, generated by");
+            out.println(" * {@link io.datenwelt.cargo.rest.processor.RouterProcessor}. Do not edit.");
+            out.println(" */");
+            out.println("public class " + name + " extends Router {");
+            out.println();
+            writeFields();
+            writeConstructors();
+            writeRoute();
+            writeRejects();
+            for (Node node : nodes) {
+                writeNode(node);
+            }
+            out.println("}");
+        }
+
+        private void writeFields() {
+            boolean matchers = false;
+            for (Node node : nodes) {
+                if (node.template != null && !node.template.isLiteral()) {
+                    out.println("    private static final SegmentMatcher MATCHER_" + node.id + ";");
+                    matchers = true;
+                }
+            }
+            if (matchers) {
+                out.println();
+                out.println("    static {");
+                out.println("        try {");
+                for (Node node : nodes) {
+                    if (node.template != null && !node.template.isLiteral()) {
+                        out.println("            MATCHER_" + node.id + " = SegmentMatcher.parse(" + literal(decode(node.template.getDefinition())) + ");");
+                    }
+                }
+                out.println("        } catch (InvalidURITemplateException ex) {");
+                out.println("            throw new ExceptionInInitializerError(ex);");
+                out.println("        }");
+                out.println("    }");
+                out.println();
+            }
+            for (Node node : nodes) {
+                if (!node.endpoints.isEmpty()) {
+                    out.println("    private final Route route" + node.id + ";");
+                }
+            }
+            out.println();
+        }
+
+        private void writeConstructors() {
+            if (!instanceMethods) {
+                out.println("    public " + name + "() {");
+                writeRoutes();
+                out.println("    }");
+                out.println();
+                return;
+            }
+            if (defaultConstructor) {
+                out.println("    public " + name + "() {");
+                out.println("        this(new " + resource + "());");
+                out.println("    }");
+                out.println();
+            }
+            out.println("    public " + name + "(" + resource + " resource) {");
+            writeRoutes();
+            out.println("    }");
+            out.println();
+        }
+
+        private void writeRoutes() {
+            boolean declared = false;
+            for (Node node : nodes) {
+                if (node.endpoints.isEmpty()) {
+                    continue;
+                }
+                if (!declared) {
+                    out.println("        Map<String, Endpoint> endpoints;");
+                    declared = true;
+                }
+                out.println("        endpoints = new HashMap<>();");
+                for (Map.Entry<String, Endpoint> endpoint : node.endpoints.entrySet()) {
+                    ExecutableElement method = ((Declaration) endpoint.getValue()).method;
+                    String target = method.getModifiers().contains(Modifier.STATIC) ? resource : "resource";
+                    out.println("        endpoints.put(" + literal(endpoint.getKey()) + ", " + target + "::" + method.getSimpleName() + ");");
+                }
+                out.println("        route" + node.id + " = new Route(endpoints);");
+            }
+        }
+
+        private void writeRoute() {
+            out.println("    @Override");
+            out.println("    protected Map<String, Endpoint> route(Path path, List<PathParameter> parameters) {");
+            writeSkipEmptySegments();
+            out.println("        Map<String, Endpoint> endpoints = node0(path, idx, parameters);");
+            out.println("        return endpoints != null ? endpoints : super.route(path, parameters);");
+            out.println("    }");
+            out.println();
+        }
+
+        private void writeRejects() {
+            Node root = nodes.get(0);
+            out.println("    @Override");
+            out.println("    protected boolean rejects(Path path) {");
+            if (root.hasVariables()) {
+                out.println("        return false;");
+                out.println("    }");
+                out.println();
+                return;
+            }
+            writeSkipEmptySegments();
+            out.println("        if (idx == path.size()) {");
+            out.println("            return " + (root.endpoints.isEmpty() ? "super.rejects(path)" : "false") + ";");
+            out.println("        }");
+            if (!root.nodes.isEmpty()) {
+                out.println("        String value = path.value();");
+                out.println("        int from = path.start(idx);");
+                out.println("        int to = path.end(idx);");
+                writeLiteralSwitch(root, "return false;");
+            }
+            out.println("        return super.rejects(path);");
+            out.println("    }");
+            out.println();
+        }
+
+        private void writeSkipEmptySegments() {
+            out.println("        int idx = 0;");
+            out.println("        while (idx < path.size() && path.end(idx) - path.start(idx) == 1) {");
+            out.println("            idx++;");
+            out.println("        }");
+        }
+
+        private void writeNode(Node node) {
+            Node wildcard = node.wildcard();
+            out.println("    private Map<String, Endpoint> node" + node.id + "(Path path, int idx, List<PathParameter> parameters) {");
+            if (node.template != null && node.template.isWildcard()) {
+                out.println("        int end = path.end(path.size() - 1);");
+                out.println("        MATCHER_" + node.id + ".match(path.value(), idx < path.size() ? path.start(idx) : end, end, parameters);");
+                out.println("        return route" + node.id + ".getEndpoints();");
+                out.println("    }");
+                out.println();
+                return;
+            }
+            if (node.endpoints.isEmpty() && wildcard != null && node.nodes.size() == 1) {
+                out.println("        return node" + wildcard.id + "(path, idx, parameters);");
+                out.println("    }");
+                out.println();
+                return;
+            }
+            out.println("        if (idx == path.size()) {");
+            if (!node.endpoints.isEmpty()) {
+                out.println("            return route" + node.id + ".getEndpoints();");
+            } else if (wildcard != null) {
+                out.println("            return node" + wildcard.id + "(path, idx, parameters);");
+            } else {
+                out.println("            return null;");
+            }
+            out.println("        }");
+            if (!node.nodes.isEmpty() && (wildcard == null || node.nodes.size() > 1)) {
+                out.println("        String value = path.value();");
+                out.println("        int from = path.start(idx);");
+                out.println("        int to = path.end(idx);");
+                out.println("        Map<String, Endpoint> endpoints;");
+                writeLiteralSwitch(node, null);
+                boolean marked = false;
+                for (Node child : node.nodes) {
+                    if (child.template.isLiteral() || child.template.isWildcard()) {
+                        continue;
+                    }
+                    if (!marked) {
+                        out.println("        int mark = parameters.size();");
+                        marked = true;
+                    }
+                    out.println("        if (MATCHER_" + child.id + ".match(value, from, to, parameters)) {");
+                    out.println("            endpoints = node" + child.id + "(path, idx + 1, parameters);");
+                    out.println("            if (endpoints != null) {");
+                    out.println("                return endpoints;");
+                    out.println("            }");
+                    out.println("            parameters.subList(mark, parameters.size()).clear();");
+                    out.println("        }");
+                }
+            }
+            if (wildcard != null) {
+                out.println("        return node" + wildcard.id + "(path, idx, parameters);");
+            } else {
+                out.println("        return null;");
+            }
+            out.println("    }");
+            out.println();
+        }
+
+        /**
+         * Writes a switch on the length of the current segment comparing it
+         * with the literal children of a node. Without an action, a matching
+         * child is routed further.
+         */
+        private void writeLiteralSwitch(Node node, String action) {
+            Map<Integer, List<Node>> byLength = new TreeMap<>();
+            for (Node child : node.nodes) {
+                if (child.template.isLiteral()) {
+                    String definition = child.template.getDefinition();
+                    byLength.computeIfAbsent(definition.length(), (length) -> new ArrayList<>()).add(child);
+                }
+            }
+            if (byLength.isEmpty()) {
+                return;
+            }
+            out.println("        switch (to - from) {");
+            for (Map.Entry<Integer, List<Node>> length : byLength.entrySet()) {
+                out.println("            case " + length.getKey() + ":");
+                for (Node child : length.getValue()) {
+                    out.println("                if (value.startsWith(" + literal(child.template.getDefinition()) + ", from)) {");
+                    if (action != null) {
+                        out.println("                    " + action);
+                    } else {
+                        out.println("                    endpoints = node" + child.id + "(path, idx + 1, parameters);");
+                        out.println("                    if (endpoints != null) {");
+                        out.println("                        return endpoints;");
+                        out.println("                    }");
+                    }
+                    out.println("                }");
+                }
+                out.println("                break;");
+            }
+            out.println("            default:");
+            out.println("                break;");
+            out.println("        }");
+        }
+
+        /**
+         * Decodes the percent encoded literal characters of a template
+         * definition, so parsing it again yields the same template.
+         */
+        private static String decode(String definition) {
+            if (definition.indexOf('%') < 0) {
+                return definition;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (int idx = 0; idx < definition.length(); idx++) {
+                char c = definition.charAt(idx);
+                if (c == '%' && idx + 2 < definition.length()) {
+                    bytes.write(Integer.parseInt(definition.substring(idx + 1, idx + 3), 16));
+                    idx += 2;
+                } else {
+                    byte[] encoded = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+                    bytes.write(encoded, 0, encoded.length);
+                }
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private static String literal(String value) {
+            StringBuilder literal = new StringBuilder("\"");
+            for (int idx = 0; idx < value.length(); idx++) {
+                char c = value.charAt(idx);
+                if (c == '"' || c == '\\') {
+                    literal.append('\\').append(c);
+                } else if (c < 0x20 || c > 0x7E) {
+                    literal.append(String.format("\\u%04X", (int) c));
+                } else {
+                    literal.append(c);
+                }
+            }
+            return literal.append('"').toString();
+        }
+
+    }
+
+}
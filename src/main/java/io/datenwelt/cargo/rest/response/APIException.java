@@ -46,6 +46,19 @@ public class APIException extends Exception {
         this.response = Optional.ofNullable(response).orElse(new InternalServerError());
     }
 
+    /**
+     * Constructor for subclasses which decide whether a stack trace is
+     * captured.
+     *
+     * @param response the response to send.
+     * @param message the detail message.
+     * @param writableStackTrace whether the stack trace is captured.
+     */
+    protected APIException(Response response, String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+        this.response = Optional.ofNullable(response).orElse(new InternalServerError());
+    }
+
     @Override
     public String getMessage() {
         StringBuilder msg = new StringBuilder();
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.response;
+
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.content.ContentEncoder;
+import io.datenwelt.cargo.rest.content.ContentProducer;
+import io.datenwelt.cargo.rest.content.json.JsonProducer;
+import io.datenwelt.cargo.rest.headers.Header;
+import io.datenwelt.cargo.rest.serialization.Json;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Response which has been rendered once and is sent as is to any number of
+ * clients.
+ * <p>
+ * The router uses pre-rendered responses to turn away requests before they are
+ * parsed, for example paths which cannot be routed at all. Status, headers and
+ * the JSON body are fixed when the instance is created. Sending it neither
+ * negotiates the content type nor serializes anything, it only copies the
+ * headers and the body bytes to the servlet response. Instances are immutable
+ * and can be shared between threads.
+ * <p>
+ * Filters can answer requests with a pre-rendered response by throwing an
+ * {@link APIException} carrying the result of {@link #toResponse()}.
+ *
+ * @author job
+ */
+public final class PrerenderedResponse {
+
+    private final int status;
+    private final String[] headerNames;
+    private final String[] headerValues;
+    private final byte[] body;
+
+    /**
+     * Renders a response. A body is serialized as JSON.
+     *
+     * @param response the response to render.
+     */
+    public PrerenderedResponse(Response response) {
+        this.status = response.getStatus();
+        List<String> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (Header header : response.headers().values()) {
+            names.add(header.getName());
+            values.add(header.encoded());
+        }
+        if (response.body().isPresent()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                Json.serialize(out, response.body().get());
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Unable to render response body: " + ex.getMessage(), ex);
+            }
+            this.body = out.toByteArray();
+            names.add("Content-Type");
+            values.add(JsonProducer.CONTENT_TYPE + "; charset=" + JsonProducer.CHARSET);
+        } else {
+            this.body = new byte[0];
+        }
+        this.headerNames = names.toArray(new String[names.size()]);
+        this.headerValues = values.toArray(new String[values.size()]);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the length of the rendered body.
+     *
+     * @return the number of body bytes.
+     */
+    public int getContentLength() {
+        return body.length;
+    }
+
+    /**
+     * Sends the rendered response.
+     *
+     * @param servletResponse the response of the servlet container.
+     * @throws IOException if writing the body fails.
+     */
+    public void send(HttpServletResponse servletResponse) throws IOException {
+        send(servletResponse, false);
+    }
+
+    /**
+     * Sends the rendered response.
+     *
+     * @param servletResponse the response of the servlet container.
+     * @param headersOnly whether the body is left out, as for a {@code HEAD}
+     * request.
+     * @throws IOException if writing the body fails.
+     */
+    public void send(HttpServletResponse servletResponse, boolean headersOnly) throws IOException {
+        servletResponse.setStatus(status);
+        for (int idx = 0; idx < headerNames.length; idx++) {
+            servletResponse.addHeader(headerNames[idx], headerValues[idx]);
+        }
+        servletResponse.setContentLength(body.length);
+        if (body.length > 0 && !headersOnly) {
+            servletResponse.getOutputStream().write(body);
+        }
+        servletResponse.flushBuffer();
+    }
+
+    /**
+     * Wraps the rendered response in a {@link Response} which can be passed
+     * to the router. The wrapper has neither headers nor a body of its own
+     * and ignores the negotiated content type and encoding when it is sent.
+     *
+     * @return a new response sending the rendered bytes.
+     */
+    public Response toResponse() {
+        return new Rendered(this);
+    }
+
+    /**
+     * Response sending the bytes of a pre-rendered response.
+     */
+    private static final class Rendered extends Response {
+
+        private final PrerenderedResponse rendered;
+
+        Rendered(PrerenderedResponse rendered) {
+            super(rendered.status);
+            this.rendered = rendered;
+        }
+
+        @Override
+        public void send(HttpServletResponse servletResponse, ContentProducer contentProducer, ContentEncoder contentEncoder, boolean headersOnly) throws IOException {
+            rendered.send(servletResponse, headersOnly);
+        }
+
+        @Override
+        public long getContentLength() {
+            return rendered.body.length;
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.response;
+
+import io.datenwelt.cargo.rest.Response;
+
+/**
+ * Variant of {@link APIException} for expected HTTP outcomes like a 404 for an
+ * unknown entity or a 400 for invalid input.
+ * <p>
+ * The exception does not capture a stack trace, which makes throwing it
+ * cheap. The router logs it without a stack trace as well. Use a plain
+ * {@code APIException} for unexpected errors which need to be traced.
+ *
+ * @author job
+ */
+public class StacklessAPIException extends APIException {
+
+    public StacklessAPIException(Response response) {
+        super(response, null, false);
+    }
+
+    public StacklessAPIException(Response response, String message) {
+        super(response, message, false);
+    }
+
+}
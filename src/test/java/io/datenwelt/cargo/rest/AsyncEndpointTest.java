@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import com.meterware.httpunit.GetMethodWebRequest;
+import com.meterware.httpunit.WebRequest;
+import com.meterware.httpunit.WebResponse;
+import com.meterware.servletunit.InvocationContext;
+import com.meterware.servletunit.ServletRunner;
+import com.meterware.servletunit.ServletUnitClient;
+import io.datenwelt.cargo.rest.examples.TestAPI;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.NotFound;
+import io.datenwelt.cargo.rest.response.OK;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class AsyncEndpointTest {
+
+    private ExecutorService executor;
+    private Router router;
+
+    public AsyncEndpointTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        router = new Router();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testResponseCompletesLater() throws Exception {
+        AtomicInteger after = new AtomicInteger();
+        router.filter(new Filter() {
+            @Override
+            public Optional<Response> after(Request request, Response response) {
+                after.incrementAndGet();
+                return Optional.empty();
+            }
+        });
+        router.async("GET", "/person", (req) -> CompletableFuture.supplyAsync(() -> {
+            sleep(20);
+            return new OK("Testmann");
+        }, executor));
+        WebResponse response = get(new GetMethodWebRequest("http://localhost/api/person"));
+        assertEquals("HTTP status code", 200, response.getResponseCode());
+        assertEquals("body", "\"Testmann\"", response.getText());
+        assertEquals("after filter", 1, after.get());
+    }
+
+    @Test
+    public void testExceptionalCompletion() throws Exception {
+        router.async("GET", "/missing", (req) -> CompletableFuture.supplyAsync(() -> {
+            throw new IllegalStateException("failure");
+        }, executor));
+        router.async("GET", "/person", (req) -> {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            future.completeExceptionally(new APIException(new NotFound()));
+            return future;
+        });
+        assertEquals("runtime exception", 500, get(new GetMethodWebRequest("http://localhost/api/missing")).getResponseCode());
+        assertEquals("API exception", 404, get(new GetMethodWebRequest("http://localhost/api/person")).getResponseCode());
+    }
+
+    @Test
+    public void testNullResponse() throws Exception {
+        router.async("GET", "/empty", (req) -> null);
+        router.async("GET", "/none", (req) -> CompletableFuture.completedFuture(null));
+        assertEquals("no stage", 204, get(new GetMethodWebRequest("http://localhost/api/empty")).getResponseCode());
+        assertEquals("no response", 204, get(new GetMethodWebRequest("http://localhost/api/none")).getResponseCode());
+    }
+
+    @Test
+    public void testDeadlineCancelsStage() throws Exception {
+        CompletableFuture<Response> never = new CompletableFuture<>();
+        router.async("GET", "/slow", (req) -> never);
+        WebRequest request = new GetMethodWebRequest("http://localhost/api/slow");
+        request.setHeaderField(Router.TIMEOUT_HEADER, "20");
+        assertEquals("HTTP status code", 504, get(request).getResponseCode());
+        assertTrue("stage is cancelled", never.isCancelled());
+    }
+
+    private WebResponse get(WebRequest request) throws Exception {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        sc.setExceptionsThrownOnErrorStatus(false);
+        InvocationContext ic = sc.newInvocation(request);
+        router.service(ic.getRequest(), ic.getResponse());
+        return ic.getServletResponse();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meterware.httpunit.PostMethodWebRequest;
+import com.meterware.httpunit.WebRequest;
+import com.meterware.httpunit.WebResponse;
+import com.meterware.servletunit.InvocationContext;
+import com.meterware.servletunit.ServletRunner;
+import com.meterware.servletunit.ServletUnitClient;
+import io.datenwelt.cargo.rest.examples.TestAPI;
+import io.datenwelt.cargo.rest.response.Created;
+import io.datenwelt.cargo.rest.response.OK;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class BatchEndpointTest {
+
+    private Router router;
+    private BatchEndpoint batch;
+
+    public BatchEndpointTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        router = new Router();
+        router.GET("/person/{name}", (req) -> {
+            OK response = new OK("Hello " + req.param("name").get());
+            response.header("X-Test", "person");
+            return response;
+        });
+        router.POST("/person", (req) -> new Created(req.getBodyAs(String.class).orElse("nobody")));
+        router.GET("/auth", (req) -> new OK(req.header("Authorization").get().asString()));
+        batch = router.batch(BatchEndpoint.DEFAULT_PATH, 4);
+    }
+
+    @After
+    public void tearDown() {
+        router.destroy();
+    }
+
+    @Test
+    public void testBatchRoundtrip() throws Exception {
+        JsonNode results = batch("["
+                + "{\"method\": \"GET\", \"path\": \"/person/Testmann\"},"
+                + "{\"method\": \"POST\", \"path\": \"/person\", \"body\": \"Test\"},"
+                + "{\"method\": \"GET\", \"path\": \"/unknown\"},"
+                + "{\"method\": \"GET\", \"path\": \"/auth\", \"headers\": {\"Authorization\": \"Bearer entry\"}}"
+                + "]");
+        assertEquals("entries", 4, results.size());
+        assertEquals("status", 200, results.get(0).get("status").asInt());
+        assertEquals("body", "Hello Testmann", results.get(0).get("body").asText());
+        assertEquals("headers", "person", results.get(0).get("headers").get("X-Test").asText());
+        assertTrue("content type", results.get(0).get("headers").get("Content-Type").asText().startsWith("application/json"));
+        assertEquals("status", 201, results.get(1).get("status").asInt());
+        assertEquals("body", "Test", results.get(1).get("body").asText());
+        assertEquals("status", 404, results.get(2).get("status").asInt());
+        assertEquals("entry header", "Bearer entry", results.get(3).get("body").asText());
+    }
+
+    @Test
+    public void testEntriesInheritHeaders() throws Exception {
+        WebRequest request = request("[{\"method\": \"GET\", \"path\": \"/auth\"}]");
+        request.setHeaderField("Authorization", "Bearer batch");
+        JsonNode results = send(request);
+        assertEquals("batch header", "Bearer batch", results.get(0).get("body").asText());
+    }
+
+    @Test
+    public void testEntriesRunInParallel() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+        router.GET("/wait", (req) -> {
+            latch.countDown();
+            try {
+                return new OK(latch.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return new OK(false);
+            }
+        });
+        JsonNode results = batch("[{\"method\": \"GET\", \"path\": \"/wait\"}, {\"method\": \"GET\", \"path\": \"/wait\"}]");
+        assertTrue("first entry saw the second one", results.get(0).get("body").asBoolean());
+        assertTrue("second entry saw the first one", results.get(1).get("body").asBoolean());
+    }
+
+    @Test
+    public void testNestedBatchesAreRejected() throws Exception {
+        JsonNode results = batch("[{\"method\": \"POST\", \"path\": \"/_batch\", \"body\": []}]");
+        assertEquals("status", 400, results.get(0).get("status").asInt());
+    }
+
+    @Test
+    public void testInvalidEntriesAreRejected() throws Exception {
+        InvocationContext ic = invoke(request("[{\"method\": \"GET\"}]"));
+        assertEquals("HTTP status code", 400, ic.getServletResponse().getResponseCode());
+        ic = invoke(request("[]"));
+        assertEquals("HTTP status code", 400, ic.getServletResponse().getResponseCode());
+    }
+
+    @Test
+    public void testFullPoolIsRejected() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        router.GET("/block", (req) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return new OK(true);
+        });
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        try {
+            router.batch("/_small", executor, 10);
+            ExecutorService client = Executors.newSingleThreadExecutor();
+            try {
+                Future<JsonNode> first = client.submit(() -> send(request("/_small", "[{\"method\": \"GET\", \"path\": \"/block\"}]")));
+                assertTrue("first batch started", started.await(5, TimeUnit.SECONDS));
+                InvocationContext ic = invoke(request("/_small", "[{\"method\": \"GET\", \"path\": \"/block\"}, {\"method\": \"GET\", \"path\": \"/block\"}]"));
+                assertEquals("HTTP status code", 503, ic.getServletResponse().getResponseCode());
+                release.countDown();
+                assertTrue("first batch", first.get(5, TimeUnit.SECONDS).get(0).get("body").asBoolean());
+            } finally {
+                client.shutdownNow();
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDestroyStopsThePool() throws Exception {
+        assertFalse("running", batch.isShutdown());
+        router.destroy();
+        assertTrue("shut down", batch.isShutdown());
+    }
+
+    private JsonNode batch(String body) throws Exception {
+        return send(request(body));
+    }
+
+    private JsonNode send(WebRequest request) throws Exception {
+        WebResponse response = invoke(request).getServletResponse();
+        assertEquals("HTTP status code", 200, response.getResponseCode());
+        return new ObjectMapper().readTree(response.getText());
+    }
+
+    private InvocationContext invoke(WebRequest request) throws Exception {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        sc.setExceptionsThrownOnErrorStatus(false);
+        InvocationContext ic = sc.newInvocation(request);
+        router.service(ic.getRequest(), ic.getResponse());
+        return ic;
+    }
+
+    private static WebRequest request(String body) {
+        return request(BatchEndpoint.DEFAULT_PATH, body);
+    }
+
+    private static WebRequest request(String path, String body) {
+        return new PostMethodWebRequest("http://localhost/api" + path,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "application/json");
+    }
+
+}
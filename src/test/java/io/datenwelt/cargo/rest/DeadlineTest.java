@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class DeadlineTest {
+
+    public DeadlineTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testRemaining() {
+        Deadline deadline = Deadline.after(1, TimeUnit.HOURS);
+        assertFalse("not expired", deadline.isExpired());
+        long remaining = deadline.remaining(TimeUnit.MINUTES);
+        assertTrue("remaining time", remaining >= 59 && remaining <= 60);
+    }
+
+    @Test
+    public void testExpired() {
+        Deadline deadline = Deadline.after(0, TimeUnit.MILLISECONDS);
+        assertTrue("expired", deadline.isExpired());
+        assertEquals("no time left", 0, deadline.remaining(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testMin() {
+        Deadline early = Deadline.after(1, TimeUnit.SECONDS);
+        Deadline late = Deadline.after(1, TimeUnit.HOURS);
+        assertSame("earlier deadline", early, early.min(late));
+        assertSame("earlier deadline", early, late.min(early));
+        assertSame("missing deadline", late, late.min(null));
+    }
+
+    @Test
+    public void testWaitTime() {
+        assertEquals("without deadline", 5, Deadline.waitTime(Optional.empty(), 5, TimeUnit.SECONDS));
+        assertEquals("distant deadline", 5, Deadline.waitTime(Optional.of(Deadline.after(1, TimeUnit.HOURS)), 5, TimeUnit.SECONDS));
+        assertEquals("close deadline", 0, Deadline.waitTime(Optional.of(Deadline.after(0, TimeUnit.SECONDS)), 5, TimeUnit.SECONDS));
+        assertFalse("without deadline", Deadline.hasExpired(Optional.empty()));
+        assertFalse("distant deadline", Deadline.hasExpired(Optional.of(Deadline.after(1, TimeUnit.HOURS))));
+        assertTrue("expired deadline", Deadline.hasExpired(Optional.of(Deadline.after(0, TimeUnit.SECONDS))));
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import io.datenwelt.cargo.rest.path.Path;
+import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
+import java.util.Optional;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class FilterChainsTest {
+
+    private final Filter global = new NamedFilter("global");
+    private final Filter admin = new NamedFilter("admin");
+    private final Filter users = new NamedFilter("users");
+
+    public FilterChainsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testUnscopedFilters() {
+        Router router = new Router();
+        router.filter(global);
+        FilterChains chains = router.getFilterChains();
+        assertFalse("no scoped filters", chains.isScoped());
+        assertSame("root pipeline for all paths", chains.root(), chains.select(Path.parse("/admin")));
+    }
+
+    @Test
+    public void testScopedFilters() throws InvalidURITemplateException {
+        Router router = new Router();
+        router.filter("/admin/users", users);
+        router.filter(global);
+        router.filter("/admin", admin);
+        FilterChains chains = router.getFilterChains();
+        assertTrue("scoped filters", chains.isScoped());
+        assertEquals("health check", "[global]", names(router, chains.select(Path.parse("/health"))));
+        assertEquals("prefix itself", "[global, admin]", names(router, chains.select(Path.parse("/admin"))));
+        assertEquals("below prefix", "[global, admin]", names(router, chains.select(Path.parse("/admin/groups/1"))));
+        assertEquals("nested prefix in order of registration", "[users, global, admin]", names(router, chains.select(Path.parse("/admin/users/1"))));
+        assertEquals("partial segment", "[global]", names(router, chains.select(Path.parse("/administrator"))));
+        assertEquals("root", "[global]", names(router, chains.select(Path.parse("/"))));
+    }
+
+    @Test
+    public void testScopedFiltersOnly() throws InvalidURITemplateException {
+        Router router = new Router();
+        router.filter("/admin", admin);
+        FilterChains chains = router.getFilterChains();
+        FilterPipeline health = chains.select(Path.parse("/health"));
+        for (int stage = FilterPipeline.PARSE; stage <= FilterPipeline.FINISH; stage++) {
+            assertEquals("health check skips stage " + stage, 0, health.stage(stage).length);
+        }
+    }
+
+    @Test
+    public void testRootPrefixIsUnscoped() throws InvalidURITemplateException {
+        Router router = new Router();
+        router.filter("/", global);
+        assertFalse("no scoped filters", router.getFilterChains().isScoped());
+        assertEquals("root pipeline", "[global]", names(router, router.getFilterChains().root()));
+    }
+
+    @Test
+    public void testRemoveScopedFilter() throws InvalidURITemplateException {
+        Router router = new Router();
+        router.filter("/admin", admin);
+        router.filter("/admin", NamedFilter.class);
+        router.remove(admin);
+        router.remove(NamedFilter.class);
+        assertTrue("all filters removed", router.filters.isEmpty());
+        assertFalse("no scoped filters", router.getFilterChains().isScoped());
+    }
+
+    @Test(expected = InvalidURITemplateException.class)
+    public void testPrefixWithVariable() throws InvalidURITemplateException {
+        new Router().filter("/tenants/{id}", admin);
+    }
+
+    private static String names(Router router, FilterPipeline pipeline) {
+        StringBuilder builder = new StringBuilder("[");
+        for (Filter filter : pipeline.instances(router)) {
+            if (filter != null) {
+                builder.append(builder.length() > 1 ? ", " : "").append(filter);
+            }
+        }
+        return builder.append("]").toString();
+    }
+
+    public static class NamedFilter implements Filter {
+
+        private final String name;
+
+        public NamedFilter() {
+            this("unnamed");
+        }
+
+        public NamedFilter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void finish(Optional<Request> request, Response response) {
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import io.datenwelt.cargo.rest.filters.AccessLog;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class FilterFactoryTest {
+
+    public FilterFactoryTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testClassFactoryCreatesNewInstances() {
+        FilterFactory factory = FilterFactory.of(CountingFilter.class, false);
+        Filter first = factory.create();
+        factory.release(first);
+        Filter second = factory.create();
+        assertTrue("instance of the filter class", first instanceof CountingFilter);
+        assertNotSame("new instance per request", first, second);
+        assertEquals("instance has not been reset", 0, ((CountingFilter) first).resets);
+    }
+
+    @Test
+    public void testPooledFactoryReusesResetInstances() {
+        FilterFactory factory = FilterFactory.of(CountingFilter.class, true);
+        CountingFilter first = (CountingFilter) factory.create();
+        first.requests++;
+        factory.release(first);
+        assertEquals("instance has been reset", 1, first.resets);
+        assertEquals("state has been dropped", 0, first.requests);
+        assertSame("instance is reused", first, factory.create());
+        assertNotSame("pool is empty again", first, factory.create());
+    }
+
+    @Test
+    public void testPoolsAreThreadLocal() throws InterruptedException {
+        FilterFactory factory = FilterFactory.of(CountingFilter.class, true);
+        Filter filter = factory.create();
+        factory.release(filter);
+        AtomicReference<Filter> other = new AtomicReference<>();
+        Thread thread = new Thread(() -> other.set(factory.create()));
+        thread.start();
+        thread.join();
+        assertNotSame("other thread creates its own instance", filter, other.get());
+        assertSame("instance stays in the pool of its thread", filter, factory.create());
+    }
+
+    @Test
+    public void testPoolSizeIsBounded() {
+        FilterFactory factory = FilterFactory.of(CountingFilter.class, true);
+        Filter[] filters = new Filter[FilterFactory.POOL_SIZE + 1];
+        for (int idx = 0; idx < filters.length; idx++) {
+            filters[idx] = factory.create();
+        }
+        for (Filter filter : filters) {
+            factory.release(filter);
+        }
+        assertEquals("surplus instance is not reset", 0, ((CountingFilter) filters[filters.length - 1]).resets);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testClassWithoutDefaultConstructor() {
+        FilterFactory.of(ConfiguredFilter.class, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAbstractClass() {
+        FilterFactory.of(AbstractFilter.class, false);
+    }
+
+    @Test
+    public void testRouterUsesSuppliers() {
+        Router router = new Router();
+        Supplier<Filter> supplier = () -> new ConfiguredFilter("test");
+        router.filter(supplier);
+        FilterPipeline pipeline = router.getFilterChains().root();
+        assertArrayEquals("supplier takes part in all stages", new int[]{0}, pipeline.stage(FilterPipeline.PARSE));
+        Filter[] instances = pipeline.instances(router);
+        assertEquals("filter from supplier", "test", ((ConfiguredFilter) instances[0]).name);
+        router.remove(supplier);
+        assertEquals("supplier has been removed", 0, router.filters.size());
+    }
+
+    @Test
+    public void testRouterRemovesFilterClasses() {
+        Router router = new Router();
+        router.filter(new AccessLog());
+        router.filter(CountingFilter.class, true);
+        router.remove(CountingFilter.class);
+        assertEquals("filter class has been removed", 1, router.filters.size());
+    }
+
+    @Test
+    public void testRouterReleasesPooledInstances() {
+        Router router = new Router();
+        router.filter(CountingFilter.class, true);
+        FilterPipeline pipeline = router.getFilterChains().root();
+        Filter[] instances = pipeline.instances(router);
+        pipeline.release(instances);
+        assertEquals("instance has been reset", 1, ((CountingFilter) instances[0]).resets);
+        assertSame("instance is reused", instances[0], pipeline.instances(router)[0]);
+    }
+
+    public static class CountingFilter implements Filter {
+
+        int requests;
+        int resets;
+
+        @Override
+        public Optional<Request> before(Request request) {
+            requests++;
+            return Optional.empty();
+        }
+
+        @Override
+        public void reset() {
+            requests = 0;
+            resets++;
+        }
+
+    }
+
+    public static class ConfiguredFilter implements Filter {
+
+        final String name;
+
+        public ConfiguredFilter(String name) {
+            this.name = name;
+        }
+
+    }
+
+    public abstract static class AbstractFilter implements Filter {
+
+    }
+
+}
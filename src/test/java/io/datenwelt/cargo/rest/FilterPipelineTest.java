@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import io.datenwelt.cargo.rest.filters.AccessLog;
+import io.datenwelt.cargo.rest.filters.CORSFilter;
+import io.datenwelt.cargo.rest.response.APIException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class FilterPipelineTest {
+
+    static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    public FilterPipelineTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        INSTANCES.set(0);
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testStagesOfOverriddenMethods() {
+        Router router = new Router();
+        router.filter(new AccessLog());
+        router.filter(new CORSFilter());
+        router.filter(BeforeFilter.class);
+        FilterPipeline pipeline = router.getFilterChains().root();
+        assertArrayEquals("parse stage", new int[0], pipeline.stage(FilterPipeline.PARSE));
+        assertArrayEquals("before stage", new int[]{2}, pipeline.stage(FilterPipeline.BEFORE));
+        assertArrayEquals("route stage", new int[]{1}, pipeline.stage(FilterPipeline.ROUTE));
+        assertArrayEquals("after stage", new int[]{1}, pipeline.stage(FilterPipeline.AFTER));
+        assertArrayEquals("finish stage", new int[]{0}, pipeline.stage(FilterPipeline.FINISH));
+    }
+
+    @Test
+    public void testInheritedOverridesAreDetected() {
+        Router router = new Router();
+        router.filter(InheritingFilter.class);
+        FilterPipeline pipeline = router.getFilterChains().root();
+        assertArrayEquals("before stage", new int[]{0}, pipeline.stage(FilterPipeline.BEFORE));
+        assertArrayEquals("finish stage", new int[]{0}, pipeline.stage(FilterPipeline.FINISH));
+        assertArrayEquals("after stage", new int[0], pipeline.stage(FilterPipeline.AFTER));
+    }
+
+    @Test
+    public void testFilterClassesWithoutStagesAreNotInstantiated() {
+        Router router = new Router();
+        router.filter(IdleFilter.class);
+        router.filter(BeforeFilter.class);
+        Filter[] instances = router.getFilterChains().root().instances(router);
+        assertNull("idle filter is left out", instances[0]);
+        assertTrue("before filter is instantiated", instances[1] instanceof BeforeFilter);
+        assertEquals("instances created", 1, INSTANCES.get());
+    }
+
+    @Test
+    public void testPipelineIsCompiledAgainAfterChanges() {
+        Router router = new Router();
+        Filter filter = new AccessLog();
+        router.filter(filter);
+        FilterPipeline pipeline = router.getFilterChains().root();
+        assertSame("pipeline is reused", pipeline, router.getFilterChains().root());
+        router.filter(BeforeFilter.class);
+        assertNotSame("pipeline is compiled after registration", pipeline, router.getFilterChains().root());
+        assertArrayEquals("before stage", new int[]{1}, router.getFilterChains().root().stage(FilterPipeline.BEFORE));
+        router.remove(filter);
+        assertArrayEquals("before stage after removal", new int[]{0}, router.getFilterChains().root().stage(FilterPipeline.BEFORE));
+        assertArrayEquals("finish stage after removal", new int[0], router.getFilterChains().root().stage(FilterPipeline.FINISH));
+    }
+
+    @Test
+    public void testPipelineFollowsDirectListChanges() {
+        Router router = new Router();
+        FilterChains chains = router.getFilterChains();
+        router.filters.add(new AccessLog());
+        assertFalse("pipeline is outdated", chains.isCompiledFrom(router.filters));
+        assertArrayEquals("finish stage", new int[]{0}, router.getFilterChains().root().stage(FilterPipeline.FINISH));
+    }
+
+    @Test
+    public void testUnknownObjectsTakePartInAllStages() {
+        FilterPipeline pipeline = FilterPipeline.compile(Arrays.asList("no filter"));
+        for (int stage = FilterPipeline.PARSE; stage <= FilterPipeline.FINISH; stage++) {
+            assertArrayEquals("stage " + stage, new int[]{0}, pipeline.stage(stage));
+        }
+    }
+
+    public static class IdleFilter implements Filter {
+
+        public IdleFilter() {
+            INSTANCES.incrementAndGet();
+        }
+
+    }
+
+    public static class BeforeFilter implements Filter {
+
+        public BeforeFilter() {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public Optional<Request> before(Request request) throws APIException {
+            return Optional.empty();
+        }
+
+    }
+
+    public static class InheritingFilter extends BeforeFilter {
+
+        @Override
+        public void finish(Optional<Request> request, Response response) {
+        }
+
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest;
+
+import io.datenwelt.cargo.rest.response.APIException;
+import static io.datenwelt.cargo.rest.test.utils.ContentEncodings.contentEncodings;
+import static io.datenwelt.cargo.rest.test.utils.ContentTypes.contentTypes;
+import static io.datenwelt.cargo.rest.test.utils.ServletUtils.createRequest;
+import java.io.IOException;
+import javax.servlet.http.HttpServletRequest;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class RequestDescriptionTest {
+
+    public RequestDescriptionTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testDescribesServletRequest() throws IOException {
+        HttpServletRequest servletRequest = createRequest("GET", "/person/Test");
+        RequestDescription description = new RequestDescription(servletRequest);
+        assertEquals("description of the servlet request", "\"GET http://localhost/person/Test\"", description.toString());
+        assertSame("description is memoized", description.toString(), description.toString());
+    }
+
+    @Test
+    public void testDescribesParsedRequest() throws IOException, APIException {
+        HttpServletRequest servletRequest = createRequest("GET", "/person/Test");
+        RequestDescription description = new RequestDescription(servletRequest);
+        String before = description.toString();
+        Request request = new Request(servletRequest, contentTypes(), contentEncodings());
+        request.query("name", "Testmann");
+        description.update(request);
+        assertNotEquals("description changes with the request", before, description.toString());
+        assertEquals("description of the request", request.toString(), description.toString());
+    }
+
+}
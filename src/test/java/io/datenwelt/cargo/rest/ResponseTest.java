@@ -16,6 +16,9 @@
 package io.datenwelt.cargo.rest;
 
 import io.datenwelt.cargo.rest.examples.TestPerson;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.NotFound;
+import io.datenwelt.cargo.rest.response.StacklessAPIException;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -60,4 +63,11 @@ public class ResponseTest {
         assertTrue("Body present", response.body().isPresent());
     }
     
+    @Test
+    public void testStacklessAPIException() {
+        APIException ex = new StacklessAPIException(new NotFound(), "Unknown person.");
+        assertEquals("Response status", 404, ex.getResponse().getStatus());
+        assertEquals("No stack trace", 0, ex.getStackTrace().length);
+    }
+
 }
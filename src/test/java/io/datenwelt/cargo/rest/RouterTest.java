@@ -23,22 +23,40 @@ import com.meterware.httpunit.HttpException;
 import com.meterware.httpunit.PutMethodWebRequest;
 import com.meterware.httpunit.WebRequest;
 import com.meterware.httpunit.WebResponse;
+import com.meterware.servletunit.InvocationContext;
 import com.meterware.servletunit.ServletRunner;
 import com.meterware.servletunit.ServletUnitClient;
 import io.datenwelt.cargo.rest.examples.TestAPI;
+import io.datenwelt.cargo.rest.examples.TestLimitedAPI;
+import io.datenwelt.cargo.rest.examples.TestMountingAPI;
 import io.datenwelt.cargo.rest.examples.TestPerson;
+import io.datenwelt.cargo.rest.examples.TestPersonResource;
+import io.datenwelt.cargo.rest.examples.TestPersonResourceRouter;
+import io.datenwelt.cargo.rest.examples.TestPrecedenceResource;
+import io.datenwelt.cargo.rest.examples.TestPrecedenceResourceRouter;
+import io.datenwelt.cargo.rest.path.Path;
+import io.datenwelt.cargo.rest.path.PathParameter;
 import io.datenwelt.cargo.rest.path.PathRouter;
+import io.datenwelt.cargo.rest.path.RouteCache;
 import io.datenwelt.cargo.rest.path.SegmentMatcher;
 import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
 import io.datenwelt.cargo.rest.response.APIException;
 import io.datenwelt.cargo.rest.response.MethodNotAllowed;
+import io.datenwelt.cargo.rest.response.OK;
 import static io.datenwelt.cargo.rest.test.utils.ContentEncodings.contentEncodings;
 import static io.datenwelt.cargo.rest.test.utils.ContentTypes.contentTypes;
 import static io.datenwelt.cargo.rest.test.utils.ServletUtils.createRequest;
+import io.datenwelt.cargo.rest.test.utils.ServletUtils.TestWebRequest;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import org.joda.time.LocalDate;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -476,6 +494,145 @@ public class RouterTest {
         }
     }
 
+    @Test
+    public void testRouteCache() throws InvalidURITemplateException, APIException, IOException {
+        Endpoint endpoint = (r) -> {
+            return null;
+        };
+        Router router = new Router();
+        router.routeCache(10);
+        router.register("GET", "/abc/{id}", endpoint);
+        Request request = new Request(createRequest("GET", "/abc/123"), contentTypes(), contentEncodings());
+        router.route(request.getPath(), request.getParameters());
+        request = new Request(createRequest("GET", "/abc/123"), contentTypes(), contentEncodings());
+        Map<String, Endpoint> eps = router.route(request.getPath(), request.getParameters());
+        assertNotNull("Endpoint from cache", eps.get("GET"));
+        assertEquals("Path parameter from cache", "123", request.getParameters().get(0).get());
+        RouteCache cache = router.getRouteCache().get();
+        assertEquals("Cache hits", 1, cache.getHits());
+        assertEquals("Cache misses", 1, cache.getMisses());
+        router.register("POST", "/abc/{id}", endpoint);
+        assertEquals("Cache cleared after registration", 0, cache.size());
+        eps = router.route(request.getPath(), new ArrayList<>());
+        assertEquals("Newly registered endpoint routed", 2, eps.size());
+    }
+
+    @Test
+    public void testUnregister() throws InvalidURITemplateException {
+        Endpoint endpoint = (r) -> {
+            return null;
+        };
+        Router router = new Router();
+        router.register("GET", "/abc/{id}", endpoint);
+        router.register("POST", "/abc/{id}", endpoint);
+        assertEquals("Endpoints before removal", 2, router.route("/abc/123", new ArrayList<>()).size());
+        assertTrue("Endpoint removed", router.unregister("GET", "/abc/{id}").isPresent());
+        assertEquals("Endpoints after removal", 1, router.route("/abc/123", new ArrayList<>()).size());
+        assertFalse("Endpoint already removed", router.unregister("GET", "/abc/{id}").isPresent());
+        assertTrue("Endpoint removed", router.unregister("POST", "/abc/./{id}").isPresent());
+        assertTrue("Resource removed", router.route("/abc/123", new ArrayList<>()).isEmpty());
+        assertEquals("Empty path routers pruned", 0, router.getRouters().size());
+    }
+
+    @Test
+    public void testRegisterWhileRouting() throws Exception {
+        Endpoint endpoint = (r) -> {
+            return null;
+        };
+        Router router = new Router();
+        router.register("GET", "/tenants/{id}", endpoint);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int idx = 0; idx < readers.length; idx++) {
+            readers[idx] = new Thread(() -> {
+                try {
+                    while (running.get()) {
+                        if (router.route("/tenants/123", new ArrayList<>()).get("GET") == null) {
+                            throw new AssertionError("Existing route vanished during registration.");
+                        }
+                    }
+                } catch (Throwable ex) {
+                    failure.set(ex);
+                }
+            });
+            readers[idx].start();
+        }
+        for (int idx = 0; idx < 200; idx++) {
+            router.register("GET", "/tenant" + idx + "/{id}", endpoint);
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull("No failures while routing", failure.get());
+        assertNotNull("Route registered at runtime", router.route("/tenant199/1", new ArrayList<>()).get("GET"));
+    }
+
+    @Test
+    public void testTypedVariableFallsThrough() throws InvalidURITemplateException, APIException {
+        Endpoint byId = (r) -> {
+            return null;
+        };
+        Endpoint byName = (r) -> {
+            return null;
+        };
+        Router router = new Router();
+        router.register("GET", "/persons/{id:long}", byId);
+        router.register("GET", "/persons/{name}", byName);
+        List<PathParameter> params = new ArrayList<>();
+        assertEquals("Numeric value routed to typed template", byId, router.route("/persons/42", params).get("GET"));
+        assertEquals("Converted path parameter", 42L, params.get(0).getLong());
+        params = new ArrayList<>();
+        assertEquals("Other value falls through", byName, router.route("/persons/abc", params).get("GET"));
+        assertEquals("Path parameter of fallback", "abc", params.get(0).get());
+    }
+
+    @Test(expected = InvalidURITemplateException.class)
+    public void testWildcardMustBeLastSegment() throws InvalidURITemplateException {
+        Router router = new Router();
+        router.register("GET", "/static/{path*}/index.html", (r) -> {
+            return null;
+        });
+    }
+
+    @Test
+    public void testWildcardRoute() throws InvalidURITemplateException, APIException {
+        Endpoint assets = (r) -> {
+            return null;
+        };
+        Router router = new Router();
+        router.register("GET", "/static/{path*}", assets);
+        router.register("GET", "/static/index.html", (r) -> {
+            return null;
+        });
+        List<PathParameter> params = new ArrayList<>();
+        assertEquals("Deep path routed to wildcard", assets, router.route("/static/js/lib/../app.js", params).get("GET"));
+        assertEquals("Remainder of the normalized path", "js/app.js", params.get(0).get());
+    }
+
+    @Test
+    public void testLinkRoutesBack() throws InvalidURITemplateException, APIException {
+        Endpoint endpoint = (r) -> {
+            return null;
+        };
+        Router router = new Router();
+        router.register("GET", "/persons/{id:uuid}/tags/{tag}", endpoint);
+        router.name("tag", "/persons/{id:uuid}/tags/{tag}");
+        UUID id = UUID.randomUUID();
+        String link = router.link("tag", id, "c++ & more");
+        List<PathParameter> params = new ArrayList<>();
+        assertEquals("Link routed to endpoint", endpoint, router.route(link, params).get("GET"));
+        assertEquals("First path parameter", id, params.get(0).getUUID());
+        assertEquals("Second path parameter", "c++%20&%20more", params.get(1).get());
+        assertTrue("Named template", router.template("tag").isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLinkUnknownName() {
+        new Router().link("unknown");
+    }
+
     @Test
     public void testFullAPIRoundtrip() throws IOException, SAXException {
         ServletRunner sr = new ServletRunner();
@@ -501,6 +658,115 @@ public class RouterTest {
 
     }
 
+    @Test
+    public void testMountRoundtrip() throws IOException, SAXException {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestMountingAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        WebResponse response = sc.getResponse(new GetMethodWebRequest("http://localhost/api/v1/person/Test/Testmann"));
+        assertEquals("HTTP status code of mounted endpoint", 200, response.getResponseCode());
+        try {
+            sc.getResponse(new GetMethodWebRequest("http://localhost/api/person/Test/Testmann"));
+            fail("Endpoint outside of the mount point found");
+        } catch (HttpException ex) {
+            assertEquals("HTTP status code outside of the mount point", 404, ex.getResponseCode());
+        }
+    }
+
+    @Test
+    public void testVirtualHostRoundtrip() throws IOException, SAXException {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestMountingAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        WebRequest request = new GetMethodWebRequest("http://localhost/api/person/Test/Testmann");
+        request.setHeaderField("Host", "Virtual.Example.com:8080");
+        WebResponse response = sc.getResponse(request);
+        assertEquals("HTTP status code of virtual host", 200, response.getResponseCode());
+    }
+
+    @Test
+    public void testCompiledRouterMatchesRegisteredRoutes() throws InvalidURITemplateException, APIException {
+        TestPersonResource resource = new TestPersonResource();
+        Router compiled = new TestPersonResourceRouter(resource);
+        Router registered = new Router();
+        registered.GET("/person", resource::list);
+        registered.POST("/person", TestPersonResource::create);
+        registered.GET("/person/me", resource::me);
+        registered.GET("/person/{id:int}", resource::byId);
+        registered.DELETE("/person/{id:int}", resource::byId);
+        // Registered in the order of precedence the generated router uses.
+        registered.GET("/person/{firstname}/files/{path*}", resource::files);
+        registered.GET("/person/{firstname}/x-{suffix}", resource::suffixed);
+        registered.GET("/person/{firstname}/{lastname}", resource::byName);
+        registered.GET("/person/ä-{suffix}", resource::encoded);
+        String[] paths = {"/", "/person", "//person/", "/person/me", "/person/123", "/person/-5", "/person/me/you",
+            "/person/Test/Testmann", "/person/123/Testmann", "/person/Test/files", "/person/Test/files/a/b.txt",
+            "/person/Test/x-y", "/person/Test/x-", "/person/%C3%A4-1", "/person/a/b/c", "/other", "/person/files/x/files"};
+        for (String path : paths) {
+            List<PathParameter> compiledParams = new ArrayList<>();
+            List<PathParameter> registeredParams = new ArrayList<>();
+            Map<String, Endpoint> compiledEndpoints = compiled.route(path, compiledParams);
+            Map<String, Endpoint> registeredEndpoints = registered.route(path, registeredParams);
+            assertEquals("HTTP methods for " + path, registeredEndpoints.keySet(), compiledEndpoints.keySet());
+            for (String method : registeredEndpoints.keySet()) {
+                assertEquals("Endpoint for " + method + " " + path,
+                        registeredEndpoints.get(method).call(null).body(),
+                        compiledEndpoints.get(method).call(null).body());
+            }
+            assertEquals("Path parameters for " + path, registeredParams.toString(), compiledParams.toString());
+        }
+    }
+
+    @Test
+    public void testCompiledRouterMatchesBoundResource() throws InvalidURITemplateException, APIException {
+        TestPrecedenceResource resource = new TestPrecedenceResource();
+        Router compiled = new TestPrecedenceResourceRouter(resource);
+        Router bound = new Router();
+        bound.resource(resource);
+        String[][] expected = {{"/p/42", "byNumber"}, {"/p/Test", "byName"}, {"/p/q/7", "byLong"}, {"/p/q/x", "byAny"}};
+        for (String[] entry : expected) {
+            List<PathParameter> compiledParams = new ArrayList<>();
+            List<PathParameter> boundParams = new ArrayList<>();
+            assertEquals("Compiled endpoint for " + entry[0], entry[1], compiled.route(entry[0], compiledParams).get("GET").call(null).body().get());
+            assertEquals("Bound endpoint for " + entry[0], entry[1], bound.route(entry[0], boundParams).get("GET").call(null).body().get());
+            assertEquals("Path parameters for " + entry[0], compiledParams.toString(), boundParams.toString());
+        }
+    }
+
+    @Test
+    public void testCompiledRouterFallsBackToRegisteredRoutes() throws InvalidURITemplateException, APIException {
+        Router router = new TestPersonResourceRouter();
+        router.GET("/other/{id}", (request) -> new OK("other"));
+        router.GET("/person/me", (request) -> new OK("overridden"));
+        List<PathParameter> params = new ArrayList<>();
+        assertEquals("Registered route", "other", router.route("/other/1", params).get("GET").call(null).body().get());
+        assertEquals("Path parameter of registered route", "1", params.get(0).get());
+        assertEquals("Compiled route takes precedence", "me", router.route("/person/me", params).get("GET").call(null).body().get());
+        assertFalse("Compiled first segment", router.rejects(Path.parse("/person/x/y/z")));
+        assertFalse("Registered first segment", router.rejects(Path.parse("/other")));
+        assertTrue("Unknown first segment", router.rejects(Path.parse("/unknown")));
+    }
+
+    @Test
+    public void testFastRejectRoundtrip() throws IOException, SAXException {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestMountingAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        try {
+            sc.getResponse(new GetMethodWebRequest("http://localhost/api/unknown/path"));
+            fail("Unroutable path found");
+        } catch (HttpException ex) {
+            assertEquals("HTTP status code of unroutable path", 404, ex.getResponseCode());
+        }
+        WebResponse response = sc.getResponse(new GetMethodWebRequest("http://localhost/api/v1/person/Test/Testmann"));
+        assertEquals("HTTP status code of mounted endpoint", 200, response.getResponseCode());
+    }
+
+    @Test(expected = InvalidURITemplateException.class)
+    public void testMountWithVariable() throws InvalidURITemplateException {
+        new Router().mount("/tenants/{id}", new Router());
+    }
+
     @Test
     public void testMethodNotAllowedRoundtrip() throws IOException, SAXException {
         ServletRunner sr = new ServletRunner();
@@ -530,4 +796,111 @@ public class RouterTest {
             assertEquals("HTTP status code", 404, responseCode);
         }
     }
+
+    @Test
+    public void testHeadRoundtrip() throws IOException, SAXException {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        WebResponse response = sc.getResponse(new TestWebRequest("HEAD", "/api/person/Test/Testmann"));
+        assertEquals("HTTP status code", 200, response.getResponseCode());
+        assertEquals("No body", 0, response.getText().length());
+        WebResponse get = sc.getResponse(new GetMethodWebRequest("http://localhost/api/person/Test/Testmann"));
+        assertNotNull("GET Content-Type", get.getHeaderField("Content-Type"));
+        assertEquals("Content-Type of HEAD", get.getHeaderField("Content-Type"), response.getHeaderField("Content-Type"));
+    }
+
+    @Test
+    public void testOptionsRoundtrip() throws IOException, SAXException {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        WebResponse response = sc.getResponse(new TestWebRequest("OPTIONS", "/api/person/Test/Testmann"));
+        assertEquals("HTTP status code", 204, response.getResponseCode());
+        assertEquals("Allow header", "GET, HEAD, OPTIONS", response.getHeaderField("Allow"));
+    }
+
+    @Test
+    public void testMethodNotAllowedHasAllowHeader() throws IOException, SAXException {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        sc.setExceptionsThrownOnErrorStatus(false);
+        WebResponse response = sc.getResponse(new TestWebRequest("DELETE", "/api/person"));
+        assertEquals("HTTP status code", 405, response.getResponseCode());
+        assertEquals("Allow header", "OPTIONS, POST", response.getHeaderField("Allow"));
+    }
+
+    @Test
+    public void testConcurrencyLimitRoundtrip() throws IOException, SAXException {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestLimitedAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        sc.setExceptionsThrownOnErrorStatus(false);
+        assertTrue("slot taken", TestLimitedAPI.LIMITER.tryAcquire());
+        long start = System.nanoTime();
+        try {
+            WebResponse response = sc.getResponse(new GetMethodWebRequest("http://localhost/api/person/Test/Testmann"));
+            assertEquals("HTTP status code over limit", 503, response.getResponseCode());
+            assertEquals("Retry-After header", "3", response.getHeaderField("Retry-After"));
+        } finally {
+            TestLimitedAPI.LIMITER.release(start);
+        }
+        WebResponse response = sc.getResponse(new GetMethodWebRequest("http://localhost/api/person/Test/Testmann"));
+        assertEquals("HTTP status code within limit", 200, response.getResponseCode());
+        assertEquals("slot released", 0, TestLimitedAPI.LIMITER.getInFlight());
+    }
+
+    @Test
+    public void testExpiredDeadlineRoundtrip() throws IOException, SAXException {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        sc.setExceptionsThrownOnErrorStatus(false);
+        WebRequest request = new GetMethodWebRequest("http://localhost/api/person/Test/Testmann");
+        request.setHeaderField(Router.TIMEOUT_HEADER, "0");
+        WebResponse response = sc.getResponse(request);
+        assertEquals("HTTP status code", 504, response.getResponseCode());
+        assertEquals("No body", 0, response.getText().length());
+    }
+
+    @Test
+    public void testDeadlineRoundtrip() throws IOException, SAXException {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        WebRequest request = new GetMethodWebRequest("http://localhost/api/person/Test/Testmann");
+        request.setHeaderField(Router.TIMEOUT_HEADER, "60000");
+        WebResponse response = sc.getResponse(request);
+        assertEquals("HTTP status code", 200, response.getResponseCode());
+    }
+
+    @Test
+    public void testDeadlineReachesEndpoint() throws Exception {
+        AtomicReference<Deadline> deadline = new AtomicReference<>();
+        Router router = new Router();
+        router.timeout(1, TimeUnit.MINUTES);
+        router.GET("/deadline", (req) -> {
+            deadline.set(req.getDeadline().orElse(null));
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return new OK("late");
+        });
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        sc.setExceptionsThrownOnErrorStatus(false);
+        InvocationContext ic = sc.newInvocation(new GetMethodWebRequest("http://localhost/api/deadline"));
+        router.service(ic.getRequest(), ic.getResponse());
+        assertNotNull("endpoint sees the deadline", deadline.get());
+        assertEquals("HTTP status code", 200, ic.getServletResponse().getResponseCode());
+        WebRequest late = new GetMethodWebRequest("http://localhost/api/deadline");
+        late.setHeaderField(Router.TIMEOUT_HEADER, "10");
+        ic = sc.newInvocation(late);
+        router.service(ic.getRequest(), ic.getResponse());
+        assertEquals("HTTP status code after the deadline", 504, ic.getServletResponse().getResponseCode());
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.annotations;
+
+import com.meterware.httpunit.PostMethodWebRequest;
+import com.meterware.httpunit.WebResponse;
+import com.meterware.servletunit.ServletRunner;
+import com.meterware.servletunit.ServletUnitClient;
+import io.datenwelt.cargo.rest.Endpoint;
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.examples.TestBoundAPI;
+import io.datenwelt.cargo.rest.examples.TestBoundResource;
+import io.datenwelt.cargo.rest.path.PathParameter;
+import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
+import io.datenwelt.cargo.rest.response.APIException;
+import static io.datenwelt.cargo.rest.test.utils.ContentEncodings.contentEncodings;
+import static io.datenwelt.cargo.rest.test.utils.ContentTypes.contentTypes;
+import static io.datenwelt.cargo.rest.test.utils.ServletUtils.createRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author job
+ */
+public class ResourceBinderTest {
+
+    public ResourceBinderTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static Endpoint endpoint(String method, String template) throws InvalidURITemplateException {
+        for (ResourceBinder.Binding binding : ResourceBinder.bind(new TestBoundResource())) {
+            if (binding.getMethod().equals(method) && binding.getTemplate().equals(template)) {
+                return binding.getEndpoint();
+            }
+        }
+        fail("No binding for " + method + " " + template);
+        return null;
+    }
+
+    private static Request request(String method, String uri, PathParameter... parameters) throws APIException, IOException {
+        int queryIdx = uri.indexOf('?');
+        Request request = new Request(createRequest(method, queryIdx < 0 ? uri : uri.substring(0, queryIdx)), contentTypes(), contentEncodings());
+        if (queryIdx >= 0) {
+            for (String query : uri.substring(queryIdx + 1).split("&")) {
+                String[] pair = query.split("=", 2);
+                request.query(pair[0], pair[1]);
+            }
+        }
+        for (PathParameter parameter : parameters) {
+            request.getParameters().add(parameter);
+        }
+        return request;
+    }
+
+    @Test
+    public void testBindings() throws InvalidURITemplateException {
+        List<String> bindings = new ArrayList<>();
+        for (ResourceBinder.Binding binding : ResourceBinder.bind(new TestBoundResource())) {
+            bindings.add(binding.toString());
+        }
+        assertEquals("Bindings in the order of their templates",
+                "[POST /persons, GET /persons, DELETE /persons/{id:int}, GET /persons/{id:int}, GET /persons/{id:int}/friends]",
+                bindings.toString());
+    }
+
+    @Test
+    public void testEndpointSignatureIsLambda() throws InvalidURITemplateException, APIException, IOException {
+        Endpoint endpoint = endpoint("GET", "/persons");
+        assertTrue("Bound by the lambda metafactory", endpoint.getClass().getName().contains("$$Lambda"));
+        assertEquals("Response of the resource method", "list", endpoint.call(request("GET", "/persons")).body().get());
+    }
+
+    @Test
+    public void testPathAndQueryParameters() throws InvalidURITemplateException, APIException, IOException {
+        Endpoint endpoint = endpoint("GET", "/persons/{id:int}");
+        Response response = endpoint.call(request("GET", "/persons/12?verbose=true", new PathParameter("id", "12", 12)));
+        assertEquals("HTTP status", 200, response.getStatus());
+        assertEquals("Return value as body", "person 12 verbose", response.body().get());
+        response = endpoint.call(request("GET", "/persons/12", new PathParameter("id", "12", 12)));
+        assertEquals("Missing optional query parameter", "person 12", response.body().get());
+    }
+
+    @Test
+    public void testMissingRequiredQueryParameter() throws InvalidURITemplateException, APIException, IOException {
+        Endpoint endpoint = endpoint("GET", "/persons/{id:int}/friends");
+        assertEquals("Query parameter present", "friends 1 10",
+                endpoint.call(request("GET", "/persons/1/friends?limit=10", new PathParameter("id", "1", 1))).body().get());
+        try {
+            endpoint.call(request("GET", "/persons/1/friends", new PathParameter("id", "1", 1)));
+            fail("Missing value for primitive query parameter accepted");
+        } catch (APIException ex) {
+            assertEquals("HTTP status", 400, ex.getResponse().getStatus());
+        }
+        try {
+            endpoint.call(request("GET", "/persons/1/friends?limit=ten", new PathParameter("id", "1", 1)));
+            fail("Illegal value for query parameter accepted");
+        } catch (APIException ex) {
+            assertEquals("HTTP status", 400, ex.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void testVoidMethod() throws InvalidURITemplateException, APIException, IOException {
+        Endpoint endpoint = endpoint("DELETE", "/persons/{id:int}");
+        assertNull("No response", endpoint.call(request("DELETE", "/persons/1", new PathParameter("id", "1", 1))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownPathVariable() throws InvalidURITemplateException {
+        ResourceBinder.bind(new Object() {
+            @GET
+            @Path("/{id}")
+            public String get(@PathParam("name") String name) {
+                return name;
+            }
+        });
+    }
+
+    @Test
+    public void testBodyRoundtrip() throws IOException, SAXException {
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestBoundAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        ByteArrayInputStream input = new ByteArrayInputStream("{\"firstname\":\"Test\"}".getBytes());
+        WebResponse response = sc.getResponse(new PostMethodWebRequest("http://localhost/api/persons", input, "application/json"));
+        assertEquals("HTTP status", 200, response.getResponseCode());
+        assertEquals("Body bound to the request body", "\"Test POST\"", response.getText());
+    }
+
+}
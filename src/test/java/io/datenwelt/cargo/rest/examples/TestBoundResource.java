@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.examples;
+
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.annotations.DELETE;
+import io.datenwelt.cargo.rest.annotations.GET;
+import io.datenwelt.cargo.rest.annotations.POST;
+import io.datenwelt.cargo.rest.annotations.Path;
+import io.datenwelt.cargo.rest.annotations.PathParam;
+import io.datenwelt.cargo.rest.annotations.QueryParam;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.OK;
+import java.util.Map;
+
+/**
+ * Resource class with bound method parameters which is registered at runtime.
+ *
+ * @author job
+ */
+@Path("/persons")
+public class TestBoundResource {
+
+    @GET
+    public Response list(Request request) throws APIException {
+        return new OK("list");
+    }
+
+    @GET
+    @Path("/{id:int}")
+    public String get(@PathParam("id") int id, @QueryParam("verbose") Boolean verbose) {
+        return "person " + id + (Boolean.TRUE.equals(verbose) ? " verbose" : "");
+    }
+
+    @GET
+    @Path("/{id:int}/friends")
+    public String friends(@PathParam("id") int id, @QueryParam("limit") int limit) {
+        return "friends " + id + " " + limit;
+    }
+
+    @DELETE
+    @Path("/{id:int}")
+    public void delete(@PathParam("id") int id) {
+    }
+
+    @POST
+    public Response create(Map<String, Object> person, Request request) {
+        return new OK(person.get("firstname") + " " + request.getMethod());
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.examples;
+
+import io.datenwelt.cargo.rest.limits.ConcurrencyLimiter;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+
+/**
+ *
+ * @author job
+ */
+public class TestLimitedAPI extends TestAPI {
+
+    public static final ConcurrencyLimiter LIMITER = new ConcurrencyLimiter(1, 1, 1, 1, TimeUnit.SECONDS, 3);
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        limit("/person", LIMITER);
+    }
+
+}
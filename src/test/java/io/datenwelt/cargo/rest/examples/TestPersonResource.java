@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.examples;
+
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.annotations.CompiledRouter;
+import io.datenwelt.cargo.rest.annotations.DELETE;
+import io.datenwelt.cargo.rest.annotations.GET;
+import io.datenwelt.cargo.rest.annotations.POST;
+import io.datenwelt.cargo.rest.annotations.Path;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.OK;
+
+/**
+ * Resource class for which a router is generated at compile time. Each method
+ * responds with its own name.
+ *
+ * @author job
+ */
+@CompiledRouter
+@Path("/person")
+public class TestPersonResource {
+
+    @GET
+    public Response list(Request request) throws APIException {
+        return new OK("list");
+    }
+
+    @POST
+    public static Response create(Request request) throws APIException {
+        return new OK("create");
+    }
+
+    @GET
+    @Path("/me")
+    public Response me(Request request) throws APIException {
+        return new OK("me");
+    }
+
+    @GET
+    @DELETE
+    @Path("{id:int}")
+    public Response byId(Request request) throws APIException {
+        return new OK("byId");
+    }
+
+    @GET
+    @Path("/{firstname}/{lastname}")
+    public Response byName(Request request) throws APIException {
+        return new OK("byName");
+    }
+
+    @GET
+    @Path("/{firstname}/files/{path*}")
+    public Response files(Request request) throws APIException {
+        return new OK("files");
+    }
+
+    @GET
+    @Path("/{firstname}/x-{suffix}")
+    public Response suffixed(Request request) throws APIException {
+        return new OK("suffixed");
+    }
+
+    @GET
+    @Path("/ä-{suffix}")
+    public Response encoded(Request request) throws APIException {
+        return new OK("encoded");
+    }
+
+}
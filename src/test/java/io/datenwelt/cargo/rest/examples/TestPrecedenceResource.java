@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.examples;
+
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.annotations.CompiledRouter;
+import io.datenwelt.cargo.rest.annotations.GET;
+import io.datenwelt.cargo.rest.annotations.Path;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.OK;
+
+/**
+ * Resource class with sibling path variables whose precedence neither follows
+ * the order of declaration nor the names of the variables. Each method
+ * responds with its own name.
+ *
+ * @author job
+ */
+@CompiledRouter
+@Path("/p")
+public class TestPrecedenceResource {
+
+    @GET
+    @Path("/{x:int}")
+    public Response byNumber(Request request) throws APIException {
+        return new OK("byNumber");
+    }
+
+    @GET
+    @Path("/{name}")
+    public Response byName(Request request) throws APIException {
+        return new OK("byName");
+    }
+
+    @GET
+    @Path("/q/{any}")
+    public Response byAny(Request request) throws APIException {
+        return new OK("byAny");
+    }
+
+    @GET
+    @Path("/q/{id:long}")
+    public Response byLong(Request request) throws APIException {
+        return new OK("byLong");
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.filters;
+
+import io.datenwelt.cargo.rest.Endpoint;
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.NotFound;
+import io.datenwelt.cargo.rest.response.OK;
+import static io.datenwelt.cargo.rest.test.utils.ConcurrencyUtils.await;
+import static io.datenwelt.cargo.rest.test.utils.ContentEncodings.contentEncodings;
+import static io.datenwelt.cargo.rest.test.utils.ContentTypes.contentTypes;
+import static io.datenwelt.cargo.rest.test.utils.ServletUtils.createRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class CoalescingFilterTest {
+
+    private ExecutorService executor;
+
+    public CoalescingFilterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneCall() throws Exception {
+        CoalescingFilter filter = new CoalescingFilter();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object body = new Object();
+        Endpoint endpoint = (req) -> {
+            calls.incrementAndGet();
+            await(release);
+            Response response = new OK(body);
+            response.header("X-Test", "leader");
+            return response;
+        };
+        Future<Response> leader = executor.submit(() -> call(filter, endpoint, request("/person")));
+        while (filter.getFlights() == 0) {
+            Thread.sleep(1);
+        }
+        List<Future<Response>> followers = new ArrayList<>();
+        for (int idx = 0; idx < 4; idx++) {
+            Request request = request("/person");
+            followers.add(executor.submit(() -> call(filter, endpoint, request)));
+        }
+        while (filter.getFollowers() < 4) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        Response first = leader.get(5, TimeUnit.SECONDS);
+        for (Future<Response> follower : followers) {
+            Response response = follower.get(5, TimeUnit.SECONDS);
+            assertNotSame("each request receives its own response", first, response);
+            assertEquals("status", 200, response.getStatus());
+            assertSame("body is shared", body, response.body().get());
+            assertEquals("headers are copied", "leader", response.header("X-Test").get().asString());
+        }
+        assertEquals("endpoint called once", 1, calls.get());
+        assertEquals("no flights left", 0, filter.getFlights());
+        first.header("X-Other", "value");
+        assertFalse("headers are independent", followers.get(0).get().header("X-Other").isPresent());
+    }
+
+    @Test
+    public void testDifferentRequestsAreNotCoalesced() throws Exception {
+        CoalescingFilter filter = new CoalescingFilter();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Endpoint endpoint = (req) -> {
+            calls.incrementAndGet();
+            await(release);
+            return new OK();
+        };
+        Request json = request("/person");
+        json.header("Accept", "application/json");
+        Request xml = request("/person");
+        xml.header("Accept", "application/xml");
+        Future<Response> first = executor.submit(() -> call(filter, endpoint, json));
+        Future<Response> second = executor.submit(() -> call(filter, endpoint, xml));
+        Future<Response> third = executor.submit(() -> call(filter, endpoint, request("/other")));
+        while (calls.get() < 3) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+        assertEquals("endpoint called for each request", 3, calls.get());
+    }
+
+    @Test
+    public void testQueryOrderIsIgnored() throws Exception {
+        CoalescingFilter filter = new CoalescingFilter();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Endpoint endpoint = (req) -> {
+            calls.incrementAndGet();
+            await(release);
+            return new OK();
+        };
+        Request first = request("/person");
+        first.query("a", "1");
+        first.query("b", "2");
+        Request second = request("/person");
+        second.query("b", "2");
+        second.query("a", "1");
+        Future<Response> leader = executor.submit(() -> call(filter, endpoint, first));
+        while (filter.getFlights() == 0) {
+            Thread.sleep(1);
+        }
+        Future<Response> follower = executor.submit(() -> call(filter, endpoint, second));
+        while (filter.getFollowers() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+        follower.get(5, TimeUnit.SECONDS);
+        assertEquals("endpoint called once", 1, calls.get());
+    }
+
+    @Test
+    public void testFollowersReceiveErrors() throws Exception {
+        CoalescingFilter filter = new CoalescingFilter();
+        CountDownLatch release = new CountDownLatch(1);
+        Endpoint endpoint = (req) -> {
+            await(release);
+            throw new APIException(new NotFound(), "not found");
+        };
+        Future<Response> leader = executor.submit(() -> call(filter, endpoint, request("/person")));
+        while (filter.getFlights() == 0) {
+            Thread.sleep(1);
+        }
+        Request request = request("/person");
+        Future<Response> follower = executor.submit(() -> call(filter, endpoint, request));
+        while (filter.getFollowers() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        assertEquals("leader error", 404, status(leader));
+        assertEquals("follower error", 404, status(follower));
+    }
+
+    @Test
+    public void testTimeoutFallsBackToEndpoint() throws Exception {
+        CoalescingFilter filter = new CoalescingFilter(10, TimeUnit.MILLISECONDS, CoalescingFilter.DEFAULT_VARY);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Endpoint endpoint = (req) -> {
+            if (calls.incrementAndGet() == 1) {
+                await(release);
+            }
+            return new OK();
+        };
+        Future<Response> leader = executor.submit(() -> call(filter, endpoint, request("/person")));
+        while (filter.getFlights() == 0) {
+            Thread.sleep(1);
+        }
+        Response follower = call(filter, endpoint, request("/person"));
+        assertEquals("follower status", 200, follower.getStatus());
+        assertEquals("follower called the endpoint", 2, calls.get());
+        release.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testOtherMethodsAreNotWrapped() throws Exception {
+        Endpoint endpoint = (req) -> new OK();
+        Map<String, Endpoint> endpoints = new HashMap<>();
+        endpoints.put("GET", endpoint);
+        endpoints.put("POST", endpoint);
+        Request request = new Request(createRequest("POST", "/person"), contentTypes(), contentEncodings());
+        new CoalescingFilter().route(endpoints, request);
+        assertSame("GET endpoint", endpoint, endpoints.get("GET"));
+        assertSame("POST endpoint", endpoint, endpoints.get("POST"));
+    }
+
+    private static Request request(String path) throws IOException, APIException {
+        return new Request(createRequest("GET", path), contentTypes(), contentEncodings());
+    }
+
+    private static Response call(CoalescingFilter filter, Endpoint endpoint, Request request) throws APIException {
+        Map<String, Endpoint> endpoints = new HashMap<>();
+        endpoints.put("GET", endpoint);
+        assertFalse("filter does not select an endpoint", filter.route(endpoints, request).isPresent());
+        return endpoints.get("GET").call(request);
+    }
+
+    private static int status(Future<Response> future) throws Exception {
+        try {
+            return future.get(5, TimeUnit.SECONDS).getStatus();
+        } catch (ExecutionException ex) {
+            return ((APIException) ex.getCause()).getResponse().getStatus();
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.filters;
+
+import io.datenwelt.cargo.rest.Deadline;
+import io.datenwelt.cargo.rest.Endpoint;
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.GatewayTimeout;
+import io.datenwelt.cargo.rest.response.OK;
+import io.datenwelt.cargo.rest.response.ServiceUnavailable;
+import static io.datenwelt.cargo.rest.test.utils.ConcurrencyUtils.await;
+import static io.datenwelt.cargo.rest.test.utils.ContentEncodings.contentEncodings;
+import static io.datenwelt.cargo.rest.test.utils.ContentTypes.contentTypes;
+import static io.datenwelt.cargo.rest.test.utils.ServletUtils.createRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class FairQueueingFilterTest {
+
+    private static final String FLOW = "X-Flow";
+
+    private ExecutorService executor;
+
+    public FairQueueingFilterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testWeightedFlowsOvertakeBulkFlows() throws Exception {
+        FairQueueingFilter scheduler = new FairQueueingFilter(1, 10, 5, TimeUnit.SECONDS, FairQueueingFilter.byHeader(FLOW));
+        scheduler.weight("interactive", 4);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Endpoint endpoint = scheduler.wrap((req) -> {
+            String flow = req.header(FLOW).get().encoded();
+            if ("blocker".equals(flow)) {
+                await(release);
+            } else {
+                order.add(flow);
+            }
+            return new OK();
+        });
+        List<Future<Response>> calls = new ArrayList<>();
+        calls.add(executor.submit(() -> endpoint.call(request("blocker"))));
+        while (scheduler.getActive() == 0) {
+            Thread.sleep(1);
+        }
+        for (String flow : Arrays.asList("bulk", "bulk", "bulk", "interactive", "interactive")) {
+            int depth = scheduler.getQueueDepth();
+            calls.add(executor.submit(() -> endpoint.call(request(flow))));
+            while (scheduler.getQueueDepth() == depth) {
+                Thread.sleep(1);
+            }
+        }
+        assertEquals("bulk requests waiting", 3, scheduler.getQueueDepth("bulk"));
+        release.countDown();
+        for (Future<Response> call : calls) {
+            assertEquals("status", 200, call.get(5, TimeUnit.SECONDS).getStatus());
+        }
+        assertEquals("order", Arrays.asList("interactive", "interactive", "bulk", "bulk", "bulk"), order);
+        assertEquals("no active calls", 0, scheduler.getActive());
+    }
+
+    @Test
+    public void testQueuesAreBoundedPerFlow() throws Exception {
+        FairQueueingFilter scheduler = new FairQueueingFilter(1, 1, 5, TimeUnit.SECONDS, FairQueueingFilter.byHeader(FLOW));
+        CountDownLatch release = new CountDownLatch(1);
+        Endpoint endpoint = scheduler.wrap((req) -> {
+            await(release);
+            return new OK();
+        });
+        Future<Response> first = executor.submit(() -> endpoint.call(request("bulk")));
+        while (scheduler.getActive() == 0) {
+            Thread.sleep(1);
+        }
+        Future<Response> second = executor.submit(() -> endpoint.call(request("bulk")));
+        while (scheduler.getQueueDepth() == 0) {
+            Thread.sleep(1);
+        }
+        try {
+            endpoint.call(request("bulk"));
+            fail("queue of the flow is full");
+        } catch (APIException ex) {
+            assertEquals("status", ServiceUnavailable.CODE, ex.getResponse().getStatus());
+        }
+        Future<Response> other = executor.submit(() -> endpoint.call(request("other")));
+        while (scheduler.getQueueDepth() == 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        assertEquals("first request", 200, first.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals("second request", 200, second.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals("other flow", 200, other.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals("rejected", 1, scheduler.getRejected());
+    }
+
+    @Test
+    public void testWaitingIsBounded() throws Exception {
+        FairQueueingFilter scheduler = new FairQueueingFilter(1, 10, 10, TimeUnit.MILLISECONDS, FairQueueingFilter.byRemoteAddress());
+        CountDownLatch release = new CountDownLatch(1);
+        Endpoint endpoint = scheduler.wrap((req) -> {
+            await(release);
+            return new OK();
+        });
+        Future<Response> first = executor.submit(() -> endpoint.call(request("bulk")));
+        while (scheduler.getActive() == 0) {
+            Thread.sleep(1);
+        }
+        try {
+            endpoint.call(request("bulk"));
+            fail("waiting times out");
+        } catch (APIException ex) {
+            assertEquals("status", ServiceUnavailable.CODE, ex.getResponse().getStatus());
+        }
+        Request expired = request("bulk");
+        expired.setDeadline(Deadline.after(0, TimeUnit.MILLISECONDS));
+        try {
+            endpoint.call(expired);
+            fail("deadline expires");
+        } catch (APIException ex) {
+            assertEquals("status", GatewayTimeout.CODE, ex.getResponse().getStatus());
+        }
+        assertEquals("queue is empty", 0, scheduler.getQueueDepth());
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals("worker is released", 0, scheduler.getActive());
+    }
+
+    @Test
+    public void testIdleFlowsAreDropped() throws Exception {
+        FairQueueingFilter scheduler = new FairQueueingFilter(1, 10, 1, TimeUnit.MILLISECONDS, FairQueueingFilter.byHeader(FLOW));
+        CountDownLatch release = new CountDownLatch(1);
+        Endpoint endpoint = scheduler.wrap((req) -> {
+            if ("blocker".equals(req.header(FLOW).get().encoded())) {
+                await(release);
+            }
+            return new OK();
+        });
+        for (int idx = 0; idx < 100; idx++) {
+            endpoint.call(request("client-" + idx));
+        }
+        assertEquals("flows admitted right away", 0, scheduler.getFlows());
+        Future<Response> blocker = executor.submit(() -> endpoint.call(request("blocker")));
+        while (scheduler.getActive() == 0) {
+            Thread.sleep(1);
+        }
+        for (int idx = 0; idx < 100; idx++) {
+            try {
+                endpoint.call(request("client-" + idx));
+                fail("waiting times out");
+            } catch (APIException ex) {
+                assertEquals("status", ServiceUnavailable.CODE, ex.getResponse().getStatus());
+            }
+        }
+        assertEquals("flows which gave up", 0, scheduler.getFlows());
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        assertEquals("flows after the backlog", 0, scheduler.getFlows());
+    }
+
+    @Test
+    public void testRouteWrapsSelectedEndpoint() throws Exception {
+        FairQueueingFilter scheduler = new FairQueueingFilter(1, 10, 5, TimeUnit.SECONDS, FairQueueingFilter.byRemoteAddress());
+        Endpoint endpoint = (req) -> new OK();
+        Map<String, Endpoint> endpoints = new HashMap<>();
+        endpoints.put("GET", endpoint);
+        endpoints.put("POST", endpoint);
+        assertFalse("filter does not select an endpoint", scheduler.route(endpoints, request("bulk")).isPresent());
+        assertNotSame("GET endpoint is wrapped", endpoint, endpoints.get("GET"));
+        assertSame("POST endpoint", endpoint, endpoints.get("POST"));
+        assertEquals("status", 200, endpoints.get("GET").call(request("bulk")).getStatus());
+        assertEquals("worker is released", 0, scheduler.getActive());
+    }
+
+    private static Request request(String flow) throws Exception {
+        Request request = new Request(createRequest("GET", "/person"), contentTypes(), contentEncodings());
+        request.header(FLOW, flow);
+        return request;
+    }
+
+}
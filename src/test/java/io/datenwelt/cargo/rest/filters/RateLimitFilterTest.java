@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.filters;
+
+import com.meterware.httpunit.GetMethodWebRequest;
+import com.meterware.httpunit.WebRequest;
+import com.meterware.httpunit.WebResponse;
+import com.meterware.servletunit.InvocationContext;
+import com.meterware.servletunit.ServletRunner;
+import com.meterware.servletunit.ServletUnitClient;
+import io.datenwelt.cargo.rest.Router;
+import io.datenwelt.cargo.rest.examples.TestAPI;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.OK;
+import io.datenwelt.cargo.rest.response.TooManyRequests;
+import static io.datenwelt.cargo.rest.test.utils.ServletUtils.createRequest;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class RateLimitFilterTest {
+
+    public RateLimitFilterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testRejectsEmptyBucket() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(2, 1, TimeUnit.HOURS);
+        HttpServletRequest request = createRequest("GET", "/person");
+        assertFalse("first request", filter.parse(request).isPresent());
+        assertFalse("second request", filter.parse(request).isPresent());
+        try {
+            filter.parse(request);
+            fail("third request is rejected");
+        } catch (APIException ex) {
+            assertEquals("status", TooManyRequests.CODE, ex.getResponse().getStatus());
+        }
+        assertEquals("rejected", 1, filter.getRejected());
+        assertEquals("keys", 1, filter.getKeys());
+    }
+
+    @Test
+    public void testBucketsAreRefilled() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(1, 20, TimeUnit.MILLISECONDS);
+        assertTrue("first request", filter.tryAcquire("client"));
+        assertFalse("bucket is empty", filter.tryAcquire("client"));
+        Thread.sleep(40);
+        assertTrue("bucket is refilled", filter.tryAcquire("client"));
+    }
+
+    @Test
+    public void testClientsHaveSeparateBuckets() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(1, 1, TimeUnit.HOURS, "X-API-Key");
+        assertTrue("first client", filter.tryAcquire("first"));
+        assertTrue("second client", filter.tryAcquire("second"));
+        assertFalse("first client again", filter.tryAcquire("first"));
+        WebRequest keyed = new GetMethodWebRequest("http://localhost/api/person");
+        keyed.setHeaderField("X-API-Key", "third");
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestAPI.class.getName());
+        InvocationContext ic = sr.newClient().newInvocation(keyed);
+        assertFalse("header is the key", filter.parse(ic.getRequest()).isPresent());
+        assertFalse("third client is limited", filter.tryAcquire("third"));
+        assertEquals("keys", 3, filter.getKeys());
+    }
+
+    @Test
+    public void testIdleBucketsAreEvicted() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(1, 1, TimeUnit.MILLISECONDS);
+        for (int idx = 0; idx < 100; idx++) {
+            filter.tryAcquire("client" + idx);
+        }
+        assertEquals("keys", 100, filter.getKeys());
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(RateLimitFilter.MIN_EVICTION_NANOS) + 20);
+        for (int idx = 0; idx < 100; idx++) {
+            filter.tryAcquire("other" + idx);
+        }
+        assertEquals("idle buckets are evicted", 100, filter.getKeys());
+    }
+
+    @Test
+    public void testRateLimitRoundtrip() throws Exception {
+        Router router = new Router();
+        router.filter(new RateLimitFilter(1, 1, TimeUnit.HOURS));
+        router.GET("/person", (req) -> new OK("Testmann"));
+        ServletRunner sr = new ServletRunner();
+        sr.registerServlet("api/*", TestAPI.class.getName());
+        ServletUnitClient sc = sr.newClient();
+        sc.setExceptionsThrownOnErrorStatus(false);
+        InvocationContext ic = sc.newInvocation(new GetMethodWebRequest("http://localhost/api/person"));
+        router.service(ic.getRequest(), ic.getResponse());
+        assertEquals("HTTP status code", 200, ic.getServletResponse().getResponseCode());
+        ic = sc.newInvocation(new GetMethodWebRequest("http://localhost/api/person"));
+        router.service(ic.getRequest(), ic.getResponse());
+        WebResponse response = ic.getServletResponse();
+        assertEquals("HTTP status code", TooManyRequests.CODE, response.getResponseCode());
+        assertEquals("Retry-After", "3600", response.getHeaderField("Retry-After"));
+        assertEquals("No body", 0, response.getText().length());
+    }
+
+}
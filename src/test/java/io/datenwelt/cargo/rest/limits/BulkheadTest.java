@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.limits;
+
+import io.datenwelt.cargo.rest.Deadline;
+import io.datenwelt.cargo.rest.Endpoint;
+import io.datenwelt.cargo.rest.Request;
+import io.datenwelt.cargo.rest.Response;
+import io.datenwelt.cargo.rest.response.APIException;
+import io.datenwelt.cargo.rest.response.GatewayTimeout;
+import io.datenwelt.cargo.rest.response.OK;
+import io.datenwelt.cargo.rest.response.ServiceUnavailable;
+import static io.datenwelt.cargo.rest.test.utils.ConcurrencyUtils.await;
+import static io.datenwelt.cargo.rest.test.utils.ContentEncodings.contentEncodings;
+import static io.datenwelt.cargo.rest.test.utils.ContentTypes.contentTypes;
+import static io.datenwelt.cargo.rest.test.utils.ServletUtils.createRequest;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class BulkheadTest {
+
+    private ExecutorService executor;
+
+    public BulkheadTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testQueuedRequestsWaitForPermit() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 5, TimeUnit.SECONDS);
+        CountDownLatch release = new CountDownLatch(1);
+        Endpoint endpoint = bulkhead.wrap((req) -> {
+            await(release);
+            return new OK();
+        });
+        Future<Response> first = executor.submit(() -> endpoint.call(request()));
+        while (bulkhead.getActive() == 0) {
+            Thread.sleep(1);
+        }
+        Future<Response> second = executor.submit(() -> endpoint.call(request()));
+        while (bulkhead.getQueueDepth() == 0) {
+            Thread.sleep(1);
+        }
+        try {
+            endpoint.call(request());
+            fail("queue is full");
+        } catch (APIException ex) {
+            assertEquals("status", ServiceUnavailable.CODE, ex.getResponse().getStatus());
+        }
+        release.countDown();
+        assertEquals("first request", 200, first.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals("second request", 200, second.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals("rejected", 1, bulkhead.getRejected());
+        assertEquals("queue is empty", 0, bulkhead.getQueueDepth());
+        assertEquals("no active requests", 0, bulkhead.getActive());
+        assertTrue("requests waited", bulkhead.getAverageWait(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void testWaitingIsBounded() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 10, TimeUnit.MILLISECONDS);
+        CountDownLatch release = new CountDownLatch(1);
+        Endpoint endpoint = bulkhead.wrap((req) -> {
+            await(release);
+            return new OK();
+        });
+        Future<Response> first = executor.submit(() -> endpoint.call(request()));
+        while (bulkhead.getActive() == 0) {
+            Thread.sleep(1);
+        }
+        try {
+            endpoint.call(request());
+            fail("waiting times out");
+        } catch (APIException ex) {
+            assertEquals("status", ServiceUnavailable.CODE, ex.getResponse().getStatus());
+        }
+        Request request = request();
+        request.setDeadline(Deadline.after(0, TimeUnit.MILLISECONDS));
+        try {
+            bulkhead.wrap((req) -> new OK()).call(request);
+            fail("deadline expires");
+        } catch (APIException ex) {
+            assertEquals("status", GatewayTimeout.CODE, ex.getResponse().getStatus());
+        }
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals("rejected", 2, bulkhead.getRejected());
+    }
+
+    @Test
+    public void testOtherEndpointsAreNotAffected() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 0, 0, TimeUnit.SECONDS);
+        CountDownLatch release = new CountDownLatch(1);
+        Endpoint slow = bulkhead.wrap((req) -> {
+            await(release);
+            return new OK();
+        });
+        Endpoint fast = (req) -> new OK();
+        Future<Response> first = executor.submit(() -> slow.call(request()));
+        while (bulkhead.getActive() == 0) {
+            Thread.sleep(1);
+        }
+        assertEquals("fast endpoint", 200, fast.call(request()).getStatus());
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals("permit is released", 200, slow.call(request()).getStatus());
+    }
+
+    @Test
+    public void testPermitIsReleasedOnError() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 0, 0, TimeUnit.SECONDS);
+        Endpoint endpoint = bulkhead.wrap((req) -> {
+            throw new IllegalStateException("failure");
+        });
+        try {
+            endpoint.call(request());
+            fail("endpoint fails");
+        } catch (IllegalStateException ex) {
+        }
+        assertEquals("no active requests", 0, bulkhead.getActive());
+    }
+
+    private static Request request() throws Exception {
+        return new Request(createRequest("GET", "/report"), contentTypes(), contentEncodings());
+    }
+
+}
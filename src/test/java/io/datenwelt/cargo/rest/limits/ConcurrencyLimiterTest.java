@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.limits;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class ConcurrencyLimiterTest {
+
+    public ConcurrencyLimiterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testRejectsAboveLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10, 1, TimeUnit.SECONDS, 1);
+        assertTrue("first request", limiter.tryAcquire());
+        assertTrue("second request", limiter.tryAcquire());
+        assertFalse("third request", limiter.tryAcquire());
+        assertEquals("in flight", 2, limiter.getInFlight());
+        assertEquals("rejected", 1, limiter.getRejected());
+    }
+
+    @Test
+    public void testFastRequestsIncreaseLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 3, 1, TimeUnit.SECONDS, 1);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        limiter.release(System.nanoTime());
+        assertEquals("limit increased under load", 3, limiter.getLimit());
+        limiter.release(System.nanoTime());
+        assertEquals("limit bounded by maximum", 3, limiter.getLimit());
+        assertEquals("nothing in flight", 0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testIdleLimitDoesNotGrow() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100, 1, TimeUnit.SECONDS, 1);
+        for (int idx = 0; idx < 20; idx++) {
+            limiter.tryAcquire();
+            limiter.release(System.nanoTime());
+        }
+        assertEquals("limit unchanged", 10, limiter.getLimit());
+    }
+
+    @Test
+    public void testSlowRequestsDecreaseLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 8, 100, 1, TimeUnit.MILLISECONDS, 1);
+        long slow = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+        limiter.tryAcquire();
+        limiter.release(slow);
+        assertEquals("limit decreased", 9, limiter.getLimit());
+        for (int idx = 0; idx < 10; idx++) {
+            limiter.tryAcquire();
+            limiter.release(slow);
+        }
+        assertEquals("limit bounded by minimum", 8, limiter.getLimit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLimits() {
+        new ConcurrencyLimiter(1, 0, 10, 1, TimeUnit.SECONDS, 1);
+    }
+
+}
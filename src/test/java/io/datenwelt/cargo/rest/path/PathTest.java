@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class PathTest {
+
+    public PathTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testParseRoot() {
+        assertEquals("Null path", "/", Path.parse(null).toString());
+        assertEquals("Empty path", "/", Path.parse("").toString());
+        Path path = Path.parse("/");
+        assertEquals("Root path", "/", path.toString());
+        assertEquals("Number of segments", 1, path.size());
+        assertTrue("Root path", path.isRoot());
+        assertTrue("Resolved to root", Path.parse("/abc/..").isRoot());
+    }
+
+    @Test
+    public void testParseCanonical() {
+        String input = "/abc/def/%2F";
+        Path path = Path.parse(input);
+        assertSame("Canonical input is not copied", input, path.toString());
+        assertEquals("Number of segments", 3, path.size());
+        assertEquals("First segment", "/abc", path.segment(0));
+        assertEquals("Second segment", "/def", path.segment(1));
+        assertEquals("Third segment", "/%2F", path.segment(2));
+        assertEquals("Start of second segment", 4, path.start(1));
+        assertEquals("End of second segment", 8, path.end(1));
+    }
+
+    @Test
+    public void testParseNonCanonical() {
+        assertEquals("Missing leading separator", "/abc/def", Path.parse("abc/def").toString());
+        assertEquals("Trailing separator", "/abc/def", Path.parse("/abc/def/").toString());
+        assertEquals("Dot segments", "/abc/ghi", Path.parse("/abc/./def/../ghi").toString());
+        assertEquals("Leading dot segments", "/abc", Path.parse("/../../abc").toString());
+        assertEquals("Lower case percent encoding", "/abc%2F", Path.parse("/abc%2f").toString());
+        assertEquals("Invalid percent encoding", "/abc%25", Path.parse("/abc%").toString());
+        assertEquals("Invalid characters", "/a%20b%09", Path.parse("/a b\t").toString());
+        assertEquals("Multibyte characters", "/%C3%A4%E2%82%AC%F0%9F%98%80", Path.parse("/ä€😀").toString());
+        Path path = Path.parse("/abc/../def/ghi/");
+        assertEquals("Number of segments", 2, path.size());
+        assertEquals("First segment", "/def", path.segment(0));
+        assertEquals("Second segment", "/ghi", path.segment(1));
+    }
+
+    @Test
+    public void testParseWithOffset() {
+        Path path = Path.parse("/api/persons/123", 4);
+        assertEquals("Path after offset", "/persons/123", path.toString());
+        assertEquals("Number of segments", 2, path.size());
+        assertEquals("First segment", "/persons", path.segment(0));
+        assertTrue("Nothing after offset", Path.parse("/api", 4).isRoot());
+    }
+
+    @Test
+    public void testSameAsSegments() {
+        String[] inputs = {"/", "//", "/a//", "/a//b", "/a/b/../../..", "/x/%41b", "abc"};
+        for (String input : inputs) {
+            StringBuilder expected = new StringBuilder();
+            for (Segment segment : Segment.normalize(Segment.parseSegments(input))) {
+                expected.append(segment);
+            }
+            String canonical = expected.length() == 0 ? "/" : expected.toString();
+            assertEquals("Canonical form of '" + input + "'", canonical, Path.parse(input).toString());
+        }
+    }
+
+}
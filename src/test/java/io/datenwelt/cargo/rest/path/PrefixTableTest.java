@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class PrefixTableTest {
+
+    public PrefixTableTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testLookup() {
+        Map<String, String> entries = new HashMap<>();
+        entries.put("/api/v1", "v1");
+        entries.put("/api/v1/admin/", "admin");
+        entries.put("/static", "static");
+        PrefixTable<String> table = new PrefixTable<>(entries);
+        Path path = Path.parse("/api/v1/admin/users/1");
+        PrefixTable.Match<String> match = table.lookup(path);
+        assertEquals("Longest prefix wins", "admin", match.getValue());
+        assertEquals("Normalized prefix", "/api/v1/admin", match.getPrefix());
+        assertEquals("Depth of the prefix", 3, match.getDepth());
+        assertEquals("Remaining path", "/users/1", match.remainder(path).toString());
+        path = Path.parse("/api/v1");
+        match = table.lookup(path);
+        assertEquals("Prefix itself", "v1", match.getValue());
+        assertTrue("Nothing below the prefix", match.remainder(path).isRoot());
+        assertNull("Other path", table.lookup(Path.parse("/api/v2/users")));
+        assertNull("Partial segment", table.lookup(Path.parse("/statics")));
+    }
+
+    @Test
+    public void testEmpty() {
+        PrefixTable<String> table = new PrefixTable<>(new HashMap<>());
+        assertTrue("Empty table", table.isEmpty());
+        assertNull("No match", table.lookup(Path.parse("/abc")));
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import io.datenwelt.cargo.rest.Endpoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class RouteCacheTest {
+
+    private RouteTable table;
+    private Route route;
+
+    public RouteCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        table = RouteTable.compile(new HashMap<>(), new ArrayList<>());
+        Map<String, Endpoint> endpoints = new HashMap<>();
+        endpoints.put("GET", (r) -> {
+            return null;
+        });
+        route = new Route(endpoints);
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        RouteCache cache = new RouteCache(10);
+        assertNull("Empty cache", cache.get("/abc/123", table));
+        cache.put("/abc/123", table, route, Arrays.asList(new PathParameter("id", "123")));
+        RouteCache.Entry entry = cache.get("/abc/123", table);
+        assertNotNull("Cached entry", entry);
+        assertSame("Cached route", route, entry.getRoute());
+        assertEquals("Cached path parameters", 1, entry.getParameters().size());
+        assertEquals("Hits", 1, cache.getHits());
+        assertEquals("Misses", 1, cache.getMisses());
+    }
+
+    @Test
+    public void testOutdatedTable() {
+        RouteCache cache = new RouteCache(10);
+        cache.put("/abc", table, route, new ArrayList<>());
+        RouteTable newTable = RouteTable.compile(new HashMap<>(), new ArrayList<>());
+        assertNull("Entry of an outdated table is a miss", cache.get("/abc", newTable));
+    }
+
+    @Test
+    public void testEviction() {
+        RouteCache cache = new RouteCache(1);
+        cache.put("/abc", table, route, new ArrayList<>());
+        cache.put("/def", table, route, new ArrayList<>());
+        assertEquals("Size is bounded", 1, cache.size());
+        assertEquals("Evictions", 1, cache.getEvictions());
+        assertNull("Least recently used path evicted", cache.get("/abc", table));
+        assertNotNull("Most recently used path kept", cache.get("/def", table));
+    }
+
+    @Test
+    public void testClear() {
+        RouteCache cache = new RouteCache(100);
+        cache.put("/abc", table, route, new ArrayList<>());
+        cache.put("/def", table, route, new ArrayList<>());
+        assertEquals("Size", 2, cache.size());
+        cache.clear();
+        assertEquals("Cleared cache is empty", 0, cache.size());
+        assertNull("Cleared entry", cache.get("/abc", table));
+    }
+
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import io.datenwelt.cargo.rest.Endpoint;
+import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
+import io.datenwelt.cargo.rest.response.APIException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class RouteTableTest {
+
+    private final Endpoint endpoint1 = (r) -> {
+        return null;
+    };
+    private final Endpoint endpoint2 = (r) -> {
+        return null;
+    };
+
+    public RouteTableTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static List<PathRouter> routers(String... templates) throws InvalidURITemplateException {
+        PathRouter root = new PathRouter(SegmentMatcher.root());
+        for (String template : templates) {
+            root.register(new Segment.Scanner(template), "GET", (r) -> {
+                return null;
+            });
+        }
+        return root.getRouters();
+    }
+
+    @Test
+    public void testLookupRoot() throws InvalidURITemplateException {
+        Map<String, Endpoint> endpoints = new HashMap<>();
+        endpoints.put("GET", endpoint1);
+        RouteTable table = RouteTable.compile(endpoints, routers("/abc"));
+        List<PathParameter> params = new ArrayList<>();
+        Route route = table.lookup("/", params);
+        assertNotNull("Root resource found", route);
+        assertEquals("Endpoint of root resource", endpoint1, route.getEndpoints().get("GET"));
+        assertTrue("No path parameters", params.isEmpty());
+    }
+
+    @Test
+    public void testAllow() throws InvalidURITemplateException {
+        PathRouter root = new PathRouter(SegmentMatcher.root());
+        root.register(new Segment.Scanner("/abc"), "GET", endpoint1);
+        root.register(new Segment.Scanner("/abc"), "POST", endpoint2);
+        root.register(new Segment.Scanner("/def"), "PUT", endpoint1);
+        root.register(new Segment.Scanner("/def"), "OPTIONS", endpoint2);
+        RouteTable table = RouteTable.compile(new HashMap<>(), root.getRouters());
+        Route abc = table.lookup("/abc", new ArrayList<>());
+        assertEquals("Allow with implicit HEAD and OPTIONS", "GET, HEAD, OPTIONS, POST", abc.getAllow());
+        assertSame("Allow of the route's endpoints", abc.getAllow(), Route.allow(abc.getEndpoints()));
+        assertEquals("Allow with registered OPTIONS", "OPTIONS, PUT", table.lookup("/def", new ArrayList<>()).getAllow());
+        Map<String, Endpoint> altered = new LinkedHashMap<>(abc.getEndpoints());
+        altered.remove("POST");
+        assertEquals("Allow of altered endpoints", "GET, HEAD, OPTIONS", Route.allow(altered));
+    }
+
+    @Test
+    public void testLookupNotFound() throws InvalidURITemplateException {
+        RouteTable table = RouteTable.compile(new HashMap<>(), routers("/abc/{id}", "/def"));
+        List<PathParameter> params = new ArrayList<>();
+        assertNull("Root resource has no endpoints", table.lookup("/", params));
+        assertNull("Intermediate resource has no endpoints", table.lookup("/abc", params));
+        assertNull("Unknown resource", table.lookup("/xyz", params));
+        assertTrue("No path parameters", params.isEmpty());
+    }
+
+    @Test
+    public void testLiteralBeforeVariable() throws InvalidURITemplateException, APIException {
+        PathRouter root = new PathRouter(SegmentMatcher.root());
+        root.register(new Segment.Scanner("/abc/{id}"), "GET", endpoint1);
+        root.register(new Segment.Scanner("/abc/def"), "GET", endpoint2);
+        RouteTable table = RouteTable.compile(new HashMap<>(), root.getRouters());
+        List<PathParameter> params = new ArrayList<>();
+        Route route = table.lookup("/abc/def", params);
+        assertEquals("Literal segment wins", endpoint2, route.getEndpoints().get("GET"));
+        assertTrue("No path parameters", params.isEmpty());
+        route = table.lookup("/abc/xyz", params);
+        assertEquals("Variable segment as fallback", endpoint1, route.getEndpoints().get("GET"));
+        assertEquals("Number of path parameters", 1, params.size());
+        assertEquals("Path parameter value", "xyz", params.get(0).get());
+    }
+
+    @Test
+    public void testBacktracking() throws InvalidURITemplateException, APIException {
+        PathRouter root = new PathRouter(SegmentMatcher.root());
+        root.register(new Segment.Scanner("/abc/def/ghi"), "GET", endpoint1);
+        root.register(new Segment.Scanner("/abc/{id}/xyz"), "GET", endpoint2);
+        RouteTable table = RouteTable.compile(new HashMap<>(), root.getRouters());
+        List<PathParameter> params = new ArrayList<>();
+        Route route = table.lookup("/abc/def/xyz", params);
+        assertNotNull("Resource found after backtracking", route);
+        assertEquals("Endpoint found after backtracking", endpoint2, route.getEndpoints().get("GET"));
+        assertEquals("Number of path parameters", 1, params.size());
+        assertEquals("Path parameter value", "def", params.get(0).get());
+    }
+
+    @Test
+    public void testBacktrackingRemovesParameters() throws InvalidURITemplateException {
+        PathRouter root = new PathRouter(SegmentMatcher.root());
+        root.register(new Segment.Scanner("/{a}/{b}/ghi"), "GET", endpoint1);
+        RouteTable table = RouteTable.compile(new HashMap<>(), root.getRouters());
+        List<PathParameter> params = new ArrayList<>();
+        assertNull("No resource found", table.lookup("/abc/def/xyz", params));
+        assertTrue("No path parameters left after failed lookup", params.isEmpty());
+    }
+
+    @Test
+    public void testSharedEndpointMap() throws InvalidURITemplateException {
+        RouteTable table = RouteTable.compile(new HashMap<>(), routers("/abc"));
+        Map<String, Endpoint> first = table.lookup("/abc", new ArrayList<>()).getEndpoints();
+        Map<String, Endpoint> second = table.lookup("/abc", new ArrayList<>()).getEndpoints();
+        assertSame("Endpoint map is shared between lookups", first, second);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testEndpointMapIsReadOnly() throws InvalidURITemplateException {
+        RouteTable table = RouteTable.compile(new HashMap<>(), routers("/abc"));
+        table.lookup("/abc", new ArrayList<>()).getEndpoints().put("POST", endpoint1);
+    }
+
+    @Test
+    public void testWildcard() throws InvalidURITemplateException, APIException {
+        PathRouter root = new PathRouter(SegmentMatcher.root());
+        root.register(new Segment.Scanner("/static/{path*}"), "GET", endpoint1);
+        RouteTable table = RouteTable.compile(new HashMap<>(), root.getRouters());
+        List<PathParameter> params = new ArrayList<>();
+        Route route = table.lookup("/static/css/fonts/site.css", params);
+        assertEquals("Deep path below prefix", endpoint1, route.getEndpoints().get("GET"));
+        assertEquals("Number of path parameters", 1, params.size());
+        assertEquals("Path parameter name", "path", params.get(0).name());
+        assertEquals("Remainder of the path", "css/fonts/site.css", params.get(0).get());
+        params.clear();
+        route = table.lookup("/static", params);
+        assertEquals("Wildcard matches empty remainder", endpoint1, route.getEndpoints().get("GET"));
+        assertEquals("Empty remainder", "", params.get(0).get());
+        assertNull("Other prefix", table.lookup("/statics/abc", new ArrayList<>()));
+    }
+
+    @Test
+    public void testAnonymousWildcard() throws InvalidURITemplateException {
+        PathRouter root = new PathRouter(SegmentMatcher.root());
+        root.register(new Segment.Scanner("/proxy/v1/**"), "GET", endpoint1);
+        RouteTable table = RouteTable.compile(new HashMap<>(), root.getRouters());
+        List<PathParameter> params = new ArrayList<>();
+        Route route = table.lookup("/proxy/v1/a/b/c", params);
+        assertEquals("Deep path below prefix", endpoint1, route.getEndpoints().get("GET"));
+        assertTrue("No path parameters", params.isEmpty());
+        assertNull("Path above prefix", table.lookup("/proxy", params));
+    }
+
+    @Test
+    public void testWildcardIsLastResort() throws InvalidURITemplateException, APIException {
+        PathRouter root = new PathRouter(SegmentMatcher.root());
+        root.register(new Segment.Scanner("/files/{path*}"), "GET", endpoint1);
+        root.register(new Segment.Scanner("/files/{id:int}"), "GET", endpoint2);
+        root.register(new Segment.Scanner("/files/index"), "GET", endpoint2);
+        RouteTable table = RouteTable.compile(new HashMap<>(), root.getRouters());
+        List<PathParameter> params = new ArrayList<>();
+        assertEquals("Literal before wildcard", endpoint2, table.lookup("/files/index", params).getEndpoints().get("GET"));
+        assertEquals("Variable before wildcard", endpoint2, table.lookup("/files/42", params).getEndpoints().get("GET"));
+        assertEquals("Path parameter of variable", 42, params.get(0).getInt());
+        params.clear();
+        assertEquals("Wildcard as fallback", endpoint1, table.lookup("/files/42/abc", params).getEndpoints().get("GET"));
+        assertEquals("Number of path parameters", 1, params.size());
+        assertEquals("Remainder of the path", "42/abc", params.get(0).get());
+    }
+
+    @Test
+    public void testWildcardWithVariablePrefix() throws InvalidURITemplateException, APIException {
+        PathRouter root = new PathRouter(SegmentMatcher.root());
+        root.register(new Segment.Scanner("/users/{user}/files/{path*}"), "GET", endpoint1);
+        RouteTable table = RouteTable.compile(new HashMap<>(), root.getRouters());
+        List<PathParameter> params = new ArrayList<>();
+        Route route = table.lookup("/users/abc/files/docs/readme.txt", params);
+        assertEquals("Wildcard below variable", endpoint1, route.getEndpoints().get("GET"));
+        assertEquals("Number of path parameters", 2, params.size());
+        assertEquals("Variable value", "abc", params.get(0).get());
+        assertEquals("Remainder of the path", "docs/readme.txt", params.get(1).get());
+    }
+
+    @Test
+    public void testRootWildcard() throws InvalidURITemplateException, APIException {
+        Map<String, Endpoint> endpoints = new HashMap<>();
+        endpoints.put("GET", endpoint2);
+        PathRouter root = new PathRouter(SegmentMatcher.root());
+        root.register(new Segment.Scanner("/{path*}"), "GET", endpoint1);
+        RouteTable table = RouteTable.compile(endpoints, root.getRouters());
+        List<PathParameter> params = new ArrayList<>();
+        assertEquals("Root resource before wildcard", endpoint2, table.lookup("/", params).getEndpoints().get("GET"));
+        assertTrue("No path parameters", params.isEmpty());
+        assertEquals("Any other path", endpoint1, table.lookup("/a/b", params).getEndpoints().get("GET"));
+        assertEquals("Remainder of the path", "a/b", params.get(0).get());
+    }
+
+    @Test
+    public void testRejects() throws InvalidURITemplateException {
+        RouteTable table = RouteTable.compile(new HashMap<>(), routers("/abc/{id}", "/def/ghi"));
+        assertTrue("Root resource has no endpoints", table.rejects(Path.parse("/")));
+        assertTrue("Unknown first segment", table.rejects(Path.parse("/xyz/123")));
+        assertFalse("Known first segment", table.rejects(Path.parse("/abc/123")));
+        assertFalse("Known first segment, unknown resource", table.rejects(Path.parse("/def/xyz")));
+        assertFalse("Leading empty segments", table.rejects(Path.parse("//abc/123")));
+    }
+
+    @Test
+    public void testRejectsNothingBelowRootVariable() throws InvalidURITemplateException {
+        RouteTable table = RouteTable.compile(new HashMap<>(), routers("/abc", "/{id}/def"));
+        assertFalse("Variable first segment", table.rejects(Path.parse("/xyz/def")));
+        Map<String, Endpoint> endpoints = new HashMap<>();
+        endpoints.put("GET", endpoint1);
+        table = RouteTable.compile(endpoints, routers("/abc"));
+        assertFalse("Root resource", table.rejects(Path.parse("/")));
+        assertTrue("Unknown first segment", table.rejects(Path.parse("/xyz")));
+    }
+
+}
@@ -20,6 +20,8 @@ import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
 import io.datenwelt.cargo.rest.response.APIException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -283,4 +285,113 @@ public class SegmentMatcherTest {
         template.match("/12345-sdsd");
     }
 
+    @Test
+    public void testParseTypedVariables() throws InvalidURITemplateException {
+        SegmentMatcher template = SegmentMatcher.parse("/{id:int}");
+        assertEquals("String representation ", "/{id:int}", template.toString());
+        assertEquals("Variable name ", "id", template.getVariableNames().get(0));
+        assertEquals("Variable type ", VariableType.INT, template.getVariableTypes().get(0));
+        assertFalse("Typed and untyped templates differ", template.equals(SegmentMatcher.parse("/{id}")));
+        assertFalse("Templates with different types differ", template.equals(SegmentMatcher.parse("/{id:long}")));
+        assertEquals("Templates with same types are equal", template, SegmentMatcher.parse("/{other:int}"));
+    }
+
+    @Test(expected = InvalidURITemplateException.class)
+    public void testParseUnsupportedType() throws InvalidURITemplateException {
+        SegmentMatcher.parse("/{id:float}");
+    }
+
+    @Test(expected = InvalidURITemplateException.class)
+    public void testParseNegatedCharacterClass() throws InvalidURITemplateException {
+        SegmentMatcher.parse("/{id:[^a-z]+}");
+    }
+
+    @Test
+    public void testMatchInt() throws InvalidURITemplateException, URITemplateMismatchException, APIException {
+        SegmentMatcher template = SegmentMatcher.parse("/persons-{id:int}");
+        List<PathParameter> params = template.match("/persons--42");
+        assertEquals("Matched variable value", "-42", params.get(0).get());
+        assertEquals("Converted value", -42, params.get(0).value());
+        assertEquals("Converted value as int", -42, params.get(0).getInt());
+        assertEquals("Converted value as long", -42L, params.get(0).getLong());
+        assertTrue("Non-numeric value", template.mismatch("/persons-abc"));
+        assertTrue("Misplaced sign", template.mismatch("/persons-4-2"));
+        assertTrue("Integer overflow", template.mismatch("/persons-2147483648"));
+    }
+
+    @Test
+    public void testMatchLong() throws InvalidURITemplateException, URITemplateMismatchException, APIException {
+        SegmentMatcher template = SegmentMatcher.parse("/{id:long}");
+        assertEquals("Maximum value", Long.MAX_VALUE, template.match("/9223372036854775807").get(0).getLong());
+        assertEquals("Minimum value", Long.MIN_VALUE, template.match("/-9223372036854775808").get(0).getLong());
+        assertTrue("Long overflow", template.mismatch("/9223372036854775808"));
+    }
+
+    @Test
+    public void testMatchUUID() throws InvalidURITemplateException, URITemplateMismatchException, APIException {
+        SegmentMatcher template = SegmentMatcher.parse("/{id:uuid}");
+        UUID uuid = UUID.randomUUID();
+        List<PathParameter> params = template.match("/" + uuid.toString());
+        assertEquals("Converted value", uuid, params.get(0).getUUID());
+        assertEquals("Upper case value", uuid, template.match("/" + uuid.toString().toUpperCase()).get(0).getUUID());
+        assertTrue("Too short", template.mismatch("/" + uuid.toString().substring(1)));
+        assertTrue("Misplaced dashes", template.mismatch("/0123456-78901-2345-6789-0123456789ab"));
+    }
+
+    @Test
+    public void testMatchCharacterClass() throws InvalidURITemplateException, URITemplateMismatchException, APIException {
+        SegmentMatcher template = SegmentMatcher.parse("/{slug:[a-z0-9-]+}.html");
+        List<PathParameter> params = template.match("/my-first-post.html");
+        assertEquals("Matched variable value", "my-first-post", params.get(0).get());
+        assertTrue("Upper case characters", template.mismatch("/My-First-Post.html"));
+        assertTrue("Empty value", template.mismatch("/.html"));
+    }
+
+    @Test
+    public void testMatchTypedVariablesWithSeparator() throws InvalidURITemplateException, URITemplateMismatchException, APIException {
+        SegmentMatcher template = SegmentMatcher.parse("/{from:int}-{to:int}");
+        List<PathParameter> params = template.match("/10-20");
+        assertEquals("Number of matched variables", 2, params.size());
+        assertEquals("First value", 10, params.get(0).getInt());
+        assertEquals("Second value", 20, params.get(1).getInt());
+    }
+
+    @Test
+    public void testParseWildcard() throws InvalidURITemplateException {
+        SegmentMatcher template = SegmentMatcher.parse("/{path*}");
+        assertTrue("Named wildcard", template.isWildcard());
+        assertFalse("Wildcard is not literal", template.isLiteral());
+        assertEquals("Variable name", "path", template.getVariableNames().get(0));
+        template = SegmentMatcher.parse("/**");
+        assertTrue("Anonymous wildcard", template.isWildcard());
+        assertFalse("Wildcard is not literal", template.isLiteral());
+        assertTrue("No variable names", template.getVariableNames().isEmpty());
+        assertFalse("Literal asterisks", SegmentMatcher.parse("/a**").isWildcard());
+    }
+
+    @Test(expected = InvalidURITemplateException.class)
+    public void testParseWildcardWithinSegment() throws InvalidURITemplateException {
+        SegmentMatcher.parse("/file-{path*}");
+    }
+
+    @Test
+    public void testTryMatch() throws InvalidURITemplateException, APIException {
+        SegmentMatcher template = SegmentMatcher.parse("/persons-{id:int}");
+        Optional<List<PathParameter>> params = template.tryMatch("/persons-42");
+        assertTrue("Matching segment", params.isPresent());
+        assertEquals("Matched variable value", 42, params.get().get(0).getInt());
+        assertFalse("Mismatching segment", template.tryMatch("/persons-abc").isPresent());
+    }
+
+    @Test
+    public void testMismatchExceptionIsStackless() throws InvalidURITemplateException {
+        SegmentMatcher template = SegmentMatcher.parse("/abc");
+        try {
+            template.match("/def");
+            fail("Mismatch expected");
+        } catch (URITemplateMismatchException ex) {
+            assertEquals("No stack trace", 0, ex.getStackTrace().length);
+        }
+    }
+
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 job.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.datenwelt.cargo.rest.path;
+
+import io.datenwelt.cargo.rest.path.errors.InvalidURITemplateException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author job
+ */
+public class URITemplateTest {
+
+    public URITemplateTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testExpandLiteral() throws InvalidURITemplateException {
+        assertEquals("Root template", "/", URITemplate.parse("/").expand());
+        assertEquals("Literal template", "/abc/def", URITemplate.parse("abc/./def/").expand());
+    }
+
+    @Test
+    public void testExpandVariables() throws InvalidURITemplateException {
+        URITemplate template = URITemplate.parse("/persons/{id:int}/files/{name}.{ext:[a-z]+}");
+        assertEquals("Variable names", Arrays.asList("id", "name", "ext"), template.getVariableNames());
+        assertEquals("Positional values", "/persons/42/files/readme.txt", template.expand(42, "readme", "txt"));
+        Map<String, Object> values = new HashMap<>();
+        values.put("id", 7);
+        values.put("name", "a b/c%");
+        values.put("ext", "pdf");
+        assertEquals("Named and encoded values", "/persons/7/files/a%20b%2Fc%25.pdf", template.expand(values));
+    }
+
+    @Test
+    public void testExpandWildcard() throws InvalidURITemplateException {
+        URITemplate template = URITemplate.parse("/static/{path*}");
+        assertEquals("Remainder", "/static/css/site%20main.css", template.expand("css/site main.css"));
+        assertEquals("Empty remainder", "/static", template.expand(""));
+        assertEquals("Anonymous wildcard", "/proxy", URITemplate.parse("/proxy/**").expand());
+    }
+
+    @Test
+    public void testExpandDotSegments() throws InvalidURITemplateException {
+        URITemplate template = URITemplate.parse("/persons/{name}/files");
+        assertEquals("Parent segment", "/persons/%2E%2E/files", template.expand(".."));
+        assertEquals("Current segment", "/persons/%2E/files", template.expand("."));
+        assertEquals("Dots within value", "/persons/.../files", template.expand("..."));
+        assertEquals("Parent segment parsed", 3, Path.parse(template.expand("..")).size());
+
+        URITemplate wildcard = URITemplate.parse("/static/{path*}");
+        String path = wildcard.expand("../../admin");
+        assertEquals("Parent segments in remainder", "/static/%2E%2E/%2E%2E/admin", path);
+        assertEquals("Remainder parsed", path, Path.parse(path).toString());
+        assertEquals("Dots within remainder", "/static/a/.b/c./%2E/d", wildcard.expand("a/.b/c././d"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExpandInvalidType() throws InvalidURITemplateException {
+        URITemplate.parse("/persons/{id:int}").expand("abc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExpandMissingValue() throws InvalidURITemplateException {
+        URITemplate.parse("/persons/{id}").expand(new HashMap<>());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExpandEmptyValue() throws InvalidURITemplateException {
+        URITemplate.parse("/persons/{id}").expand("");
+    }
+
+}